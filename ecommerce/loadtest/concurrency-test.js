@@ -0,0 +1,43 @@
+// k6 load test: throughput of blocking endpoints at a fixed number of concurrent connections
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e CONNECTIONS=1000 loadtest/concurrency-test.js
+//
+// Run it for CONNECTIONS=1000, 5000 and 10000, once against a platform-thread build and once with
+// virtual threads enabled (see docs/virtual-threads.md), and compare http_reqs/s and the latency percentiles.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const CONNECTIONS = parseInt(__ENV.CONNECTIONS || '1000', 10);
+const DURATION = __ENV.DURATION || '2m';
+
+export const options = {
+    scenarios: {
+        concurrent: {
+            executor: 'constant-vus',
+            vus: CONNECTIONS,
+            duration: DURATION,
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const LOGIN_BODY = JSON.stringify({
+    email: __ENV.LOGIN_EMAIL || 'john.doe@example.com',
+    password: __ENV.LOGIN_PASSWORD || 'password123',
+});
+
+export default function () {
+    // Read path: JPA query plus serialization
+    const products = http.get(`${BASE_URL}/api/catalog/products?page=0&size=20`, { tags: { name: 'products' } });
+    check(products, { 'products 200': (r) => r.status === 200 });
+
+    // CPU- and blocking-heavy path: password hashing on login
+    if (__ITER % 10 === 0) {
+        const login = http.post(`${BASE_URL}/api/users/login`, LOGIN_BODY, {
+            headers: { 'Content-Type': 'application/json' },
+            tags: { name: 'login' },
+        });
+        check(login, { 'login answered': (r) => r.status === 200 || r.status === 401 });
+    }
+}
@@ -0,0 +1,92 @@
+package com.backend.ecommerce.event.serialization;
+
+import com.backend.ecommerce.event.OrderEvent;
+import com.backend.ecommerce.event.PaymentEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of the event wire formats
+ *
+ * Run with: gradle jmh
+ * Encoded sizes per event are reported by EventCodecsTest#testEncodedSizesAreReported.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class EventCodecBenchmark {
+
+    @Param({"json", "avro"})
+    private String format;
+
+    @Param({"order", "payment"})
+    private String event;
+
+    private EventCodecs codecs;
+    private Object sample;
+    private Class<?> type;
+    private EncodedEvent encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        codecs = new EventCodecs(objectMapper, format);
+        sample = "order".equals(event) ? orderEvent() : paymentEvent();
+        type = sample.getClass();
+        encoded = codecs.encode(sample);
+    }
+
+    @Benchmark
+    public EncodedEvent encode() {
+        return codecs.encode(sample);
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        blackhole.consume(codecs.decode(encoded.getData(), encoded.getFormat(), encoded.getSchemaVersion(), type));
+    }
+
+    private static OrderEvent orderEvent() {
+        OrderEvent order = new OrderEvent(OrderEvent.ORDER_CREATED, "5f0c2a7e-1b7d-4c1e-9a53-3f1e0f7c9d21",
+                "0b8e8a54-7d0f-4f0e-a0b3-9e4c6f7d1a22");
+        order.setEventId("7c3d9f12-2e4b-4a8c-b1d5-6e7f8a9b0c13");
+        order.setOrderNumber("ORD-20261017-000123");
+        order.setUserEmail("jane.doe@example.com");
+        order.setStatus(OrderEvent.OrderStatus.PENDING);
+        order.setPaymentStatus(OrderEvent.PaymentStatus.PENDING);
+        order.setTotalAmount(new BigDecimal("389.65"));
+        List<OrderEvent.OrderItemEvent> items = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            items.add(new OrderEvent.OrderItemEvent("a1f3c5e7-0000-4000-8000-00000000000" + i, "Product " + i, i,
+                    new BigDecimal("25.93"), new BigDecimal("25.93").multiply(BigDecimal.valueOf(i))));
+        }
+        order.setItems(items);
+        order.setMetadata(Map.of("channel", "web", "itemCount", 15));
+        order.setTimestamp(LocalDateTime.of(2026, 10, 17, 12, 30, 15));
+        order.setCreatedAt(LocalDateTime.of(2026, 10, 17, 12, 30, 15));
+        return order;
+    }
+
+    private static PaymentEvent paymentEvent() {
+        PaymentEvent payment = new PaymentEvent(PaymentEvent.PAYMENT_SUCCESSFUL, "5f0c2a7e-1b7d-4c1e-9a53-3f1e0f7c9d21",
+                "0b8e8a54-7d0f-4f0e-a0b3-9e4c6f7d1a22", new BigDecimal("389.65"));
+        payment.setEventId("7c3d9f12-2e4b-4a8c-b1d5-6e7f8a9b0c14");
+        payment.setPaymentId("c2d4e6f8-1a3b-4c5d-8e9f-0a1b2c3d4e5f");
+        payment.setTransactionId("txn_1Q2w3E4r5T6y7U8i");
+        payment.setPaymentMethod("CREDIT_CARD");
+        payment.setStatus(PaymentEvent.PaymentStatus.SUCCESSFUL);
+        payment.setGatewayResponse("Payment processed successfully");
+        payment.setTimestamp(LocalDateTime.of(2026, 10, 17, 12, 30, 16));
+        payment.setCreatedAt(LocalDateTime.of(2026, 10, 17, 12, 30, 16));
+        return payment;
+    }
+}
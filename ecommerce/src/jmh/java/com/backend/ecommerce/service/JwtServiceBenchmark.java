@@ -0,0 +1,53 @@
+package com.backend.ecommerce.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token validations per second with and without the verified-claims cache
+ *
+ * Run with: gradle jmh -PjmhIncludes=JwtServiceBenchmark
+ * Requests cycle through a fixed set of live tokens, as they would with that many active sessions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hs256";
+
+    @Param({"0", "10000"})
+    private long claimsCacheMaxSize;
+
+    @Param({"1000"})
+    private int activeTokens;
+
+    private JwtService jwtService;
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtService = new JwtService(SECRET, 3_600_000L, claimsCacheMaxSize, new SimpleMeterRegistry());
+        tokens = new String[activeTokens];
+        for (int i = 0; i < activeTokens; i++) {
+            tokens[i] = jwtService.generateToken(Map.of("userId", "user-" + i, "role", "CUSTOMER"),
+                    User.withUsername("user" + i + "@example.com").password("unused").roles("CUSTOMER").build());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String validate(Cursor cursor) {
+        String token = tokens[cursor.next++ % tokens.length];
+        return jwtService.extractUserId(token);
+    }
+}
@@ -0,0 +1,66 @@
+package com.backend.ecommerce.config;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Picks the BCrypt cost whose verification time meets a latency target on the current host
+ *
+ * BCrypt time doubles with each cost step, so the calibrator times a few verifications at the minimum
+ * cost, extrapolates to the highest cost within the target, then times that cost to confirm it and
+ * steps down while it is too slow. The result is clamped to [minCost, maxCost]; the minimum wins even if
+ * it misses the target, since it is the weakest hash the application accepts producing.
+ */
+public class BCryptCostCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+
+    private final int samples;
+
+    public BCryptCostCalibrator(int samples) {
+        this.samples = samples;
+    }
+
+    /**
+     * Calibrate the cost
+     * @param target Target verification time
+     * @param minCost Lowest acceptable cost
+     * @param maxCost Highest cost to consider
+     * @return Chosen cost
+     */
+    public int calibrate(Duration target, int minCost, int maxCost) {
+        long targetNanos = target.toNanos();
+        // The first run of the algorithm includes class loading and JIT warm-up
+        measureNanos(minCost);
+        long baseNanos = measureNanos(minCost);
+
+        int cost = minCost;
+        while (cost < maxCost && baseNanos << (cost + 1 - minCost) <= targetNanos) {
+            cost++;
+        }
+        while (cost > minCost && measureNanos(cost) > targetNanos) {
+            cost--;
+        }
+        return cost;
+    }
+
+    /**
+     * Median time of one verification at a cost
+     * @param cost BCrypt cost
+     * @return Nanoseconds
+     */
+    long measureNanos(int cost) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost);
+        String hash = encoder.encode(SAMPLE_PASSWORD);
+        long[] times = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            long start = System.nanoTime();
+            encoder.matches(SAMPLE_PASSWORD, hash);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[samples / 2];
+    }
+}
@@ -0,0 +1,84 @@
+package com.backend.ecommerce.config;
+
+import com.backend.ecommerce.dto.AuthenticatedUser;
+import com.backend.ecommerce.service.JwtService;
+import com.backend.ecommerce.service.TokenRevocationList;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Authenticates requests carrying a bearer token issued at login
+ *
+ * The principal is built from the verified userId, role and subject claims, without loading the user,
+ * so authentication costs no database query. Account changes reach the filter through the
+ * {@link TokenRevocationList}. A request with a missing, invalid, expired or revoked token continues
+ * unauthenticated and is rejected by the authorization rules if the endpoint is protected.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtService jwtService;
+
+    private final TokenRevocationList tokenRevocationList;
+
+    public JwtAuthenticationFilter(JwtService jwtService, TokenRevocationList tokenRevocationList) {
+        this.jwtService = jwtService;
+        this.tokenRevocationList = tokenRevocationList;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            authenticate(header.substring(BEARER_PREFIX.length()).trim());
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void authenticate(String token) {
+        Claims claims;
+        try {
+            claims = jwtService.extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("Rejected bearer token: {}", e.getMessage());
+            return;
+        }
+
+        String userId = claims.get("userId", String.class);
+        String role = claims.get("role", String.class);
+        if (userId == null || role == null || claims.getSubject() == null) {
+            logger.debug("Rejected bearer token without user claims");
+            return;
+        }
+        if (tokenRevocationList.isRevoked(userId, claims.getIssuedAt())) {
+            logger.debug("Rejected revoked token of user {}", userId);
+            return;
+        }
+
+        AuthenticatedUser principal = new AuthenticatedUser(userId, claims.getSubject(), role);
+        UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+    }
+}
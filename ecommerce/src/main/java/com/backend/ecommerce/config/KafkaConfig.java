@@ -1,17 +1,42 @@
 package com.backend.ecommerce.config;
 
+import com.backend.ecommerce.event.serialization.EventCodecs;
+import com.backend.ecommerce.event.serialization.EventDeserializer;
+import com.backend.ecommerce.event.serialization.EventPayload;
+import com.backend.ecommerce.event.serialization.EventSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,6 +45,9 @@ import java.util.Map;
 @Configuration
 public class KafkaConfig {
     
+    /** Suffix the dead letter publishing recoverer appends to a record's topic */
+    private static final String DLT_SUFFIX = ".DLT";
+    
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
     
@@ -41,30 +69,281 @@ public class KafkaConfig {
     @Value("${kafka.topic.payment-verification:payment-verification}")
     private String paymentVerificationTopic;
     
+    @Value("${kafka.topic.payment-verification-response:payment-verification-response}")
+    private String paymentVerificationResponseTopic;
+    
+    @Value("${kafka.topic.payment-status-updates:payment-status-updates}")
+    private String paymentStatusUpdatesTopic;
+    
+    @Value("${kafka.topic.payment-refunds:payment-refunds}")
+    private String paymentRefundsTopic;
+    
+    @Value("${kafka.topic.order-status-updates:order-status-updates}")
+    private String orderStatusUpdatesTopic;
+    
+    @Value("${kafka.topic.user-status-updates:user-status-updates}")
+    private String userStatusUpdatesTopic;
+    
+    @Value("${jwt.expiration}")
+    private long tokenLifetimeMs;
+    
+    /** Partitions of every order and payment topic; also the number of batch listener threads */
+    @Value("${kafka.topic.order-partitions:3}")
+    private int orderTopicPartitions;
+    
+    @Value("${kafka.topic.user-partitions:3}")
+    private int userTopicPartitions;
+    
+    @Value("${kafka.topic.replicas:1}")
+    private short topicReplicas;
+    
+    @Value("${kafka.events.format:json}")
+    private String eventFormat;
+    
+    @Value("${kafka.consumer.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+    
+    @Value("${payment.pipeline.max-in-flight:32}")
+    private int paymentPipelineMaxInFlight;
+    
+    @Value("${kafka.consumer.retry.attempts:2}")
+    private long retryAttempts;
+    
+    @Value("${kafka.consumer.retry.interval-ms:1000}")
+    private long retryIntervalMs;
+    
+    /**
+     * Event wire formats; producers write kafka.events.format, consumers read every known format
+     */
+    @Bean
+    public EventCodecs eventCodecs(ObjectMapper objectMapper) {
+        return new EventCodecs(objectMapper, eventFormat);
+    }
+    
+    /**
+     * Default producer profile, used for order and payment events
+     * Values go through {@link EventSerializer}, which encodes events and tags them with format headers
+     */
+    @Bean
+    @Primary
+    public ProducerFactory<String, Object> producerFactory(
+            EventCodecs eventCodecs, MeterRegistry meterRegistry,
+            @Value("${kafka.producer.default.batch-size:32768}") int batchSize,
+            @Value("${kafka.producer.default.linger-ms:5}") int lingerMs,
+            @Value("${kafka.producer.default.compression:lz4}") String compression) {
+        // Retries after a lost acknowledgement must not duplicate or reorder outbox messages
+        return producerFactory("default", eventCodecs, meterRegistry, batchSize, lingerMs, compression, true);
+    }
+    
+    /**
+     * Bulk producer profile for high-volume, latency-insensitive user activity events
+     * Lingers longer to fill large batches and compresses them with zstd; a rare duplicate is acceptable,
+     * so idempotence is off and only the leader has to acknowledge.
+     */
+    @Bean
+    public ProducerFactory<String, Object> bulkProducerFactory(
+            EventCodecs eventCodecs, MeterRegistry meterRegistry,
+            @Value("${kafka.producer.bulk.batch-size:131072}") int batchSize,
+            @Value("${kafka.producer.bulk.linger-ms:50}") int lingerMs,
+            @Value("${kafka.producer.bulk.compression:zstd}") String compression) {
+        return producerFactory("bulk", eventCodecs, meterRegistry, batchSize, lingerMs, compression, false);
+    }
+    
+    /**
+     * Critical producer profile for payment verification traffic
+     * Sends immediately without compression; idempotent so retries never duplicate a verification.
+     */
+    @Bean
+    public ProducerFactory<String, Object> criticalProducerFactory(
+            EventCodecs eventCodecs, MeterRegistry meterRegistry,
+            @Value("${kafka.producer.critical.batch-size:16384}") int batchSize,
+            @Value("${kafka.producer.critical.linger-ms:0}") int lingerMs,
+            @Value("${kafka.producer.critical.compression:none}") String compression) {
+        return producerFactory("critical", eventCodecs, meterRegistry, batchSize, lingerMs, compression, true);
+    }
+    
+    /**
+     * Default Kafka template
+     */
+    @Bean
+    @Primary
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        return kafkaTemplate("default", producerFactory);
+    }
+    
+    /**
+     * Kafka template on the bulk producer profile
+     */
+    @Bean
+    public KafkaTemplate<String, Object> bulkKafkaTemplate(
+            @Qualifier("bulkProducerFactory") ProducerFactory<String, Object> producerFactory) {
+        return kafkaTemplate("bulk", producerFactory);
+    }
+    
     /**
-     * Configure Kafka producer factory
+     * Kafka template on the critical producer profile
      */
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public KafkaTemplate<String, Object> criticalKafkaTemplate(
+            @Qualifier("criticalProducerFactory") ProducerFactory<String, Object> producerFactory) {
+        return kafkaTemplate("critical", producerFactory);
+    }
+    
+    /**
+     * Producer factory for one tuning profile
+     * Client metrics such as kafka.producer.batch.size.avg and kafka.producer.record.send.rate are
+     * published with a profile tag.
+     */
+    private DefaultKafkaProducerFactory<String, Object> producerFactory(String profile, EventCodecs eventCodecs,
+                                                                       MeterRegistry meterRegistry, int batchSize,
+                                                                       int lingerMs, String compression,
+                                                                       boolean idempotent) {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.CLIENT_ID_CONFIG, "ecommerce-" + profile);
+        configProps.put(ProducerConfig.ACKS_CONFIG, idempotent ? "all" : "1");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
-        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 1);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, idempotent);
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
         configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 33554432);
         
-        return new DefaultKafkaProducerFactory<>(configProps);
+        DefaultKafkaProducerFactory<String, Object> factory =
+                new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), new EventSerializer(eventCodecs));
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry, List.of(Tag.of("profile", profile))));
+        return factory;
+    }
+    
+    /**
+     * Template whose send latency is timed as spring.kafka.template, tagged with the bean name and profile
+     */
+    private KafkaTemplate<String, Object> kafkaTemplate(String profile, ProducerFactory<String, Object> producerFactory) {
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(producerFactory);
+        template.setMicrometerTags(Map.of("profile", profile));
+        return template;
+    }
+    
+    /**
+     * Consumers receive values as {@link EventPayload}, decoded by each listener into the event class it expects
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public DefaultKafkaConsumerFactoryCustomizer eventDeserializerCustomizer(EventCodecs eventCodecs) {
+        return consumerFactory -> ((DefaultKafkaConsumerFactory<Object, EventPayload>) consumerFactory)
+                .setValueDeserializerSupplier(() -> eventDeserializer(eventCodecs));
+    }
+    
+    /**
+     * Event deserializer that reports a record it cannot read instead of failing the poll
+     * The record is delivered with a null value and the exception in a header; containers of single-record
+     * listeners hand it straight to the error handler, which dead-letters it, and batch listeners raise it
+     * for the record themselves.
+     */
+    private static Deserializer<EventPayload> eventDeserializer(EventCodecs eventCodecs) {
+        return new ErrorHandlingDeserializer<>(new EventDeserializer(eventCodecs));
+    }
+    
+    /**
+     * Pause between further attempts at a record whose processing failed
+     */
+    @Bean
+    public BackOff kafkaRetryBackOff() {
+        return new FixedBackOff(retryIntervalMs, retryAttempts);
     }
     
     /**
-     * Configure Kafka template
+     * Publishes records that still fail after their retries to the topic's dead letter topic, same partition
      */
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(KafkaTemplate<String, Object> kafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(kafkaTemplate);
+    }
+    
+    /**
+     * Error handler of every listener container: a record whose listener throws is retried, then dead-lettered
+     * and its offset committed, so one bad record cannot stall its partition
+     */
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                                 BackOff kafkaRetryBackOff) {
+        return new DefaultErrorHandler(deadLetterPublishingRecoverer, kafkaRetryBackOff);
+    }
+    
+    /**
+     * Listener container factory for batch listeners on the order and payment topics
+     * Listeners receive everything returned by one poll as a list, and offsets are committed once the
+     * whole list has been handled; a failing batch is retried by the default error handler.
+     * One consumer thread per partition: records are keyed by order ID, so each order is still handled
+     * by a single thread in produce order while different orders are processed in parallel.
+     * A whole poll must be handled within max.poll.interval.ms, so this factory is only for listeners that
+     * apply a batch in memory or with batched writes; gateway calls go through the pipeline factory.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(orderTopicPartitions);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        setMaxPollRecords(factory, batchMaxPollRecords);
+        return factory;
+    }
+    
+    /**
+     * Listener container factory for listeners that hand records off to another thread
+     * Records are acknowledged manually once their work completes, in any order; the container only
+     * commits an offset when every record before it has been acknowledged, so a crash redelivers
+     * unfinished work. Listeners take one record at a time, and a poll returns at most as many records as
+     * the payment pipeline runs at once. Work that fails off the listener thread never reaches the container
+     * error handler; the pipeline retries and dead-letters it with the same back-off and recoverer.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> pipelineKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.setBatchListener(false);
+        factory.setConcurrency(orderTopicPartitions);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        setMaxPollRecords(factory, paymentPipelineMaxInFlight);
+        return factory;
+    }
+    
+    /**
+     * Limit the records of one poll for every container of a factory
+     * Set on each container: consumer properties of the factory's own container properties are not copied
+     */
+    private static void setMaxPollRecords(ConcurrentKafkaListenerContainerFactory<Object, Object> factory, int maxPollRecords) {
+        factory.setContainerCustomizer(container -> container.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords)));
+    }
+    
+    /**
+     * Listener container factory for listeners every instance runs over the whole topic, such as user status updates
+     * Consumers have no group: listeners assign themselves every partition and start from the beginning, and no
+     * offsets are committed, so no consumer group is left behind when an instance stops.
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> broadcastKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory,
+            EventCodecs eventCodecs) {
+        Map<String, Object> props = new HashMap<>(kafkaConsumerFactory.getConfigurationProperties());
+        props.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        DefaultKafkaConsumerFactory<Object, Object> consumerFactory = new DefaultKafkaConsumerFactory<>(props);
+        ((DefaultKafkaConsumerFactory<Object, EventPayload>) (DefaultKafkaConsumerFactory<?, ?>) consumerFactory)
+                .setValueDeserializerSupplier(() -> eventDeserializer(eventCodecs));
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        return factory;
     }
     
     /**
@@ -73,8 +352,8 @@ public class KafkaConfig {
     @Bean
     public NewTopic userEventsTopic() {
         return TopicBuilder.name(userEventsTopic)
-                .partitions(3)
-                .replicas(1)
+                .partitions(userTopicPartitions)
+                .replicas(topicReplicas)
                 .build();
     }
     
@@ -84,8 +363,8 @@ public class KafkaConfig {
     @Bean
     public NewTopic userRegistrationsTopic() {
         return TopicBuilder.name(userRegistrationsTopic)
-                .partitions(3)
-                .replicas(1)
+                .partitions(userTopicPartitions)
+                .replicas(topicReplicas)
                 .build();
     }
     
@@ -95,8 +374,22 @@ public class KafkaConfig {
     @Bean
     public NewTopic userLoginsTopic() {
         return TopicBuilder.name(userLoginsTopic)
-                .partitions(3)
-                .replicas(1)
+                .partitions(userTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+    
+    /**
+     * Create user status updates topic
+     * Retained for one token lifetime, so an instance replaying it from the start on startup rebuilds
+     * exactly the token revocations that are still relevant
+     */
+    @Bean
+    public NewTopic userStatusUpdatesTopic() {
+        return TopicBuilder.name(userStatusUpdatesTopic)
+                .partitions(userTopicPartitions)
+                .replicas(topicReplicas)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(tokenLifetimeMs))
                 .build();
     }
     
@@ -106,8 +399,19 @@ public class KafkaConfig {
     @Bean
     public NewTopic orderEventsTopic() {
         return TopicBuilder.name(orderEventsTopic)
-                .partitions(3)
-                .replicas(1)
+                .partitions(orderTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+    
+    /**
+     * Create order status updates topic
+     */
+    @Bean
+    public NewTopic orderStatusUpdatesTopic() {
+        return TopicBuilder.name(orderStatusUpdatesTopic)
+                .partitions(orderTopicPartitions)
+                .replicas(topicReplicas)
                 .build();
     }
     
@@ -117,8 +421,8 @@ public class KafkaConfig {
     @Bean
     public NewTopic paymentEventsTopic() {
         return TopicBuilder.name(paymentEventsTopic)
-                .partitions(3)
-                .replicas(1)
+                .partitions(orderTopicPartitions)
+                .replicas(topicReplicas)
                 .build();
     }
     
@@ -128,8 +432,85 @@ public class KafkaConfig {
     @Bean
     public NewTopic paymentVerificationTopic() {
         return TopicBuilder.name(paymentVerificationTopic)
-                .partitions(3)
-                .replicas(1)
+                .partitions(orderTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+    
+    /**
+     * Create payment verification response topic
+     */
+    @Bean
+    public NewTopic paymentVerificationResponseTopic() {
+        return TopicBuilder.name(paymentVerificationResponseTopic)
+                .partitions(orderTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+    
+    /**
+     * Create payment status updates topic
+     */
+    @Bean
+    public NewTopic paymentStatusUpdatesTopic() {
+        return TopicBuilder.name(paymentStatusUpdatesTopic)
+                .partitions(orderTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+    
+    /**
+     * Create payment verification dead letter topic, partitioned like its source
+     */
+    @Bean
+    public NewTopic paymentVerificationDltTopic() {
+        return TopicBuilder.name(paymentVerificationTopic + DLT_SUFFIX)
+                .partitions(orderTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+    
+    /**
+     * Create payment verification response dead letter topic, partitioned like its source
+     */
+    @Bean
+    public NewTopic paymentVerificationResponseDltTopic() {
+        return TopicBuilder.name(paymentVerificationResponseTopic + DLT_SUFFIX)
+                .partitions(orderTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+    
+    /**
+     * Create payment status updates dead letter topic, partitioned like its source
+     */
+    @Bean
+    public NewTopic paymentStatusUpdatesDltTopic() {
+        return TopicBuilder.name(paymentStatusUpdatesTopic + DLT_SUFFIX)
+                .partitions(orderTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+    
+    /**
+     * Create user status updates dead letter topic, partitioned like its source
+     */
+    @Bean
+    public NewTopic userStatusUpdatesDltTopic() {
+        return TopicBuilder.name(userStatusUpdatesTopic + DLT_SUFFIX)
+                .partitions(userTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+    
+    /**
+     * Create payment refunds topic
+     */
+    @Bean
+    public NewTopic paymentRefundsTopic() {
+        return TopicBuilder.name(paymentRefundsTopic)
+                .partitions(orderTopicPartitions)
+                .replicas(topicReplicas)
                 .build();
     }
     
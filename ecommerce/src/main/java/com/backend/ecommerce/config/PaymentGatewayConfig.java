@@ -0,0 +1,37 @@
+package com.backend.ecommerce.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration of the executor that runs payment gateway calls
+ */
+@Configuration
+public class PaymentGatewayConfig {
+
+    @Value("${payment.gateway.max-concurrency:32}")
+    private int maxConcurrency;
+
+    @Value("${payment.gateway.queue-capacity:256}")
+    private int queueCapacity;
+
+    /**
+     * Bounded pool for gateway round trips
+     * At most max-concurrency calls are in flight; further calls queue up to queue-capacity and
+     * are rejected beyond that, instead of piling up request threads
+     */
+    @Bean(name = "paymentGatewayExecutor")
+    public ThreadPoolTaskExecutor paymentGatewayExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("payment-gateway-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
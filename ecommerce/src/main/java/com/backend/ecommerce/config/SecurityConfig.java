@@ -1,13 +1,27 @@
 package com.backend.ecommerce.config;
 
+import com.backend.ecommerce.service.JwtService;
+import com.backend.ecommerce.service.TokenRevocationList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Security configuration for the ecommerce application
@@ -17,17 +31,59 @@ import org.springframework.security.web.SecurityFilterChain;
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
+
+    private static final int CALIBRATION_SAMPLES = 3;
+
+    @Value("${security.password.encoding.algorithm:bcrypt}")
+    private String passwordAlgorithm;
+
+    /** Fixed BCrypt cost; 0 calibrates it at startup */
+    @Value("${security.password.bcrypt.cost:0}")
+    private int bcryptCost;
+
+    @Value("${security.password.bcrypt.target-latency:100ms}")
+    private Duration bcryptTargetLatency;
+
+    @Value("${security.password.bcrypt.min-cost:10}")
+    private int bcryptMinCost;
+
+    @Value("${security.password.bcrypt.max-cost:16}")
+    private int bcryptMaxCost;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
     /**
      * Password encoder bean for hashing passwords
-     * @return BCryptPasswordEncoder instance
+     * New hashes use the configured algorithm and carry its ID as a prefix; hashes without a prefix are
+     * BCrypt hashes from before the prefix was introduced. Unless a cost is configured, the BCrypt cost is
+     * calibrated at startup to the highest one verifying within the target latency on this host.
+     * @return DelegatingPasswordEncoder instance
      */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int cost = bcryptCost > 0
+                ? bcryptCost
+                : new BCryptCostCalibrator(CALIBRATION_SAMPLES).calibrate(bcryptTargetLatency, bcryptMinCost, bcryptMaxCost);
+        logger.info("Hashing new passwords with {} (BCrypt cost {}{})", passwordAlgorithm, cost,
+                bcryptCost > 0 ? ", configured" : ", calibrated for " + bcryptTargetLatency.toMillis() + " ms");
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(cost);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(passwordAlgorithm, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 
     /**
      * Security filter chain configuration
+     * Requests are authenticated per request from their bearer token, without an HTTP session
      * @param http HttpSecurity object
      * @return SecurityFilterChain
      * @throws Exception if configuration fails
@@ -36,6 +92,9 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
             .csrf(AbstractHttpConfigurer::disable) // Disable CSRF for API endpoints
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(new JwtAuthenticationFilter(jwtService, tokenRevocationList),
+                    UsernamePasswordAuthenticationFilter.class)
             .authorizeHttpRequests(authz -> authz
                 // Public endpoints for development
                 .requestMatchers("/").permitAll()
@@ -61,6 +120,9 @@ public class SecurityConfig {
                 .requestMatchers("/api/test/**").permitAll()
                 .requestMatchers("/api/health/**").permitAll()
                 
+                // Admin endpoints
+                .requestMatchers("/api/orders/admin/**").hasRole("ADMIN")
+                
                 // Protected endpoints - require authentication
                 .requestMatchers("/api/users/**").authenticated()
                 .requestMatchers("/api/cart/**").authenticated()
@@ -0,0 +1,70 @@
+package com.backend.ecommerce.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration of the threads that run blocking background work
+ *
+ * With spring.threads.virtual.enabled=true on Java 21+, Spring Boot already runs Tomcat request handling
+ * and @KafkaListener containers on virtual threads; the executors defined here follow the same switch.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    @Value("${payment.pipeline.max-in-flight:32}")
+    private int paymentPipelineMaxInFlight;
+
+    @Value("${security.password.hashing.pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int passwordHashingPoolSize;
+
+    @Value("${security.password.hashing.queue-capacity:64}")
+    private int passwordHashingQueueCapacity;
+
+    /**
+     * Executor for payment verification requests taken off the listener threads
+     * Sized to the pipeline's in-flight limit, which is enforced by the pipeline itself
+     */
+    @Bean(name = "paymentPipelineExecutor")
+    public AsyncTaskExecutor paymentPipelineExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("payment-pipeline-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(paymentPipelineMaxInFlight);
+        executor.setMaxPoolSize(paymentPipelineMaxInFlight);
+        executor.setThreadNamePrefix("payment-pipeline-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for password hashing, kept off the request threads
+     * BCrypt is CPU-bound, so this is a fixed pool of platform threads sized to the CPUs even in
+     * virtual-thread mode. Its queue is bounded and rejects further work once full.
+     */
+    @Bean(name = "passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor(MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(passwordHashingPoolSize);
+        executor.setMaxPoolSize(passwordHashingPoolSize);
+        executor.setQueueCapacity(passwordHashingQueueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        executor.initialize();
+        ExecutorServiceMetrics.monitor(meterRegistry, executor.getThreadPoolExecutor(), "password-hashing");
+        return executor;
+    }
+}
@@ -1,6 +1,8 @@
 package com.backend.ecommerce.controller;
 
+import com.backend.ecommerce.dto.ProductSearchCriteria;
 import com.backend.ecommerce.service.CatalogService;
+import com.backend.ecommerce.service.ProductDetailCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,8 +15,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -34,6 +38,9 @@ public class CatalogController {
     @Autowired
     private CatalogService catalogService;
 
+    @Autowired
+    private ProductDetailCache productDetailCache;
+
     /**
      * Get products with pagination and filtering
      */
@@ -67,15 +74,42 @@ public class CatalogController {
             @RequestParam(required = false) BigDecimal minPrice,
             @Parameter(description = "Maximum price", example = "1000.00")
             @RequestParam(required = false) BigDecimal maxPrice,
+            @Parameter(description = "Brand to filter by", example = "Apple")
+            @RequestParam(required = false) String brand,
+            @Parameter(description = "Minimum average rating", example = "4.0")
+            @RequestParam(required = false) Double minRating,
+            @Parameter(description = "Minimum discount percentage", example = "10")
+            @RequestParam(required = false) Double minDiscount,
+            @Parameter(description = "Only products in stock (true) or out of stock (false)", example = "true")
+            @RequestParam(required = false) Boolean inStock,
             @Parameter(description = "Sort field", example = "name")
             @RequestParam(defaultValue = "name") String sortBy,
             @Parameter(description = "Sort direction", example = "asc")
-            @RequestParam(defaultValue = "asc") String sortDir) {
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @Parameter(description = "Continuation token for keyset pagination; pass an empty value for the first page", example = "")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Include totalElements in keyset pagination responses", example = "false")
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         
-        Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
-        Pageable pageable = PageRequest.of(page, size, sort);
+        Sort.Direction direction = Sort.Direction.fromOptionalString(sortDir).orElse(Sort.Direction.ASC);
         
-        Map<String, Object> response = catalogService.getProducts(page, size, categoryId, searchTerm, minPrice != null ? minPrice.doubleValue() : null, maxPrice != null ? maxPrice.doubleValue() : null);
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setCategory(categoryId);
+        criteria.setSearch(searchTerm);
+        criteria.setMinPrice(minPrice);
+        criteria.setMaxPrice(maxPrice);
+        criteria.setBrand(brand);
+        criteria.setMinRating(minRating);
+        criteria.setMinDiscount(minDiscount);
+        criteria.setInStock(inStock);
+        
+        Map<String, Object> response;
+        if (cursor != null) {
+            response = catalogService.scrollProducts(criteria, sortBy, direction, cursor, size, includeTotal);
+        } else {
+            Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+            response = catalogService.getProducts(criteria, pageable);
+        }
         
         if ((Boolean) response.get("success")) {
             return ResponseEntity.ok(response);
@@ -86,11 +120,13 @@ public class CatalogController {
 
     /**
      * Get product by ID
+     * Served from pre-serialized JSON with a strong ETag; a matching If-None-Match gets 304
      */
     @GetMapping("/products/{productId}")
     @Operation(
         summary = "Get product by ID",
-        description = "Retrieves detailed information about a specific product"
+        description = "Retrieves detailed information about a specific product. The response carries an ETag; "
+                + "requests with a matching If-None-Match header get 304 Not Modified without a body"
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -103,23 +139,35 @@ public class CatalogController {
                 )
             )
         ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Product unchanged since the ETag given in If-None-Match"
+        ),
         @ApiResponse(
             responseCode = "404",
             description = "Product not found"
         )
     })
-    public ResponseEntity<Map<String, Object>> getProductById(
+    public ResponseEntity<byte[]> getProductById(
             @Parameter(description = "Product ID", example = "product-uuid")
-            @PathVariable String productId) {
+            @PathVariable String productId,
+            WebRequest webRequest) {
         
-        Optional<Map<String, Object>> productOptional = catalogService.getProductById(productId);
+        Optional<ProductDetailCache.Detail> detailOptional = productDetailCache.get(productId);
         
-        if (productOptional.isPresent()) {
-            Map<String, Object> response = productOptional.get();
-            return ResponseEntity.ok(response);
-        } else {
+        if (detailOptional.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
+        
+        ProductDetailCache.Detail detail = detailOptional.get();
+        // Sets the 304 status and ETag header itself when If-None-Match matches
+        if (webRequest.checkNotModified(detail.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(detail.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(detail.body());
     }
 
     /**
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -30,7 +31,15 @@ public class OrderController {
             @RequestParam String userId,
             @RequestBody Map<String, Object> orderData) {
         
-        Map<String, Object> response = orderService.createOrder(userId, orderData);
+        Map<String, Object> response;
+        try {
+            response = orderService.createOrder(userId, orderData);
+        } catch (OrderService.OutOfStockException e) {
+            response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Insufficient stock for one or more items");
+            response.put("failedItems", e.getFailedItems());
+        }
         
         if ((Boolean) response.get("success")) {
             return ResponseEntity.status(201).body(response);
@@ -84,15 +93,22 @@ public class OrderController {
      * @param userId User ID (from authentication)
      * @param page Page number (default: 0)
      * @param size Page size (default: 20)
+     * @param cursor Keyset continuation token (optional; empty for the first page)
+     * @param includeTotal Whether keyset responses include totalElements (default: false)
      * @return Paginated list of orders
      */
     @GetMapping("/user/{userId}")
     public ResponseEntity<Map<String, Object>> getUserOrders(
             @PathVariable String userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         
-        Map<String, Object> response = orderService.getUserOrders(userId, page, size);
+        // A cursor parameter (empty for the first page) switches to keyset pagination
+        Map<String, Object> response = cursor != null
+                ? orderService.scrollUserOrders(userId, cursor, size, includeTotal)
+                : orderService.getUserOrders(userId, page, size);
         
         if ((Boolean) response.get("success")) {
             return ResponseEntity.ok(response);
@@ -313,6 +329,17 @@ public class OrderController {
         }
     }
 
+    /**
+     * Recompute every user's order statistics from the orders table (admin)
+     * Restricted to the ADMIN role, like every /api/orders/admin endpoint
+     * @return Number of users with statistics
+     */
+    @PostMapping("/admin/stats/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildUserOrderStats() {
+        Map<String, Object> response = orderService.rebuildUserOrderStats();
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Get all orders with filtering and pagination (admin)
      * @param page Page number (default: 0)
@@ -35,6 +35,9 @@ public class PaymentController {
         
         if ((Boolean) response.get("success")) {
             return ResponseEntity.ok(response);
+        } else if ("UNKNOWN".equals(response.get("status"))) {
+            // The gateway timed out; the outcome is reconciled later and can be polled at the status URL
+            return ResponseEntity.accepted().body(response);
         } else {
             return ResponseEntity.badRequest().body(response);
         }
@@ -93,14 +96,20 @@ public class PaymentController {
 
     /**
      * Get payment history for user with pagination
+     * Supports keyset pagination through the cursor parameter
      */
     @GetMapping("/user/{userId}/history")
     public ResponseEntity<Map<String, Object>> getUserPaymentHistory(
             @PathVariable String userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         
-        Map<String, Object> response = paymentService.getUserPaymentHistory(userId, page, size);
+        // A cursor parameter (empty for the first page) switches to keyset pagination
+        Map<String, Object> response = cursor != null
+                ? paymentService.scrollUserPaymentHistory(userId, cursor, size, includeTotal)
+                : paymentService.getUserPaymentHistory(userId, page, size);
         
         if ((Boolean) response.get("success")) {
             return ResponseEntity.ok(response);
@@ -13,8 +13,10 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
@@ -104,13 +106,29 @@ public class UserController {
                     value = "{\"success\": false, \"error\": \"Invalid credentials\"}"
                 )
             )
+        ),
+        @ApiResponse(
+            responseCode = "429",
+            description = "Too many failed attempts for the account or client; see Retry-After"
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Too many logins in progress; see Retry-After"
         )
     })
-    public ResponseEntity<Map<String, Object>> loginUser(@Valid @RequestBody UserLoginDto loginDto) {
-        Map<String, Object> response = userService.loginUser(loginDto);
+    public ResponseEntity<Map<String, Object>> loginUser(@Valid @RequestBody UserLoginDto loginDto,
+                                                         HttpServletRequest request) {
+        // Resolved from X-Forwarded-For by Tomcat when the connection comes from a trusted proxy (TRUSTED_PROXIES)
+        Map<String, Object> response = userService.loginUser(loginDto, request.getRemoteAddr());
         
         if ((Boolean) response.get("success")) {
             return ResponseEntity.ok(response);
+        } else if (response.containsKey("retryAfterSeconds")) {
+            HttpStatus status = Boolean.TRUE.equals(response.get("overloaded"))
+                    ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.TOO_MANY_REQUESTS;
+            return ResponseEntity.status(status)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(response.get("retryAfterSeconds")))
+                    .body(response);
         } else {
             return ResponseEntity.status(401).body(response);
         }
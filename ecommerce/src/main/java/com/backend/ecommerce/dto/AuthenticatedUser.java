@@ -0,0 +1,48 @@
+package com.backend.ecommerce.dto;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Principal of a request authenticated with a JWT, built from the token's claims
+ */
+public class AuthenticatedUser implements AuthenticatedPrincipal {
+
+    private final String userId;
+    private final String email;
+    private final String role;
+
+    public AuthenticatedUser(String userId, String email, String role) {
+        this.userId = userId;
+        this.email = email;
+        this.role = role;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    /**
+     * Name of the principal, the user's email as in the token subject
+     */
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser{" +
+                "userId='" + userId + '\'' +
+                ", email='" + email + '\'' +
+                ", role='" + role + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,146 @@
+package com.backend.ecommerce.dto;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opaque continuation token for keyset (seek) pagination
+ * Encodes the sort key and ID of the last row returned, so the next page starts right after it
+ * instead of skipping rows with OFFSET
+ */
+public final class PageCursor {
+
+    private static final String VERSION = "1";
+
+    // ASCII unit separator; cannot appear in sort field names and is not expected in values
+    private static final String SEPARATOR = "\u001F";
+
+    private static final String ID_FIELD = "id";
+
+    private final String sortField;
+    private final Sort.Direction direction;
+    private final String sortValue;
+    private final String id;
+
+    private PageCursor(String sortField, Sort.Direction direction, String sortValue, String id) {
+        this.sortField = sortField;
+        this.direction = direction;
+        this.sortValue = sortValue;
+        this.id = id;
+    }
+
+    /**
+     * Sort used for keyset pagination: the requested order with the ID as tie-breaker
+     * @param sortField Sort field
+     * @param direction Sort direction
+     * @return Sort on (sortField, id)
+     */
+    public static Sort keysetSort(String sortField, Sort.Direction direction) {
+        return Sort.by(new Sort.Order(direction, sortField), new Sort.Order(direction, ID_FIELD));
+    }
+
+    /**
+     * Turn a continuation token into a scroll position
+     * @param token Token from a previous response, or null/blank for the first page
+     * @param sortField Sort field of the current request
+     * @param direction Sort direction of the current request
+     * @param sortType Java type of the sort field
+     * @return Scroll position to continue from
+     * @throws IllegalArgumentException if the token is malformed or was issued for a different sort
+     */
+    public static ScrollPosition toScrollPosition(String token, String sortField, Sort.Direction direction,
+                                                  Class<?> sortType) {
+        if (token == null || token.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        PageCursor cursor = decode(token);
+        if (!cursor.sortField.equals(sortField) || cursor.direction != direction) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(sortField, parseValue(cursor.sortValue, sortType));
+        keys.put(ID_FIELD, cursor.id);
+        return ScrollPosition.forward(keys);
+    }
+
+    /**
+     * Build the token pointing after the last element of a window
+     * @param window Window returned by a keyset query
+     * @param sortField Sort field of the query
+     * @param direction Sort direction of the query
+     * @return Token for the next page, or null if there is none
+     */
+    public static String nextToken(Window<?> window, String sortField, Sort.Direction direction) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+
+        KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+        Map<String, Object> keys = position.getKeys();
+        return after(sortField, direction, keys.get(sortField), keys.get(ID_FIELD));
+    }
+
+    /**
+     * Build the token pointing after a given row, for pages assembled outside a single keyset query
+     * @param sortField Sort field of the query
+     * @param direction Sort direction of the query
+     * @param sortValue Sort field value of the last row returned
+     * @param id ID of the last row returned
+     * @return Token for the next page
+     */
+    public static String after(String sortField, Sort.Direction direction, Object sortValue, Object id) {
+        return new PageCursor(sortField, direction, String.valueOf(sortValue), String.valueOf(id)).encode();
+    }
+
+    private String encode() {
+        String raw = String.join(SEPARATOR, VERSION, sortField, direction.name(), sortValue, id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PageCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        String[] parts = raw.split(SEPARATOR, -1);
+        if (parts.length != 5 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new PageCursor(parts[1], Sort.Direction.fromString(parts[2]), parts[3], parts[4]);
+    }
+
+    private static Object parseValue(String value, Class<?> type) {
+        try {
+            if (type == String.class) {
+                return value;
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(value);
+            } else if (type == Integer.class) {
+                return Integer.valueOf(value);
+            } else if (type == Long.class) {
+                return Long.valueOf(value);
+            } else if (type == Double.class) {
+                return Double.valueOf(value);
+            } else if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        throw new IllegalArgumentException("Unsupported cursor sort type: " + type.getSimpleName());
+    }
+}
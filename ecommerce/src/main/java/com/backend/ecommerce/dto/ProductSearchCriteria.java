@@ -0,0 +1,127 @@
+package com.backend.ecommerce.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO holding the catalog filters that can be combined in a single product query
+ * Every field is optional; unset fields do not constrain the result
+ */
+public class ProductSearchCriteria {
+
+    private String category;
+
+    private String brand;
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    private Double minRating;
+
+    private Double minDiscount;
+
+    private Boolean inStock;
+
+    private String search;
+
+    private boolean activeOnly = true;
+
+    // Default constructor
+    public ProductSearchCriteria() {}
+
+    // Getters and Setters
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Double getMinRating() {
+        return minRating;
+    }
+
+    public void setMinRating(Double minRating) {
+        this.minRating = minRating;
+    }
+
+    public Double getMinDiscount() {
+        return minDiscount;
+    }
+
+    public void setMinDiscount(Double minDiscount) {
+        this.minDiscount = minDiscount;
+    }
+
+    public Boolean getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(Boolean inStock) {
+        this.inStock = inStock;
+    }
+
+    public String getSearch() {
+        return search;
+    }
+
+    public void setSearch(String search) {
+        this.search = search;
+    }
+
+    public boolean isActiveOnly() {
+        return activeOnly;
+    }
+
+    public void setActiveOnly(boolean activeOnly) {
+        this.activeOnly = activeOnly;
+    }
+
+    /**
+     * Check if a free text search term is present
+     * @return true if search is non-blank
+     */
+    public boolean hasSearch() {
+        return search != null && !search.trim().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ProductSearchCriteria{" +
+                "category='" + category + '\'' +
+                ", brand='" + brand + '\'' +
+                ", minPrice=" + minPrice +
+                ", maxPrice=" + maxPrice +
+                ", minRating=" + minRating +
+                ", minDiscount=" + minDiscount +
+                ", inStock=" + inStock +
+                ", search='" + search + '\'' +
+                ", activeOnly=" + activeOnly +
+                '}';
+    }
+}
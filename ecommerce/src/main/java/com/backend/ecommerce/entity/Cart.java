@@ -11,6 +11,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "carts")
+@NamedEntityGraph(name = "Cart.items", attributeNodes = @NamedAttributeNode("items"))
 public class Cart {
     
     @Id
@@ -20,7 +21,7 @@ public class Cart {
     @Column(name = "user_id", nullable = false)
     private String userId;
     
-    @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<CartItem> items = new ArrayList<>();
     
     @Column(name = "total_amount", precision = 10, scale = 2)
@@ -0,0 +1,72 @@
+package com.backend.ecommerce.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock change accepted by the inventory ledger but not yet applied to the products table
+ * Written before the change is acknowledged and deleted in the transaction that applies it, so an
+ * accepted release or manual adjustment survives a crash and is replayed on startup.
+ */
+@Entity
+@Table(name = "inventory_adjustments")
+public class InventoryAdjustment {
+
+    // Sequence order is acceptance order
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private String productId;
+
+    @Column(name = "delta", nullable = false)
+    private Integer delta;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Default constructor
+    public InventoryAdjustment() {}
+
+    // Constructor with stock change
+    public InventoryAdjustment(String productId, Integer delta) {
+        this.productId = productId;
+        this.delta = delta;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public Integer getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Integer delta) {
+        this.delta = delta;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -10,7 +10,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_stock_committed", columnList = "stock_committed"))
+@NamedEntityGraph(name = "Order.items", attributeNodes = @NamedAttributeNode("items"))
 public class Order {
     
     @Id
@@ -23,7 +24,7 @@ public class Order {
     @Column(name = "user_id", nullable = false)
     private String userId;
     
-    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<OrderItem> items = new ArrayList<>();
     
     @Column(name = "subtotal", precision = 10, scale = 2, nullable = false)
@@ -80,6 +81,10 @@ public class Order {
     @Column(name = "notes", columnDefinition = "TEXT")
     private String notes;
     
+    // False while the order's inventory ledger reservation has not been applied to the products table
+    @Column(name = "stock_committed")
+    private Boolean stockCommitted = true;
+    
     @CreationTimestamp
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -265,6 +270,14 @@ public class Order {
         this.notes = notes;
     }
     
+    public Boolean getStockCommitted() {
+        return stockCommitted;
+    }
+    
+    public void setStockCommitted(Boolean stockCommitted) {
+        this.stockCommitted = stockCommitted;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
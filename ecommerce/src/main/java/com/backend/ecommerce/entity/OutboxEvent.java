@@ -0,0 +1,141 @@
+package com.backend.ecommerce.entity;
+
+import com.backend.ecommerce.event.serialization.EncodedEvent;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kafka message waiting to be published
+ * Written in the same transaction as the change it announces and deleted by the outbox relay once the
+ * broker has acknowledged it, so an event exists if and only if its transaction committed.
+ * While a relay is sending it, the row carries that relay's claim; an expired claim makes it pending again.
+ */
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+
+    // Sequence order is publish order
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "topic", nullable = false)
+    private String topic;
+
+    @Column(name = "message_key")
+    private String messageKey;
+
+    // Encoded as configured at the time the event was written
+    @Lob
+    @Column(name = "payload", nullable = false)
+    private byte[] payload;
+
+    @Column(name = "payload_format", nullable = false, length = 16)
+    private String payloadFormat;
+
+    @Column(name = "schema_version")
+    private Integer schemaVersion;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "claimed_by", length = 36)
+    private String claimedBy;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    // Default constructor
+    public OutboxEvent() {}
+
+    // Constructor with encoded message
+    public OutboxEvent(String topic, String messageKey, EncodedEvent event) {
+        this.topic = topic;
+        this.messageKey = messageKey;
+        this.payload = event.getData();
+        this.payloadFormat = event.getFormat();
+        this.schemaVersion = event.getSchemaVersion();
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public void setMessageKey(String messageKey) {
+        this.messageKey = messageKey;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public String getPayloadFormat() {
+        return payloadFormat;
+    }
+
+    public void setPayloadFormat(String payloadFormat) {
+        this.payloadFormat = payloadFormat;
+    }
+
+    public Integer getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    public void setSchemaVersion(Integer schemaVersion) {
+        this.schemaVersion = schemaVersion;
+    }
+
+    /**
+     * Stored message, ready for the event serializer
+     */
+    public EncodedEvent toEncodedEvent() {
+        return new EncodedEvent(payload, payloadFormat, schemaVersion);
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    public LocalDateTime getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(LocalDateTime claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+}
@@ -303,6 +303,6 @@ public class Payment {
     }
     
     public enum PaymentStatus {
-        PENDING, PROCESSING, PROCESSED, SUCCESSFUL, FAILED, REFUNDED, PARTIALLY_REFUNDED, CANCELLED
+        PENDING, PROCESSING, PROCESSED, SUCCESSFUL, FAILED, REFUNDED, PARTIALLY_REFUNDED, CANCELLED, UNKNOWN
     }
 }
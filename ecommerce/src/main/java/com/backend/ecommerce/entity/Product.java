@@ -2,6 +2,7 @@ package com.backend.ecommerce.entity;
 
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -14,6 +15,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "products")
+@DynamicUpdate
 public class Product {
     
     @Id
@@ -0,0 +1,42 @@
+package com.backend.ecommerce.event;
+
+import java.util.Locale;
+
+/**
+ * Kafka record keys for events
+ *
+ * Every order and payment topic is keyed by order ID, so all events of one order land on the same
+ * partition and are consumed in the order they were produced, whichever listener thread owns that
+ * partition. Events without an order fall back to the user ID. User events are keyed by user ID, or by
+ * the normalized email address before the user has an ID.
+ */
+public final class EventKeys {
+
+    private EventKeys() {
+    }
+
+    /**
+     * Key of an event on an order or payment topic
+     * @param orderId Order ID
+     * @param userId User ID, used when the event has no order
+     * @return Record key
+     */
+    public static String forOrder(String orderId, String userId) {
+        return orderId != null ? orderId : userId;
+    }
+
+    public static String of(OrderEvent event) {
+        return forOrder(event.getOrderId(), event.getUserId());
+    }
+
+    public static String of(PaymentEvent event) {
+        return forOrder(event.getOrderId(), event.getUserId());
+    }
+
+    public static String of(UserEvent event) {
+        if (event.getUserId() != null) {
+            return event.getUserId();
+        }
+        return event.getUserEmail() != null ? event.getUserEmail().trim().toLowerCase(Locale.ROOT) : null;
+    }
+}
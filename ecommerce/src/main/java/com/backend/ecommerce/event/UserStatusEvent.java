@@ -0,0 +1,64 @@
+package com.backend.ecommerce.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Event sent when a user account is registered or changed in a way that invalidates the tokens issued before it
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserStatusEvent extends UserEvent {
+
+    private UserStatus status;
+
+    /** Epoch milliseconds of the change; unless it is a registration or activation, tokens issued before its second are no longer accepted */
+    private long changedAt;
+
+    // Default constructor
+    public UserStatusEvent() {
+        super("USER_STATUS_CHANGED", null, null);
+    }
+
+    // Constructor with status details
+    public UserStatusEvent(String userId, String userEmail, UserStatus status, long changedAt) {
+        super("USER_STATUS_CHANGED", userId, userEmail);
+        this.status = status;
+        this.changedAt = changedAt;
+    }
+
+    // Getters and Setters
+    public UserStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(UserStatus status) {
+        this.status = status;
+    }
+
+    public long getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(long changedAt) {
+        this.changedAt = changedAt;
+    }
+
+    /**
+     * Account changes published on the user status topic
+     */
+    public enum UserStatus {
+        REGISTERED, ACTIVATED, DEACTIVATED, DELETED, CREDENTIALS_CHANGED
+    }
+
+    @Override
+    public String toString() {
+        return "UserStatusEvent{" +
+                "eventId='" + getEventId() + '\'' +
+                ", eventType='" + getEventType() + '\'' +
+                ", userId='" + getUserId() + '\'' +
+                ", userEmail='" + getUserEmail() + '\'' +
+                ", status=" + status +
+                ", changedAt=" + changedAt +
+                ", timestamp=" + getTimestamp() +
+                '}';
+    }
+}
@@ -0,0 +1,166 @@
+package com.backend.ecommerce.event.serialization;
+
+import com.backend.ecommerce.event.OrderEvent;
+import com.backend.ecommerce.event.PaymentEvent;
+import com.backend.ecommerce.event.UserLoginEvent;
+import com.backend.ecommerce.event.UserRegistrationEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Avro binary payloads with versioned schemas
+ *
+ * Schemas live in classpath:avro/&lt;EventClass&gt;.v&lt;N&gt;.avsc. Events are always written with the highest
+ * version, and the version goes into the {@link EventCodecs#SCHEMA_VERSION_HEADER} header. Readers resolve
+ * any older writer version against the current schema, so a new version may add fields with defaults
+ * without breaking consumers that have not been upgraded yet.
+ */
+public class AvroEventCodec implements EventCodec {
+
+    public static final String FORMAT = "avro";
+
+    private final Map<Class<?>, Binding<?>> bindings = new HashMap<>();
+
+    public AvroEventCodec(ObjectMapper objectMapper) {
+        AvroEventMappings mappings = new AvroEventMappings(objectMapper);
+        register(OrderEvent.class, mappings::toRecord, mappings::toOrderEvent);
+        register(PaymentEvent.class, mappings::toRecord, mappings::toPaymentEvent);
+        register(UserLoginEvent.class, mappings::toRecord, mappings::toUserLoginEvent);
+        register(UserRegistrationEvent.class, mappings::toRecord, mappings::toUserRegistrationEvent);
+    }
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    @Override
+    public boolean supports(Class<?> type) {
+        return bindings.containsKey(type);
+    }
+
+    @Override
+    public EncodedEvent encode(Object event) {
+        Binding<?> binding = binding(event.getClass());
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+            binding.writer.write(binding.encode(event), encoder);
+            encoder.flush();
+            return new EncodedEvent(out.toByteArray(), FORMAT, binding.currentVersion);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to serialize " + event.getClass().getSimpleName() + " as Avro", e);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Integer schemaVersion, Class<T> type) {
+        Binding<?> binding = binding(type);
+        int version = schemaVersion != null ? schemaVersion : binding.currentVersion;
+        try {
+            GenericRecord record = binding.reader(version).read(null, DecoderFactory.get().binaryDecoder(data, null));
+            return type.cast(binding.decoder.apply(record));
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to deserialize " + type.getSimpleName() + " v" + version + " from Avro", e);
+        }
+    }
+
+    /**
+     * Current schema of an event class
+     * @param type Event class
+     * @return Schema events are written with
+     */
+    public Schema currentSchema(Class<?> type) {
+        return binding(type).currentSchema;
+    }
+
+    private Binding<?> binding(Class<?> type) {
+        Binding<?> binding = bindings.get(type);
+        if (binding == null) {
+            throw new SerializationException("No Avro schema for " + type.getName());
+        }
+        return binding;
+    }
+
+    private <T> void register(Class<T> type, BiFunction<T, Schema, GenericRecord> encoder,
+                              Function<GenericRecord, T> decoder) {
+        bindings.put(type, new Binding<>(type, loadSchemas(type), encoder, decoder));
+    }
+
+    private static NavigableMap<Integer, Schema> loadSchemas(Class<?> type) {
+        NavigableMap<Integer, Schema> schemas = new TreeMap<>();
+        for (int version = 1; ; version++) {
+            String resource = "avro/" + type.getSimpleName() + ".v" + version + ".avsc";
+            try (InputStream in = AvroEventCodec.class.getClassLoader().getResourceAsStream(resource)) {
+                if (in == null) {
+                    break;
+                }
+                schemas.put(version, new Schema.Parser().parse(in));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to load Avro schema " + resource, e);
+            }
+        }
+        if (schemas.isEmpty()) {
+            throw new IllegalStateException("No Avro schema found for " + type.getSimpleName());
+        }
+        return schemas;
+    }
+
+    /**
+     * Schemas and record mapping of one event class
+     */
+    private static final class Binding<T> {
+
+        private final Class<T> type;
+        private final NavigableMap<Integer, Schema> schemas;
+        private final int currentVersion;
+        private final Schema currentSchema;
+        private final GenericDatumWriter<GenericRecord> writer;
+        private final Map<Integer, GenericDatumReader<GenericRecord>> readers = new ConcurrentHashMap<>();
+        private final BiFunction<T, Schema, GenericRecord> encoder;
+        private final Function<GenericRecord, T> decoder;
+
+        private Binding(Class<T> type, NavigableMap<Integer, Schema> schemas,
+                        BiFunction<T, Schema, GenericRecord> encoder, Function<GenericRecord, T> decoder) {
+            this.type = type;
+            this.schemas = schemas;
+            this.currentVersion = schemas.lastKey();
+            this.currentSchema = schemas.lastEntry().getValue();
+            this.writer = new GenericDatumWriter<>(currentSchema);
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+
+        private GenericRecord encode(Object event) {
+            return encoder.apply(type.cast(event), currentSchema);
+        }
+
+        private GenericDatumReader<GenericRecord> reader(int version) {
+            return readers.computeIfAbsent(version, v -> {
+                Schema writerSchema = schemas.get(v);
+                if (writerSchema == null) {
+                    throw new SerializationException("Unknown " + type.getSimpleName() + " schema version " + v);
+                }
+                return new GenericDatumReader<>(writerSchema, currentSchema);
+            });
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.backend.ecommerce.event.serialization;
+
+import com.backend.ecommerce.event.OrderEvent;
+import com.backend.ecommerce.event.PaymentEvent;
+import com.backend.ecommerce.event.UserEvent;
+import com.backend.ecommerce.event.UserLoginEvent;
+import com.backend.ecommerce.event.UserRegistrationEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field-by-field mapping between event classes and Avro records
+ *
+ * Amounts are written as unscaled bytes plus scale, timestamps as milliseconds and enums by symbol.
+ * Metadata values can be any JSON value, so each one is stored as its JSON text.
+ */
+class AvroEventMappings {
+
+    private final ObjectMapper objectMapper;
+
+    AvroEventMappings(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    GenericRecord toRecord(OrderEvent event, Schema schema) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("eventId", event.getEventId());
+        record.put("eventType", event.getEventType());
+        record.put("orderId", event.getOrderId());
+        record.put("orderNumber", event.getOrderNumber());
+        record.put("userId", event.getUserId());
+        record.put("userEmail", event.getUserEmail());
+        record.put("status", symbol(schema, "status", event.getStatus()));
+        record.put("paymentStatus", symbol(schema, "paymentStatus", event.getPaymentStatus()));
+        record.put("totalAmount", decimal(schema, "totalAmount", event.getTotalAmount()));
+        record.put("paymentTransactionId", event.getPaymentTransactionId());
+        record.put("trackingNumber", event.getTrackingNumber());
+        if (event.getItems() != null) {
+            Schema itemSchema = branch(schema, "items").getElementType();
+            List<GenericRecord> items = new ArrayList<>(event.getItems().size());
+            for (OrderEvent.OrderItemEvent item : event.getItems()) {
+                GenericRecord itemRecord = new GenericData.Record(itemSchema);
+                itemRecord.put("productId", item.getProductId());
+                itemRecord.put("productName", item.getProductName());
+                itemRecord.put("quantity", item.getQuantity());
+                itemRecord.put("unitPrice", decimal(itemSchema, "unitPrice", item.getUnitPrice()));
+                itemRecord.put("subtotal", decimal(itemSchema, "subtotal", item.getSubtotal()));
+                items.add(itemRecord);
+            }
+            record.put("items", items);
+        }
+        record.put("metadata", metadata(event.getMetadata()));
+        record.put("timestamp", millis(event.getTimestamp()));
+        record.put("createdAt", millis(event.getCreatedAt()));
+        return record;
+    }
+
+    OrderEvent toOrderEvent(GenericRecord record) {
+        OrderEvent event = new OrderEvent();
+        event.setEventId(string(record.get("eventId")));
+        event.setEventType(string(record.get("eventType")));
+        event.setOrderId(string(record.get("orderId")));
+        event.setOrderNumber(string(record.get("orderNumber")));
+        event.setUserId(string(record.get("userId")));
+        event.setUserEmail(string(record.get("userEmail")));
+        event.setStatus(enumValue(OrderEvent.OrderStatus.class, record.get("status")));
+        event.setPaymentStatus(enumValue(OrderEvent.PaymentStatus.class, record.get("paymentStatus")));
+        event.setTotalAmount(decimal(record.get("totalAmount")));
+        event.setPaymentTransactionId(string(record.get("paymentTransactionId")));
+        event.setTrackingNumber(string(record.get("trackingNumber")));
+        Object items = record.get("items");
+        if (items != null) {
+            List<OrderEvent.OrderItemEvent> itemEvents = new ArrayList<>();
+            for (Object item : (List<?>) items) {
+                GenericRecord itemRecord = (GenericRecord) item;
+                itemEvents.add(new OrderEvent.OrderItemEvent(
+                        string(itemRecord.get("productId")),
+                        string(itemRecord.get("productName")),
+                        (Integer) itemRecord.get("quantity"),
+                        decimal(itemRecord.get("unitPrice")),
+                        decimal(itemRecord.get("subtotal"))));
+            }
+            event.setItems(itemEvents);
+        }
+        event.setMetadata(metadata(record.get("metadata")));
+        event.setTimestamp(dateTime(record.get("timestamp")));
+        event.setCreatedAt(dateTime(record.get("createdAt")));
+        return event;
+    }
+
+    GenericRecord toRecord(PaymentEvent event, Schema schema) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("eventId", event.getEventId());
+        record.put("eventType", event.getEventType());
+        record.put("orderId", event.getOrderId());
+        record.put("orderNumber", event.getOrderNumber());
+        record.put("userId", event.getUserId());
+        record.put("userEmail", event.getUserEmail());
+        record.put("paymentId", event.getPaymentId());
+        record.put("transactionId", event.getTransactionId());
+        record.put("amount", decimal(schema, "amount", event.getAmount()));
+        record.put("paymentMethod", event.getPaymentMethod());
+        record.put("status", symbol(schema, "status", event.getStatus()));
+        record.put("gatewayResponse", event.getGatewayResponse());
+        record.put("failureReason", event.getFailureReason());
+        record.put("metadata", metadata(event.getMetadata()));
+        record.put("timestamp", millis(event.getTimestamp()));
+        record.put("createdAt", millis(event.getCreatedAt()));
+        return record;
+    }
+
+    PaymentEvent toPaymentEvent(GenericRecord record) {
+        PaymentEvent event = new PaymentEvent();
+        event.setEventId(string(record.get("eventId")));
+        event.setEventType(string(record.get("eventType")));
+        event.setOrderId(string(record.get("orderId")));
+        event.setOrderNumber(string(record.get("orderNumber")));
+        event.setUserId(string(record.get("userId")));
+        event.setUserEmail(string(record.get("userEmail")));
+        event.setPaymentId(string(record.get("paymentId")));
+        event.setTransactionId(string(record.get("transactionId")));
+        event.setAmount(decimal(record.get("amount")));
+        event.setPaymentMethod(string(record.get("paymentMethod")));
+        event.setStatus(enumValue(PaymentEvent.PaymentStatus.class, record.get("status")));
+        event.setGatewayResponse(string(record.get("gatewayResponse")));
+        event.setFailureReason(string(record.get("failureReason")));
+        event.setMetadata(metadata(record.get("metadata")));
+        event.setTimestamp(dateTime(record.get("timestamp")));
+        event.setCreatedAt(dateTime(record.get("createdAt")));
+        return event;
+    }
+
+    GenericRecord toRecord(UserLoginEvent event, Schema schema) {
+        GenericRecord record = userRecord(event, schema);
+        record.put("loginMethod", event.getLoginMethod());
+        record.put("userAgent", event.getUserAgent());
+        record.put("ipAddress", event.getIpAddress());
+        record.put("successful", event.isSuccessful());
+        return record;
+    }
+
+    UserLoginEvent toUserLoginEvent(GenericRecord record) {
+        UserLoginEvent event = readUser(new UserLoginEvent(), record);
+        event.setLoginMethod(string(record.get("loginMethod")));
+        event.setUserAgent(string(record.get("userAgent")));
+        event.setIpAddress(string(record.get("ipAddress")));
+        event.setSuccessful((Boolean) record.get("successful"));
+        return event;
+    }
+
+    GenericRecord toRecord(UserRegistrationEvent event, Schema schema) {
+        GenericRecord record = userRecord(event, schema);
+        record.put("firstName", event.getFirstName());
+        record.put("lastName", event.getLastName());
+        record.put("phoneNumber", event.getPhoneNumber());
+        record.put("role", event.getRole());
+        return record;
+    }
+
+    UserRegistrationEvent toUserRegistrationEvent(GenericRecord record) {
+        UserRegistrationEvent event = readUser(new UserRegistrationEvent(), record);
+        event.setFirstName(string(record.get("firstName")));
+        event.setLastName(string(record.get("lastName")));
+        event.setPhoneNumber(string(record.get("phoneNumber")));
+        event.setRole(string(record.get("role")));
+        return event;
+    }
+
+    private GenericRecord userRecord(UserEvent event, Schema schema) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("eventId", event.getEventId());
+        record.put("eventType", event.getEventType());
+        record.put("userId", event.getUserId());
+        record.put("userEmail", event.getUserEmail());
+        record.put("timestamp", millis(event.getTimestamp()));
+        record.put("source", event.getSource());
+        return record;
+    }
+
+    private <T extends UserEvent> T readUser(T event, GenericRecord record) {
+        event.setEventId(string(record.get("eventId")));
+        event.setEventType(string(record.get("eventType")));
+        event.setUserId(string(record.get("userId")));
+        event.setUserEmail(string(record.get("userEmail")));
+        event.setTimestamp(dateTime(record.get("timestamp")));
+        event.setSource(string(record.get("source")));
+        return event;
+    }
+
+    private Map<String, String> metadata(Map<String, Object> metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        Map<String, String> encoded = new HashMap<>();
+        try {
+            for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+                encoded.put(entry.getKey(), objectMapper.writeValueAsString(entry.getValue()));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metadata is not serializable", e);
+        }
+        return encoded;
+    }
+
+    private Map<String, Object> metadata(Object value) {
+        if (value == null) {
+            return null;
+        }
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                metadata.put(entry.getKey().toString(), objectMapper.readValue(entry.getValue().toString(), Object.class));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metadata is not valid JSON", e);
+        }
+        return metadata;
+    }
+
+    /**
+     * Non-null branch of a nullable field
+     */
+    private static Schema branch(Schema schema, String field) {
+        Schema fieldSchema = schema.getField(field).schema();
+        if (fieldSchema.getType() != Schema.Type.UNION) {
+            return fieldSchema;
+        }
+        return fieldSchema.getTypes().stream()
+                .filter(type -> type.getType() != Schema.Type.NULL)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static GenericData.EnumSymbol symbol(Schema schema, String field, Enum<?> value) {
+        return value == null ? null : new GenericData.EnumSymbol(branch(schema, field), value.name());
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, Object symbol) {
+        return symbol == null ? null : Enum.valueOf(type, symbol.toString());
+    }
+
+    private static GenericRecord decimal(Schema schema, String field, BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        GenericRecord decimal = new GenericData.Record(branch(schema, field));
+        decimal.put("unscaled", ByteBuffer.wrap(value.unscaledValue().toByteArray()));
+        decimal.put("scale", value.scale());
+        return decimal;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value == null) {
+            return null;
+        }
+        GenericRecord decimal = (GenericRecord) value;
+        ByteBuffer buffer = ((ByteBuffer) decimal.get("unscaled")).duplicate();
+        byte[] unscaled = new byte[buffer.remaining()];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), (Integer) decimal.get("scale"));
+    }
+
+    private static Long millis(LocalDateTime value) {
+        return value == null ? null : value.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime dateTime(Object value) {
+        return value == null ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli((Long) value), ZoneOffset.UTC);
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package com.backend.ecommerce.event.serialization;
+
+/**
+ * Event already encoded for the wire, together with what a consumer needs to decode it
+ * {@link EventSerializer} writes it as is, e.g. when the outbox relay publishes a stored event.
+ */
+public final class EncodedEvent {
+
+    private final byte[] data;
+    private final String format;
+    private final Integer schemaVersion;
+
+    public EncodedEvent(byte[] data, String format, Integer schemaVersion) {
+        this.data = data;
+        this.format = format;
+        this.schemaVersion = schemaVersion;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Version of the writer schema; null for formats without schemas
+     */
+    public Integer getSchemaVersion() {
+        return schemaVersion;
+    }
+}
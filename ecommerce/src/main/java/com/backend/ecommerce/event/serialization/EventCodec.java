@@ -0,0 +1,37 @@
+package com.backend.ecommerce.event.serialization;
+
+/**
+ * One wire format for Kafka event payloads
+ */
+public interface EventCodec {
+
+    /**
+     * Format name written to the {@link EventCodecs#FORMAT_HEADER} header
+     */
+    String getFormat();
+
+    /**
+     * Check whether events of a class can be written in this format
+     * @param type Event class
+     * @return true if supported
+     */
+    boolean supports(Class<?> type);
+
+    /**
+     * Encode an event
+     * @param event Event of a supported class
+     * @return Encoded event
+     * @throws org.apache.kafka.common.errors.SerializationException if the event cannot be encoded
+     */
+    EncodedEvent encode(Object event);
+
+    /**
+     * Decode an event
+     * @param data Encoded event
+     * @param schemaVersion Writer schema version, null for formats without schemas
+     * @param type Event class to decode into
+     * @return Decoded event
+     * @throws org.apache.kafka.common.errors.SerializationException if the data cannot be decoded
+     */
+    <T> T decode(byte[] data, Integer schemaVersion, Class<T> type);
+}
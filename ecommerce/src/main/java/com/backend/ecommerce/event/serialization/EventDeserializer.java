@@ -0,0 +1,55 @@
+package com.backend.ecommerce.event.serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kafka value deserializer for events
+ * Only captures the bytes and format headers; listeners decode into the event class they expect
+ * with {@link EventPayload#as(Class)}.
+ * Throws a {@link SerializationException} for unreadable headers; consumers wrap it in an
+ * ErrorHandlingDeserializer, so such a record is dead-lettered instead of failing every poll.
+ */
+public class EventDeserializer implements Deserializer<EventPayload> {
+
+    private final EventCodecs codecs;
+
+    public EventDeserializer(EventCodecs codecs) {
+        this.codecs = codecs;
+    }
+
+    @Override
+    public EventPayload deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public EventPayload deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        String format = headerValue(headers, EventCodecs.FORMAT_HEADER);
+        String schemaVersion = headerValue(headers, EventCodecs.SCHEMA_VERSION_HEADER);
+        return new EventPayload(codecs, data, format, schemaVersion != null ? parseSchemaVersion(schemaVersion) : null);
+    }
+
+    private static Integer parseSchemaVersion(String schemaVersion) {
+        try {
+            return Integer.valueOf(schemaVersion);
+        } catch (NumberFormatException e) {
+            throw new SerializationException("Invalid " + EventCodecs.SCHEMA_VERSION_HEADER + " header: " + schemaVersion, e);
+        }
+    }
+
+    private static String headerValue(Headers headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        Header header = headers.lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
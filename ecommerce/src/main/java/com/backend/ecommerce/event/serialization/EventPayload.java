@@ -0,0 +1,58 @@
+package com.backend.ecommerce.event.serialization;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Value of a consumed record, decoded on demand
+ */
+public class EventPayload {
+
+    private final EventCodecs codecs;
+    private final byte[] data;
+    private final String format;
+    private final Integer schemaVersion;
+
+    public EventPayload(EventCodecs codecs, byte[] data, String format, Integer schemaVersion) {
+        this.codecs = codecs;
+        this.data = data;
+        this.format = format;
+        this.schemaVersion = schemaVersion;
+    }
+
+    /**
+     * Decode the payload as an event
+     * @param type Event class
+     * @return Decoded event
+     * @throws org.apache.kafka.common.errors.SerializationException if the payload cannot be decoded
+     */
+    public <T> T as(Class<T> type) {
+        return codecs.decode(data, format, schemaVersion, type);
+    }
+
+    /**
+     * Payload as text, for plain string messages
+     */
+    public String asText() {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Format header value; null for records without one
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    public Integer getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return (format != null ? format : JsonEventCodec.FORMAT) + " payload, " + data.length + " bytes";
+    }
+}
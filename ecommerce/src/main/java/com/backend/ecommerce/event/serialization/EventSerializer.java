@@ -0,0 +1,61 @@
+package com.backend.ecommerce.event.serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kafka value serializer for events
+ * Event objects are encoded in the producer format, and {@link EncodedEvent}s and consumed
+ * {@link EventPayload}s, e.g. on their way to a dead letter topic, are written as they are; all get format
+ * headers when their format is known. Plain strings are written as UTF-8 without headers, and raw bytes,
+ * such as a record that could not be deserialized on its way to a dead letter topic, as they are.
+ */
+public class EventSerializer implements Serializer<Object> {
+
+    private final EventCodecs codecs;
+
+    public EventSerializer(EventCodecs codecs) {
+        this.codecs = codecs;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof String) {
+            return ((String) data).getBytes(StandardCharsets.UTF_8);
+        }
+        if (data instanceof byte[]) {
+            return (byte[]) data;
+        }
+
+        EncodedEvent encoded;
+        if (data instanceof EventPayload) {
+            EventPayload payload = (EventPayload) data;
+            if (payload.getFormat() == null) {
+                return payload.getData();
+            }
+            encoded = new EncodedEvent(payload.getData(), payload.getFormat(), payload.getSchemaVersion());
+        } else {
+            encoded = data instanceof EncodedEvent ? (EncodedEvent) data : codecs.encode(data);
+        }
+        if (headers != null) {
+            headers.remove(EventCodecs.FORMAT_HEADER);
+            headers.remove(EventCodecs.SCHEMA_VERSION_HEADER);
+            headers.add(EventCodecs.FORMAT_HEADER, encoded.getFormat().getBytes(StandardCharsets.UTF_8));
+            if (encoded.getSchemaVersion() != null) {
+                headers.add(EventCodecs.SCHEMA_VERSION_HEADER,
+                        encoded.getSchemaVersion().toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return encoded.getData();
+    }
+}
@@ -0,0 +1,49 @@
+package com.backend.ecommerce.event.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+
+/**
+ * JSON payloads, as produced before binary encoding existed
+ * Also the format assumed for records without a format header.
+ */
+public class JsonEventCodec implements EventCodec {
+
+    public static final String FORMAT = "json";
+
+    private final ObjectMapper objectMapper;
+
+    public JsonEventCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    @Override
+    public boolean supports(Class<?> type) {
+        return true;
+    }
+
+    @Override
+    public EncodedEvent encode(Object event) {
+        try {
+            return new EncodedEvent(objectMapper.writeValueAsBytes(event), FORMAT, null);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to serialize " + event.getClass().getSimpleName() + " as JSON", e);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Integer schemaVersion, Class<T> type) {
+        try {
+            return objectMapper.readValue(data, type);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to deserialize " + type.getSimpleName() + " from JSON", e);
+        }
+    }
+}
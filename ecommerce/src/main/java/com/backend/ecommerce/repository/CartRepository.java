@@ -1,6 +1,7 @@
 package com.backend.ecommerce.repository;
 
 import com.backend.ecommerce.entity.Cart;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -18,6 +19,12 @@ public interface CartRepository extends JpaRepository<Cart, String> {
      */
     Optional<Cart> findByUserIdAndStatus(String userId, Cart.CartStatus status);
     
+    /**
+     * Find active cart by user ID together with its items in one query
+     */
+    @EntityGraph("Cart.items")
+    Optional<Cart> findWithItemsByUserIdAndStatus(String userId, Cart.CartStatus status);
+    
     /**
      * Find all carts by user ID
      */
@@ -0,0 +1,16 @@
+package com.backend.ecommerce.repository;
+
+import com.backend.ecommerce.entity.InventoryAdjustment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InventoryAdjustmentRepository extends JpaRepository<InventoryAdjustment, Long> {
+
+    /**
+     * Every adjustment not yet applied to the products table, oldest first
+     */
+    List<InventoryAdjustment> findByOrderByIdAsc();
+}
@@ -0,0 +1,44 @@
+package com.backend.ecommerce.repository;
+
+import com.backend.ecommerce.entity.InventoryLedgerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface InventoryLedgerLeaseRepository extends JpaRepository<InventoryLedgerLease, String> {
+
+    /**
+     * Take or renew a lease if the caller already owns it or it has expired
+     * @return 1 if the caller now holds the lease, 0 if another owner does or the lease does not exist
+     */
+    @Modifying
+    @Query("UPDATE InventoryLedgerLease l SET l.owner = :owner, l.expiresAt = :expiresAt " +
+           "WHERE l.name = :name AND (l.owner = :owner OR l.expiresAt < :now)")
+    int claim(@Param("name") String name,
+              @Param("owner") String owner,
+              @Param("expiresAt") LocalDateTime expiresAt,
+              @Param("now") LocalDateTime now);
+
+    /**
+     * Create a lease; fails with a constraint violation if it already exists
+     * @return Number of inserted rows
+     */
+    @Modifying
+    @Query("INSERT INTO InventoryLedgerLease (name, owner, expiresAt) VALUES (:name, :owner, :expiresAt)")
+    int create(@Param("name") String name,
+               @Param("owner") String owner,
+               @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Give up a lease so another instance can take it over immediately
+     * @return Number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE InventoryLedgerLease l SET l.expiresAt = :now WHERE l.name = :name AND l.owner = :owner")
+    int expire(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
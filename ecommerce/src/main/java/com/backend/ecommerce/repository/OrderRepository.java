@@ -1,35 +1,104 @@
 package com.backend.ecommerce.repository;
 
 import com.backend.ecommerce.entity.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, String> {
     
+    /**
+     * Find order by ID together with its items in one query
+     */
+    @EntityGraph("Order.items")
+    Optional<Order> findWithItemsById(String id);
+    
     /**
      * Find order by order number
      */
     Optional<Order> findByOrderNumber(String orderNumber);
     
+    /**
+     * Find order by order number together with its items in one query
+     */
+    @EntityGraph("Order.items")
+    Optional<Order> findWithItemsByOrderNumber(String orderNumber);
+    
     /**
      * Find orders by user ID with pagination
      */
     Page<Order> findByUserId(String userId, Pageable pageable);
     
+    /**
+     * Find orders by user ID continuing from a keyset position (no OFFSET, no count query)
+     */
+    Window<Order> findByUserId(String userId, ScrollPosition position, Limit limit, Sort sort);
+    
     /**
      * Find orders by user ID
      */
     List<Order> findByUserId(String userId);
     
+    /**
+     * Find order headers by user ID with pagination, without loading items
+     */
+    Page<OrderSummary> findSummariesByUserId(String userId, Pageable pageable);
+    
+    /**
+     * Find order headers by user ID continuing from a keyset position, without loading items
+     */
+    Window<OrderSummary> findSummariesByUserId(String userId, ScrollPosition position, Limit limit, Sort sort);
+    
+    /**
+     * Find order headers by user ID, without loading items
+     */
+    List<OrderSummary> findSummariesByUserId(String userId);
+    
+    /**
+     * Find order headers by ID, without loading items
+     */
+    List<OrderSummary> findSummariesByIdIn(Collection<String> ids);
+    
+    /**
+     * Find order headers by status, without loading items
+     */
+    List<OrderSummary> findSummariesByStatus(Order.OrderStatus status);
+    
+    /**
+     * Find all order headers with pagination, without loading items
+     */
+    Page<OrderSummary> findSummariesBy(Pageable pageable);
+    
+    /**
+     * Find orders whose stock reservation was never flushed from the inventory ledger, with their items
+     */
+    @EntityGraph("Order.items")
+    @Query("SELECT o FROM Order o WHERE o.stockCommitted = false")
+    List<Order> findOrdersWithUncommittedStock();
+    
+    /**
+     * Mark orders whose stock reservation has been written to the products table
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.stockCommitted = true WHERE o.id IN :orderIds")
+    int markStockCommitted(@Param("orderIds") Collection<String> orderIds);
+    
     /**
      * Find orders by status
      */
@@ -122,4 +191,24 @@ public interface OrderRepository extends JpaRepository<Order, String> {
      */
     @Query("SELECT o FROM Order o WHERE o.totalAmount > :threshold ORDER BY o.totalAmount DESC")
     List<Order> findHighValueOrders(@Param("threshold") Double threshold);
+    
+    /**
+     * Order header columns used by list endpoints
+     */
+    interface OrderSummary {
+        String getId();
+        String getOrderNumber();
+        String getUserId();
+        BigDecimal getSubtotal();
+        BigDecimal getTaxAmount();
+        BigDecimal getShippingAmount();
+        BigDecimal getTotalAmount();
+        Order.OrderStatus getStatus();
+        Order.PaymentStatus getPaymentStatus();
+        Order.PaymentMethod getPaymentMethod();
+        String getTrackingNumber();
+        LocalDateTime getEstimatedDeliveryDate();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+    }
 }
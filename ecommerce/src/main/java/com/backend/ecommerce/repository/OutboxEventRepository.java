@@ -0,0 +1,53 @@
+package com.backend.ecommerce.repository;
+
+import com.backend.ecommerce.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Oldest messages not claimed by a relay, locked until the claim commits
+     * Rows locked by another relay instance are skipped where the database supports SKIP LOCKED
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.claimedUntil IS NULL OR e.claimedUntil < :now ORDER BY e.id")
+    List<OutboxEvent> findUnclaimed(@Param("now") LocalDateTime now, Limit limit);
+
+    /**
+     * Oldest remaining message of each key, claimed or not
+     * @return Pairs of message key and message ID
+     */
+    @Query("SELECT e.messageKey, MIN(e.id) FROM OutboxEvent e WHERE e.messageKey IN :keys GROUP BY e.messageKey")
+    List<Object[]> findOldestIdByMessageKeyIn(@Param("keys") Collection<String> keys);
+
+    /**
+     * Claim messages for a relay until the lease expires
+     * @return Number of claimed rows
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedBy = :owner, e.claimedUntil = :until WHERE e.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("until") LocalDateTime until);
+
+    /**
+     * Give back messages a relay claimed but did not publish, so the next run retries them
+     * @return Number of released rows
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedBy = NULL, e.claimedUntil = NULL WHERE e.id IN :ids AND e.claimedBy = :owner")
+    int release(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+}
@@ -1,13 +1,20 @@
 package com.backend.ecommerce.repository;
 
 import com.backend.ecommerce.entity.Payment;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,11 +41,40 @@ public interface PaymentRepository extends JpaRepository<Payment, String> {
      */
     org.springframework.data.domain.Page<Payment> findByUserId(String userId, org.springframework.data.domain.Pageable pageable);
     
+    /**
+     * Find payments by user ID continuing from a keyset position (no OFFSET, no count query)
+     */
+    Window<Payment> findByUserId(String userId, ScrollPosition position, Limit limit, Sort sort);
+    
     /**
      * Find payments by status
      */
     List<Payment> findByStatus(Payment.PaymentStatus status);
     
+    /**
+     * Find payments in any of the statuses that have not changed since the given time, oldest first
+     */
+    List<Payment> findByStatusInAndUpdatedAtBeforeOrderByUpdatedAtAsc(Collection<Payment.PaymentStatus> statuses,
+                                                                       LocalDateTime updatedAt, Limit limit);
+    
+    /**
+     * Claim a payment for reconciliation by touching its modification timestamp
+     * Only applied while the payment is unchanged since it was read, so one instance claims it
+     * @param id Payment ID
+     * @param status Status the caller read
+     * @param updatedAt Modification timestamp the caller read
+     * @param claimedAt New modification timestamp
+     * @return Number of rows updated: 0 if the payment has changed or was claimed meanwhile
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Payment p SET p.updatedAt = :claimedAt " +
+           "WHERE p.id = :id AND p.status = :status AND p.updatedAt = :updatedAt")
+    int claimForReconciliation(@Param("id") String id,
+                               @Param("status") Payment.PaymentStatus status,
+                               @Param("updatedAt") LocalDateTime updatedAt,
+                               @Param("claimedAt") LocalDateTime claimedAt);
+    
     /**
      * Find payments by payment method
      */
@@ -4,21 +4,26 @@ import com.backend.ecommerce.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository interface for product data access operations
- * Extends JpaRepository to provide basic CRUD operations
+ * Extends JpaRepository to provide basic CRUD operations and
+ * JpaSpecificationExecutor for the composable catalog query engine
  */
 @Repository
-public interface ProductRepository extends JpaRepository<Product, String> {
+public interface ProductRepository extends JpaRepository<Product, String>, JpaSpecificationExecutor<Product> {
     
     /**
      * Find products by category
@@ -44,6 +49,59 @@ public interface ProductRepository extends JpaRepository<Product, String> {
      */
     List<Product> findByStockQuantityGreaterThan(int minStock);
     
+    /**
+     * Read only the current stock quantity of a product
+     * @param id Product ID
+     * @return Stock quantity if the product exists
+     */
+    @Query("SELECT p.stockQuantity FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockQuantityById(@Param("id") String id);
+    
+    /**
+     * Read only the stock quantity and modification timestamp of a product
+     * @param id Product ID
+     * @return Stock and version if the product exists
+     */
+    @Query("SELECT p.stockQuantity AS stockQuantity, p.updatedAt AS updatedAt FROM Product p WHERE p.id = :id")
+    Optional<StockVersion> findStockVersionById(@Param("id") String id);
+    
+    /**
+     * Read only the current stock quantities of several products in one query
+     * @param ids Product IDs
+     * @return Stock level per existing product
+     */
+    @Query("SELECT p.id AS id, p.stockQuantity AS stockQuantity FROM Product p WHERE p.id IN :ids")
+    List<StockLevel> findStockLevelsByIdIn(@Param("ids") Collection<String> ids);
+    
+    /**
+     * Load several products together with their additional images in one query
+     * @param ids Product IDs
+     * @return Existing products among the given IDs
+     */
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.additionalImages WHERE p.id IN :ids")
+    List<Product> findAllWithImagesByIdIn(@Param("ids") Collection<String> ids);
+    
+    /**
+     * Load every product together with its additional images in one query
+     * @return All products
+     */
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.additionalImages")
+    List<Product> findAllWithImages();
+    
+    /**
+     * Atomically add a (possibly negative) delta to the stock, refusing to go below zero
+     * @param id Product ID
+     * @param delta Stock change
+     * @param updatedAt Modification timestamp
+     * @return Number of rows updated: 0 if the product does not exist or stock would become negative
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :delta, p.updatedAt = :updatedAt " +
+           "WHERE p.id = :id AND p.stockQuantity + :delta >= 0")
+    int adjustStockQuantity(@Param("id") String id, @Param("delta") int delta,
+                            @Param("updatedAt") LocalDateTime updatedAt);
+    
     /**
      * Search products by name or description containing the search term
      * @param searchTerm Search term
@@ -122,4 +180,20 @@ public interface ProductRepository extends JpaRepository<Product, String> {
      */
     List<Product> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
     Page<Product> findByCreatedAtAfter(LocalDateTime date, Pageable pageable);
+    
+    /**
+     * Projection of a product's stock quantity
+     */
+    interface StockLevel {
+        String getId();
+        Integer getStockQuantity();
+    }
+
+    /**
+     * Projection of a product's stock quantity and modification timestamp
+     */
+    interface StockVersion {
+        Integer getStockQuantity();
+        LocalDateTime getUpdatedAt();
+    }
 }
@@ -0,0 +1,88 @@
+package com.backend.ecommerce.repository;
+
+import com.backend.ecommerce.dto.ProductSearchCriteria;
+import com.backend.ecommerce.entity.Category;
+import com.backend.ecommerce.entity.Product;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Factory for JPA specifications used by the catalog query engine
+ * Only the filters that are actually set end up in the generated WHERE clause
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {}
+
+    /**
+     * Build a single predicate combining every filter in the criteria
+     * @param criteria Catalog filters
+     * @param matchingIds Product IDs matching the free text search, or null if no search applies
+     * @return Specification for the product query
+     */
+    public static Specification<Product> matching(ProductSearchCriteria criteria, Collection<String> matchingIds) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (criteria.isActiveOnly()) {
+                predicates.add(cb.isTrue(root.get("active")));
+            }
+            if (hasText(criteria.getCategory())) {
+                predicates.add(categoryPredicate(root, query, cb, criteria.getCategory().trim()));
+            }
+            if (hasText(criteria.getBrand())) {
+                predicates.add(cb.equal(root.get("brand"), criteria.getBrand().trim()));
+            }
+            if (criteria.getMinPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), criteria.getMinPrice()));
+            }
+            if (criteria.getMaxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), criteria.getMaxPrice()));
+            }
+            if (criteria.getMinRating() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("averageRating"), criteria.getMinRating()));
+            }
+            if (criteria.getMinDiscount() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("discountPercentage"), criteria.getMinDiscount()));
+            }
+            if (criteria.getInStock() != null) {
+                predicates.add(criteria.getInStock()
+                        ? cb.greaterThan(root.get("stockQuantity"), 0)
+                        : cb.lessThanOrEqualTo(root.get("stockQuantity"), 0));
+            }
+            if (matchingIds != null) {
+                predicates.add(root.get("id").in(matchingIds));
+            } else if (criteria.hasSearch()) {
+                String pattern = "%" + criteria.getSearch().trim().toLowerCase() + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("name")), pattern),
+                        cb.like(cb.lower(root.get("description")), pattern)));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Category filter given as a category name or ID; an ID is resolved to its name within the same statement
+     */
+    private static Predicate categoryPredicate(Root<Product> root, CriteriaQuery<?> query, CriteriaBuilder cb,
+                                               String category) {
+        Subquery<String> nameById = query.subquery(String.class);
+        Root<Category> categoryRoot = nameById.from(Category.class);
+        nameById.select(categoryRoot.get("name")).where(cb.equal(categoryRoot.get("id"), category));
+        return cb.or(cb.equal(root.get("category"), category), cb.equal(root.get("category"), nameById));
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+}
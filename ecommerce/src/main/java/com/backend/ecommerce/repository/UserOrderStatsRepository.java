@@ -0,0 +1,88 @@
+package com.backend.ecommerce.repository;
+
+import com.backend.ecommerce.entity.Order;
+import com.backend.ecommerce.entity.UserOrderStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Repository
+public interface UserOrderStatsRepository extends JpaRepository<UserOrderStats, String> {
+
+    /**
+     * Add a newly placed order to a user's stats in place
+     * @return Number of updated rows; 0 if the user has no stats row yet
+     */
+    @Modifying
+    @Query("UPDATE UserOrderStats s SET s.orderCount = s.orderCount + 1, s.totalSpent = s.totalSpent + :amount, " +
+           "s.lastOrderAt = CASE WHEN s.lastOrderAt IS NULL OR s.lastOrderAt < :orderedAt THEN :orderedAt ELSE s.lastOrderAt END, " +
+           "s.updatedAt = :now WHERE s.userId = :userId")
+    int addOrder(@Param("userId") String userId,
+                 @Param("amount") BigDecimal amount,
+                 @Param("orderedAt") LocalDateTime orderedAt,
+                 @Param("now") LocalDateTime now);
+
+    /**
+     * Adjust the order count and amount spent of a user in place, e.g. when an order is cancelled
+     * @return Number of updated rows; 0 if the user has no stats row yet
+     */
+    @Modifying
+    @Query("UPDATE UserOrderStats s SET s.orderCount = s.orderCount + :countDelta, " +
+           "s.totalSpent = s.totalSpent + :amountDelta, s.updatedAt = :now WHERE s.userId = :userId")
+    int applyDelta(@Param("userId") String userId,
+                   @Param("countDelta") long countDelta,
+                   @Param("amountDelta") BigDecimal amountDelta,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Create an empty stats row for a user
+     * Fails with a constraint violation if the user already has one
+     * @return Number of inserted rows
+     */
+    @Modifying
+    @Query("INSERT INTO UserOrderStats (userId, orderCount, totalSpent, updatedAt) VALUES (:userId, 0, 0, :now)")
+    int insertEmpty(@Param("userId") String userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Recompute the stats of every user that has a stats row from the orders table, in place
+     * Orders in an excluded status only count for the last order date
+     * @return Number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE UserOrderStats s SET " +
+           "s.orderCount = (SELECT COUNT(o) FROM Order o WHERE o.userId = s.userId AND o.status NOT IN :excluded), " +
+           "s.totalSpent = COALESCE((SELECT SUM(o.totalAmount) FROM Order o " +
+           "WHERE o.userId = s.userId AND o.status NOT IN :excluded), 0), " +
+           "s.lastOrderAt = (SELECT MAX(o.createdAt) FROM Order o WHERE o.userId = s.userId), " +
+           "s.updatedAt = :now")
+    int recomputeFromOrders(@Param("excluded") Collection<Order.OrderStatus> excluded,
+                            @Param("now") LocalDateTime now);
+
+    /**
+     * Insert stats for every user with orders but no stats row, in a single INSERT ... SELECT
+     * Orders in an excluded status only count for the last order date
+     * @return Number of inserted rows
+     */
+    @Modifying
+    @Query("INSERT INTO UserOrderStats (userId, orderCount, totalSpent, lastOrderAt, updatedAt) " +
+           "SELECT o.userId, COUNT(CASE WHEN o.status IN :excluded THEN NULL ELSE o.id END), " +
+           "COALESCE(SUM(CASE WHEN o.status IN :excluded THEN NULL ELSE o.totalAmount END), 0), " +
+           "MAX(o.createdAt), :now FROM Order o " +
+           "WHERE NOT EXISTS (SELECT 1 FROM UserOrderStats s WHERE s.userId = o.userId) GROUP BY o.userId")
+    int insertMissingFromOrders(@Param("excluded") Collection<Order.OrderStatus> excluded,
+                                @Param("now") LocalDateTime now);
+
+    /**
+     * Delete the stats of users without any orders
+     * @return Number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM UserOrderStats s WHERE NOT EXISTS (SELECT 1 FROM Order o WHERE o.userId = s.userId)")
+    int deleteWithoutOrders();
+}
@@ -2,9 +2,11 @@ package com.backend.ecommerce.repository;
 
 import com.backend.ecommerce.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -30,7 +32,32 @@ public interface UserRepository extends JpaRepository<User, String> {
      * @return true if user exists, false otherwise
      */
     boolean existsByEmail(String email);
-    
+
+    /**
+     * Find the emails of all users
+     * @return List of email addresses
+     */
+    @Query("SELECT u.email FROM User u")
+    List<String> findAllEmails();
+
+    /**
+     * Replace a user's password hash, leaving every other column as it is
+     * Only applied while the stored hash is still the expected one, so a concurrent password change wins
+     * @param id User ID
+     * @param expectedPassword Hash the caller read
+     * @param password New hash
+     * @param updatedAt Modification timestamp
+     * @return Number of rows updated: 0 if the user does not exist or the hash has changed meanwhile
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.updatedAt = :updatedAt " +
+           "WHERE u.id = :id AND u.password = :expectedPassword")
+    int updatePassword(@Param("id") String id,
+                       @Param("expectedPassword") String expectedPassword,
+                       @Param("password") String password,
+                       @Param("updatedAt") LocalDateTime updatedAt);
+
     /**
      * Find users by role
      * @param role User role
@@ -0,0 +1,46 @@
+package com.backend.ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link PaymentGatewayService}
+ * Every call returns immediately; the gateway round trip runs on a dedicated bounded executor.
+ * A future fails with {@link java.util.concurrent.RejectedExecutionException} when the executor is saturated
+ * and with {@link java.util.concurrent.TimeoutException} when the gateway does not answer in time.
+ */
+public interface AsyncPaymentGatewayService {
+
+    /**
+     * Process payment through the gateway
+     * @param amount Payment amount
+     * @param paymentMethod Payment method
+     * @param paymentData Payment data (card details, etc.)
+     * @return Future gateway response
+     */
+    CompletableFuture<Map<String, Object>> processPayment(BigDecimal amount, String paymentMethod, Map<String, Object> paymentData);
+
+    /**
+     * Look up a payment by the reference it was submitted with
+     * @param reference Value of the "reference" entry in the payment data
+     * @return Future gateway response, with status NOT_FOUND if the gateway never received the payment
+     */
+    CompletableFuture<Map<String, Object>> lookupPayment(String reference);
+
+    /**
+     * Verify payment transaction
+     * @param transactionId Transaction ID from gateway
+     * @return Future verification result
+     */
+    CompletableFuture<Map<String, Object>> verifyTransaction(String transactionId);
+
+    /**
+     * Process refund through the gateway
+     * @param transactionId Original transaction ID
+     * @param amount Refund amount
+     * @param reason Refund reason
+     * @return Future refund result
+     */
+    CompletableFuture<Map<String, Object>> processRefund(String transactionId, BigDecimal amount, String reason);
+}
@@ -1,8 +1,11 @@
 package com.backend.ecommerce.service;
 
+import com.backend.ecommerce.dto.ProductSearchCriteria;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * Service interface for catalog management operations
@@ -24,11 +27,25 @@ public interface CatalogService {
                                    String search, Double minPrice, Double maxPrice);
     
     /**
-     * Get product by ID
-     * @param productId Product ID
-     * @return Optional containing product details
+     * Get products matching all given filters, sorted and paginated
+     * @param criteria Combined catalog filters
+     * @param pageable Pagination and sort information
+     * @return Map containing products and pagination info
+     */
+    Map<String, Object> getProducts(ProductSearchCriteria criteria, Pageable pageable);
+    
+    /**
+     * Get products matching all given filters using keyset pagination
+     * @param criteria Combined catalog filters
+     * @param sortBy Sort field
+     * @param direction Sort direction
+     * @param cursor Continuation token from the previous page, or null for the first page
+     * @param size Page size
+     * @param includeTotal Whether to also count all matching products
+     * @return Map containing products and the cursor of the next page
      */
-    Optional<Map<String, Object>> getProductById(String productId);
+    Map<String, Object> scrollProducts(ProductSearchCriteria criteria, String sortBy, Sort.Direction direction,
+                                       String cursor, int size, boolean includeTotal);
     
     /**
      * Get all product categories
@@ -0,0 +1,153 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.repository.ProcessedEventRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Drops redelivered Kafka events by event ID
+ *
+ * Processed IDs are kept in a bounded in-memory set in front of the processed_events table. Consumers
+ * filter a poll with {@link #filterNew} before starting any transaction, so a redelivered batch costs at
+ * most one read and usually none, and record the IDs with {@link #markProcessed} in the transaction that
+ * applies the events. The primary key on the table still rejects a duplicate that slips past the filter,
+ * e.g. while two consumers briefly own a partition during a rebalance.
+ *
+ * Rows are deleted after events.dedup.ttl, which must exceed the longest time a record can be redelivered.
+ * Event IDs are unique across topics, so one set serves every listener.
+ */
+@Component
+public class EventDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventDeduplicator.class);
+
+    private static final String INSERT_SQL = "INSERT INTO processed_events (event_id, processed_at) VALUES (?, ?)";
+
+    @Autowired
+    private ProcessedEventRepository processedEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Duration ttl;
+
+    private final Cache<String, Boolean> recent;
+
+    public EventDeduplicator(@Value("${events.dedup.ttl:7d}") Duration ttl,
+                             @Value("${events.dedup.memory-max-size:100000}") long memoryMaxSize,
+                             MeterRegistry meterRegistry) {
+        this.ttl = ttl;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(memoryMaxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recent, "processed-events");
+    }
+
+    /**
+     * Drop events that were processed before or occur earlier in the same list
+     * Events without an ID cannot be recognised and are always kept
+     * @param events Events in delivery order
+     * @param eventId Event ID accessor
+     * @return Events not processed yet, in delivery order
+     */
+    public <T> List<T> filterNew(List<T> events, Function<T, String> eventId) {
+        Set<String> candidates = new HashSet<>();
+        for (T event : events) {
+            String id = eventId.apply(event);
+            if (id != null && recent.getIfPresent(id) == null) {
+                candidates.add(id);
+            }
+        }
+        Set<String> processed = candidates.isEmpty()
+                ? Set.of() : new HashSet<>(processedEventRepository.findProcessedIds(candidates));
+        processed.forEach(id -> recent.put(id, Boolean.TRUE));
+
+        List<T> fresh = new ArrayList<>(events.size());
+        Set<String> seen = new HashSet<>();
+        for (T event : events) {
+            String id = eventId.apply(event);
+            if (id == null) {
+                fresh.add(event);
+            } else if (candidates.contains(id) && !processed.contains(id) && seen.add(id)) {
+                fresh.add(event);
+            }
+        }
+        if (fresh.size() < events.size()) {
+            logger.info("Dropped {} duplicate events", events.size() - fresh.size());
+        }
+        return fresh;
+    }
+
+    /**
+     * Record events as processed
+     * Inside a transaction the rows are written with it, the IDs are only remembered in memory once it
+     * commits, and a duplicate ID fails the transaction. Outside a transaction each ID is written on its
+     * own and duplicates are ignored.
+     * @param eventIds Event IDs; null IDs are ignored
+     */
+    public void markProcessed(Collection<String> eventIds) {
+        Set<String> ids = new LinkedHashSet<>(eventIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Object[]> rows = ids.stream().map(id -> new Object[]{id, now}).toList();
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach(id -> recent.put(id, Boolean.TRUE));
+                }
+            });
+            return;
+        }
+
+        for (String id : ids) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, id, now);
+            } catch (DuplicateKeyException e) {
+                logger.debug("Event {} was already recorded as processed", id);
+            }
+            recent.put(id, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Delete processed IDs older than the TTL
+     */
+    @Scheduled(fixedDelayString = "${events.dedup.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        int deleted = processedEventRepository.deleteProcessedBefore(LocalDateTime.now().minus(ttl));
+        if (deleted > 0) {
+            logger.info("Deleted {} expired processed event IDs", deleted);
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.InventoryAdjustment;
+import com.backend.ecommerce.entity.Order;
+import com.backend.ecommerce.entity.OrderItem;
+import com.backend.ecommerce.repository.InventoryAdjustmentRepository;
+import com.backend.ecommerce.repository.InventoryLedgerLeaseRepository;
+import com.backend.ecommerce.repository.OrderRepository;
+import com.backend.ecommerce.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stock ledger for flash-sale traffic (inventory.ledger.enabled=true)
+ *
+ * Available stock per product is held in an atomic counter, seeded once from the products table and
+ * spread over hash stripes so that seeding one product never blocks another. Reservations are plain
+ * compare-and-set loops on those counters, so hot SKUs no longer queue up on a database row lock.
+ *
+ * Every accepted change is durable before it is acknowledged: an order reservation is the order row
+ * itself, saved with stock_committed = false in the order's transaction, and releases and manual
+ * adjustments are rows in inventory_adjustments written before the counter changes. A periodic flush
+ * applies all of them to the products table in one transaction and marks or deletes them, and the same
+ * replay runs on startup, so a crash or redeploy loses nothing that was acknowledged. Stock filters, which
+ * read the products table, flush committed changes first ({@link #flushPending()}).
+ *
+ * The counters are per JVM, so only one instance may run the ledger. It holds a lease in the
+ * inventory_ledger_lease table, renewed on every flush; an instance that cannot take the lease within
+ * inventory.ledger.lease-ttl refuses to start, and one whose lease lapsed refuses new reservations and
+ * adjustments. While the ledger is enabled all stock changes must go through it; it is the source of
+ * truth for products it tracks.
+ */
+@Component
+public class InventoryLedger implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedger.class);
+
+    private static final String APPLY_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ?";
+
+    private static final String LEASE_NAME = "inventory-ledger";
+
+    @Value("${inventory.ledger.enabled:false}")
+    private boolean enabled;
+
+    @Value("${inventory.ledger.lease-ttl:30s}")
+    private Duration leaseTtl;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InventoryAdjustmentRepository inventoryAdjustmentRepository;
+
+    @Autowired
+    private InventoryLedgerLeaseRepository inventoryLedgerLeaseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Stripe[] stripes;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // System.nanoTime() until which this instance holds the lease; starts out expired
+    private volatile long leaseDeadline = System.nanoTime();
+
+    // Bumped whenever a change commits, so the products table is behind until a write-back covers it
+    private final AtomicLong changes = new AtomicLong();
+
+    // Value of changes before the last successful write-back; guarded by flushLock for writes
+    private volatile long flushedChanges;
+
+    // Only one write-back runs at a time
+    private final Object flushLock = new Object();
+
+    public InventoryLedger(@Value("${inventory.ledger.stripes:16}") int stripeCount) {
+        int count = Integer.highestOneBit(Math.max(stripeCount, 1) * 2 - 1);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Check whether stock is managed by the ledger
+     * @return true if the ledger is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stock currently available for new reservations
+     * @param productId Product ID
+     * @return Available stock if the product exists
+     */
+    public Optional<Integer> getAvailable(String productId) {
+        AtomicInteger counter = counter(productId);
+        return counter == null ? Optional.empty() : Optional.of(counter.get());
+    }
+
+    /**
+     * Take stock for every line, all or nothing
+     * The caller must persist the reservation with its order (stock_committed = false) and call
+     * {@link #restore} if that transaction rolls back
+     * @param quantities Quantity per product ID
+     * @return IDs of products that could not be reserved; empty on success
+     */
+    public List<String> tryReserve(Map<String, Integer> quantities) {
+        if (!holdsLease()) {
+            logger.warn("Inventory ledger lease not held; refusing reservation");
+            return new ArrayList<>(quantities.keySet());
+        }
+
+        Map<String, Integer> reserved = new HashMap<>();
+        List<String> failedProductIds = new ArrayList<>();
+
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            AtomicInteger counter = counter(line.getKey());
+            if (counter != null && tryTake(counter, line.getValue())) {
+                reserved.put(line.getKey(), line.getValue());
+            } else {
+                failedProductIds.add(line.getKey());
+            }
+        }
+
+        if (!failedProductIds.isEmpty()) {
+            restore(reserved);
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The order row carrying the reservation only counts as a change once it commits
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changes.incrementAndGet();
+                }
+            });
+        } else {
+            changes.incrementAndGet();
+        }
+        return failedProductIds;
+    }
+
+    /**
+     * Give back a reservation that was never committed, e.g. because the order rolled back
+     * @param quantities Reserved quantity per product ID
+     */
+    public void restore(Map<String, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            AtomicInteger counter = counter(productId);
+            if (counter != null) {
+                counter.addAndGet(quantity);
+            }
+        });
+    }
+
+    /**
+     * Return committed stock, e.g. for a cancelled order
+     * Must run inside the caller's transaction: the release is recorded with it and the stock becomes
+     * available once it commits
+     * @param quantities Quantity per product ID
+     */
+    public void release(Map<String, Integer> quantities) {
+        Map<String, Integer> released = new HashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            // Seeded before the release is recorded, so the seed can never already include it
+            if (counter(productId) != null) {
+                released.put(productId, quantity);
+            }
+        });
+        if (released.isEmpty()) {
+            return;
+        }
+
+        record(released);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                restore(released);
+                changes.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Apply a manual stock adjustment, refusing to go below zero
+     * The adjustment is recorded before this returns, in the caller's transaction if there is one
+     * @param productId Product ID
+     * @param delta Stock change
+     * @return true if applied, false if the product does not exist, stock is insufficient or the lease is not held
+     */
+    public boolean tryAdjust(String productId, int delta) {
+        if (!holdsLease()) {
+            logger.warn("Inventory ledger lease not held; refusing adjustment of product {}", productId);
+            return false;
+        }
+        AtomicInteger counter = counter(productId);
+        if (counter == null) {
+            return false;
+        }
+        if (delta < 0 && !tryTake(counter, -delta)) {
+            return false;
+        }
+
+        AtomicBoolean recorded = new AtomicBoolean();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                record(Map.of(productId, delta));
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int completion) {
+                        // Stock taken up front goes back on rollback; added stock only shows after commit
+                        if (completion == STATUS_COMMITTED ? delta > 0 : delta < 0) {
+                            counter.addAndGet(Math.abs(delta));
+                        }
+                        if (completion == STATUS_COMMITTED) {
+                            changes.incrementAndGet();
+                        }
+                    }
+                });
+                recorded.set(true);
+            });
+        } catch (RuntimeException e) {
+            if (!recorded.get() && delta < 0) {
+                counter.addAndGet(-delta);
+            }
+            logger.error("Failed to record stock adjustment of product {}: {}", productId, e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Apply recorded changes to the products table and renew the lease
+     * Only the lease holder writes changes back; a failed write-back is retried by the next run
+     */
+    @Scheduled(fixedDelayString = "${inventory.ledger.flush-interval-ms:500}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (!renewLease()) {
+                return;
+            }
+            try {
+                int applied = writeBack(changes.get());
+                if (applied > 0) {
+                    logger.debug("Flushed {} inventory changes", applied);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Inventory ledger flush failed, will retry: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Apply the changes committed so far unless a flush has already covered them
+     * Lets queries that filter on the stock column see the ledger's stock without waiting for the next
+     * scheduled flush; concurrent callers share one write-back. If it fails the column stays as of the
+     * last flush.
+     */
+    public void flushPending() {
+        long target = changes.get();
+        if (!enabled || flushedChanges - target >= 0) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (flushedChanges - target >= 0 || !holdsLease()) {
+                return;
+            }
+            try {
+                writeBack(changes.get());
+            } catch (RuntimeException e) {
+                logger.error("Inventory ledger flush failed, stock filters use the last flushed stock: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Take the lease and apply changes that were recorded but never flushed, e.g. after a crash
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        acquireLease();
+        recover();
+    }
+
+    /**
+     * Apply every recorded change that has not reached the products table yet
+     * Reservations of cancelled orders are applied too, since their release was recorded separately
+     */
+    public void recover() {
+        int recovered;
+        synchronized (flushLock) {
+            recovered = writeBack(changes.get());
+        }
+        if (recovered > 0) {
+            logger.warn("Recovered {} unflushed inventory changes", recovered);
+        }
+    }
+
+    /**
+     * Flush and hand the lease over on shutdown, so a replacement instance can start right away
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled || !holdsLease()) {
+            return;
+        }
+        try {
+            synchronized (flushLock) {
+                writeBack(changes.get());
+            }
+        } finally {
+            leaseDeadline = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status ->
+                    inventoryLedgerLeaseRepository.expire(LEASE_NAME, instanceId, LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Number of recorded releases and adjustments waiting to be flushed
+     * @return Pending adjustment count
+     */
+    public long pendingChanges() {
+        return inventoryAdjustmentRepository.count();
+    }
+
+    /**
+     * Check whether this instance currently holds the ledger lease
+     * @return true if reservations and adjustments are accepted
+     */
+    public boolean holdsLease() {
+        return enabled && leaseDeadline - System.nanoTime() > 0;
+    }
+
+    /**
+     * Apply unflushed order reservations and recorded adjustments in one transaction
+     * Called with flushLock held
+     * @param seenChanges Value of changes read before the write-back; covered by it once it succeeds
+     * @return Number of orders and adjustments applied
+     */
+    private int writeBack(long seenChanges) {
+        Integer applied = transactionTemplate.execute(status -> {
+            List<Order> orders = orderRepository.findOrdersWithUncommittedStock();
+            List<InventoryAdjustment> adjustments = inventoryAdjustmentRepository.findByOrderByIdAsc();
+            if (orders.isEmpty() && adjustments.isEmpty()) {
+                return 0;
+            }
+
+            Map<String, Integer> deltas = new TreeMap<>();
+            List<String> orderIds = new ArrayList<>();
+            for (Order order : orders) {
+                orderIds.add(order.getId());
+                for (OrderItem item : order.getItems()) {
+                    deltas.merge(item.getProductId(), -item.getQuantity(), Integer::sum);
+                }
+            }
+            for (InventoryAdjustment adjustment : adjustments) {
+                deltas.merge(adjustment.getProductId(), adjustment.getDelta(), Integer::sum);
+            }
+            apply(deltas, orderIds);
+            inventoryAdjustmentRepository.deleteAllInBatch(adjustments);
+            return orders.size() + adjustments.size();
+        });
+        flushedChanges = seenChanges;
+        return applied != null ? applied : 0;
+    }
+
+    /**
+     * Record releases or adjustments in the caller's transaction
+     */
+    private void record(Map<String, Integer> deltas) {
+        List<InventoryAdjustment> adjustments = new ArrayList<>();
+        deltas.forEach((productId, delta) -> adjustments.add(new InventoryAdjustment(productId, delta)));
+        inventoryAdjustmentRepository.saveAll(adjustments);
+    }
+
+    /**
+     * Take the ledger lease, waiting up to one lease TTL for a crashed owner's lease to run out
+     * @throws IllegalStateException if another instance keeps holding the lease
+     */
+    private void acquireLease() {
+        long deadline = System.nanoTime() + leaseTtl.toNanos() + Duration.ofSeconds(1).toNanos();
+        while (!renewLease()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Inventory ledger lease is held by another instance; "
+                        + "inventory.ledger.enabled=true supports a single application instance only");
+            }
+            logger.info("Inventory ledger lease held by another instance, waiting");
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the inventory ledger lease", e);
+            }
+        }
+        logger.info("Inventory ledger lease taken by instance {}", instanceId);
+    }
+
+    /**
+     * Take or renew the lease
+     * @return true if this instance holds the lease afterwards
+     */
+    private boolean renewLease() {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(leaseTtl);
+        boolean held;
+        try {
+            Integer claimed = transactionTemplate.execute(status ->
+                    inventoryLedgerLeaseRepository.claim(LEASE_NAME, instanceId, expiresAt, now));
+            held = claimed != null && claimed > 0;
+            if (!held && !inventoryLedgerLeaseRepository.existsById(LEASE_NAME)) {
+                transactionTemplate.executeWithoutResult(status ->
+                        inventoryLedgerLeaseRepository.create(LEASE_NAME, instanceId, expiresAt));
+                held = true;
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created the lease first
+            held = false;
+        } catch (RuntimeException e) {
+            // Keep the lease until it runs out locally; the next flush retries
+            logger.error("Failed to renew inventory ledger lease: {}", e.getMessage());
+            return holdsLease();
+        }
+
+        if (held) {
+            leaseDeadline = started + leaseTtl.toNanos();
+        } else if (holdsLease()) {
+            leaseDeadline = System.nanoTime();
+            logger.error("Inventory ledger lease taken over by another instance; refusing further reservations");
+        }
+        return held;
+    }
+
+    private void apply(Map<String, Integer> deltas, List<String> orderIds) {
+        List<Map.Entry<String, Integer>> lines = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : deltas.entrySet()) {
+            if (entry.getValue() != 0) {
+                lines.add(entry);
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (!lines.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPLY_SQL, lines, lines.size(), (ps, line) -> {
+                ps.setInt(1, line.getValue());
+                ps.setTimestamp(2, now);
+                ps.setString(3, line.getKey());
+            });
+        }
+        if (!orderIds.isEmpty()) {
+            orderRepository.markStockCommitted(orderIds);
+        }
+    }
+
+    private static boolean tryTake(AtomicInteger counter, int quantity) {
+        while (true) {
+            int available = counter.get();
+            if (available < quantity) {
+                return false;
+            }
+            if (counter.compareAndSet(available, available - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Counter for a product, seeded from the database on first use
+     * @return Counter, or null if the product does not exist
+     */
+    private AtomicInteger counter(String productId) {
+        if (productId == null) {
+            return null;
+        }
+
+        Stripe stripe = stripes[spread(productId.hashCode()) & (stripes.length - 1)];
+        AtomicInteger counter = stripe.counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+
+        synchronized (stripe) {
+            counter = stripe.counters.get(productId);
+            if (counter == null) {
+                Optional<Integer> stock = productRepository.findStockQuantityById(productId);
+                if (stock.isEmpty()) {
+                    return null;
+                }
+                counter = new AtomicInteger(stock.get());
+                stripe.counters.put(productId, counter);
+            }
+            return counter;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * One hash stripe of counters; its monitor is only taken while seeding a product
+     */
+    private static final class Stripe {
+        private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+    }
+}
@@ -1,30 +1,69 @@
 package com.backend.ecommerce.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
  * Service for JWT token operations
+ *
+ * The signing key and parser are built once. Verified claims are cached by SHA-256 of the token until the
+ * token expires, so a client repeating the same bearer token skips signature verification and JSON parsing;
+ * the cache never holds the token itself. Invalid tokens are not cached. Hit and miss metrics are published
+ * as cache.* meters tagged cache=jwt-claims; jwt.claims-cache.max-size=0 disables the cache.
  */
 @Service
 public class JwtService {
     
-    @Value("${jwt.secret}")
-    private String secret;
+    private final Long expiration;
     
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    private final SecretKey signingKey;
+    
+    private final JwtParser parser;
+    
+    private final Cache<String, Claims> claimsCache;
+    
+    public JwtService(@Value("${jwt.secret}") String secret,
+                      @Value("${jwt.expiration}") Long expiration,
+                      @Value("${jwt.claims-cache.max-size:10000}") long claimsCacheMaxSize,
+                      MeterRegistry meterRegistry) {
+        this.expiration = expiration;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        if (claimsCacheMaxSize > 0) {
+            this.claimsCache = Caffeine.newBuilder()
+                    .maximumSize(claimsCacheMaxSize)
+                    .expireAfter(new UntilTokenExpiry())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, claimsCache, "jwt-claims");
+        } else {
+            this.claimsCache = null;
+        }
+    }
     
     /**
      * Generate a JWT token for a user
@@ -98,12 +137,14 @@ public class JwtService {
     /**
      * Extract all claims from JWT token
      * @param token JWT token
-     * @return All claims
+     * @return All claims of a token with a valid signature that has not expired
+     * @throws JwtException if the token is malformed, tampered with or expired
      */
-    private Claims extractAllClaims(String token) {
-        // TODO: Fix JWT parsing method for version 0.12.3
-        // This is a temporary fix to get the build working
-        throw new UnsupportedOperationException("JWT parsing not implemented for current version");
+    public Claims extractAllClaims(String token) {
+        if (claimsCache == null) {
+            return parser.parseSignedClaims(token).getPayload();
+        }
+        return claimsCache.get(sha256(token), hash -> parser.parseSignedClaims(token).getPayload());
     }
     
     /**
@@ -112,7 +153,11 @@ public class JwtService {
      * @return true if expired, false otherwise
      */
     public Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        try {
+            return extractExpiration(token).before(new Date());
+        } catch (ExpiredJwtException e) {
+            return true;
+        }
     }
     
     /**
@@ -122,8 +167,12 @@ public class JwtService {
      * @return true if valid, false otherwise
      */
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        try {
+            final String username = extractUsername(token);
+            return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
     }
     
     /**
@@ -131,8 +180,7 @@ public class JwtService {
      * @return Secret key
      */
     private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
     }
     
     /**
@@ -162,4 +210,39 @@ public class JwtService {
             return null;
         }
     }
+    
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Keeps cached claims exactly until the token expires
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, Claims> {
+        
+        @Override
+        public long expireAfterCreate(String hash, Claims claims, long currentTime) {
+            Date expiresAt = claims.getExpiration();
+            if (expiresAt == null) {
+                return Long.MAX_VALUE;
+            }
+            long remainingMillis = Math.max(0, expiresAt.getTime() - System.currentTimeMillis());
+            return TimeUnit.MILLISECONDS.toNanos(remainingMillis);
+        }
+        
+        @Override
+        public long expireAfterUpdate(String hash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+        
+        @Override
+        public long expireAfterRead(String hash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -1,11 +1,12 @@
 package com.backend.ecommerce.service;
 
+import com.backend.ecommerce.event.EventKeys;
 import com.backend.ecommerce.event.UserEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.backend.ecommerce.event.UserStatusEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
@@ -23,10 +24,12 @@ public class KafkaProducerService {
     private static final Logger logger = LoggerFactory.getLogger(KafkaProducerService.class);
     
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, Object> kafkaTemplate;
     
+    /** User activity events are high-volume and latency-insensitive */
     @Autowired
-    private ObjectMapper objectMapper;
+    @Qualifier("bulkKafkaTemplate")
+    private KafkaTemplate<String, Object> bulkKafkaTemplate;
     
     @Value("${kafka.topic.user-events:user-events}")
     private String userEventsTopic;
@@ -37,13 +40,16 @@ public class KafkaProducerService {
     @Value("${kafka.topic.user-logins:user-logins}")
     private String userLoginsTopic;
     
+    @Value("${kafka.topic.user-status-updates:user-status-updates}")
+    private String userStatusUpdatesTopic;
+    
     /**
      * Send a user event to the general user events topic
      * @param event The user event to send
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendUserEvent(UserEvent event) {
-        return sendEvent(userEventsTopic, event);
+    public CompletableFuture<SendResult<String, Object>> sendUserEvent(UserEvent event) {
+        return sendEvent(bulkKafkaTemplate, userEventsTopic, event);
     }
     
     /**
@@ -51,8 +57,8 @@ public class KafkaProducerService {
      * @param event The user registration event
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendUserRegistrationEvent(UserEvent event) {
-        return sendEvent(userRegistrationsTopic, event);
+    public CompletableFuture<SendResult<String, Object>> sendUserRegistrationEvent(UserEvent event) {
+        return sendEvent(bulkKafkaTemplate, userRegistrationsTopic, event);
     }
     
     /**
@@ -60,46 +66,50 @@ public class KafkaProducerService {
      * @param event The user login event
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendUserLoginEvent(UserEvent event) {
-        return sendEvent(userLoginsTopic, event);
+    public CompletableFuture<SendResult<String, Object>> sendUserLoginEvent(UserEvent event) {
+        return sendEvent(bulkKafkaTemplate, userLoginsTopic, event);
+    }
+    
+    /**
+     * Send a user status event, which revokes tokens on every instance
+     * Sent on the default producer profile since a lost status event would leave tokens usable
+     * @param event The user status event
+     * @return CompletableFuture for the send operation
+     */
+    public CompletableFuture<SendResult<String, Object>> sendUserStatusEvent(UserStatusEvent event) {
+        return sendEvent(kafkaTemplate, userStatusUpdatesTopic, event);
     }
     
     /**
      * Generic method to send an event to a specific topic
+     * @param template Template of the producer profile to send with
      * @param topic The Kafka topic to send to
      * @param event The event to send
      * @return CompletableFuture for the send operation
      */
-    private CompletableFuture<SendResult<String, String>> sendEvent(String topic, UserEvent event) {
-        try {
-            // Generate event ID if not present
-            if (event.getEventId() == null) {
-                event.setEventId(UUID.randomUUID().toString());
-            }
-            
-            String eventJson = objectMapper.writeValueAsString(event);
-            String key = event.getUserId() != null ? event.getUserId() : event.getUserEmail();
-            
-            logger.info("Sending event to topic {}: {}", topic, eventJson);
-            
-            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(topic, key, eventJson);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    logger.info("Event sent successfully to topic {}: {}", topic, result.getRecordMetadata());
-                } else {
-                    logger.error("Failed to send event to topic {}: {}", topic, ex.getMessage(), ex);
-                }
-            });
-            
-            return future;
-            
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to serialize event: {}", e.getMessage(), e);
-            CompletableFuture<SendResult<String, String>> failedFuture = new CompletableFuture<>();
-            failedFuture.completeExceptionally(e);
-            return failedFuture;
+    private CompletableFuture<SendResult<String, Object>> sendEvent(KafkaTemplate<String, Object> template, String topic,
+                                                                 UserEvent event) {
+        // Generate event ID if not present
+        if (event.getEventId() == null) {
+            event.setEventId(UUID.randomUUID().toString());
         }
+        
+        String key = EventKeys.of(event);
+        
+        logger.info("Sending event to topic {}: {}", topic, event);
+        
+        // The event is encoded by the template's value serializer in the configured format
+        CompletableFuture<SendResult<String, Object>> future = template.send(topic, key, event);
+        
+        future.whenComplete((result, ex) -> {
+            if (ex == null) {
+                logger.info("Event sent successfully to topic {}: {}", topic, result.getRecordMetadata());
+            } else {
+                logger.error("Failed to send event to topic {}: {}", topic, ex.getMessage(), ex);
+            }
+        });
+        
+        return future;
     }
     
     /**
@@ -109,10 +119,10 @@ public class KafkaProducerService {
      * @param message The message content
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendMessage(String topic, String key, String message) {
+    public CompletableFuture<SendResult<String, Object>> sendMessage(String topic, String key, String message) {
         logger.info("Sending message to topic {} with key {}: {}", topic, key, message);
         
-        CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(topic, key, message);
+        CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(topic, key, message);
         
         future.whenComplete((result, ex) -> {
             if (ex == null) {
@@ -0,0 +1,90 @@
+package com.backend.ecommerce.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buffers last-login times and writes them to the users table in periodic batches
+ *
+ * Logins only put the time into a map keyed by user ID, so the login path writes nothing to the users
+ * table; repeated logins of a user before the next flush keep only the latest time. A flush writes every
+ * buffered time with one JDBC batch of single-column updates. Until then users.last_login may lag by up
+ * to users.last-login.flush-interval-ms, and times buffered when the process dies are lost, which is
+ * acceptable for a value that is only displayed.
+ */
+@Component
+public class LastLoginRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginRecorder.class);
+
+    private static final String UPDATE_SQL = "UPDATE users SET last_login = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public LastLoginRecorder(MeterRegistry meterRegistry) {
+        meterRegistry.gaugeMapSize("users.last-login.pending", List.of(), pending);
+    }
+
+    /**
+     * Buffer a login time, keeping the later one if the user already has a buffered login
+     * @param userId User ID
+     * @param loginTime Login time
+     */
+    public void record(String userId, LocalDateTime loginTime) {
+        pending.merge(userId, loginTime, (buffered, latest) -> latest.isAfter(buffered) ? latest : buffered);
+    }
+
+    /**
+     * Write buffered login times to the users table in one batch
+     * A failed flush puts the times back so the next run retries them
+     */
+    @Scheduled(fixedDelayString = "${users.last-login.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        List<Map.Entry<String, LocalDateTime>> batch = new ArrayList<>();
+        for (Map.Entry<String, LocalDateTime> entry : pending.entrySet()) {
+            // Only taken if no newer login arrived meanwhile; a newer one stays for the next flush
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = batch.stream()
+                .map(entry -> new Object[]{Timestamp.valueOf(entry.getValue()), entry.getKey()})
+                .toList();
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+            logger.debug("Flushed last-login times of {} users", batch.size());
+        } catch (RuntimeException e) {
+            logger.error("Last-login flush failed, will retry: {}", e.getMessage());
+            batch.forEach(entry -> record(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Number of users with a buffered login time
+     * @return Buffer size
+     */
+    public int pendingLogins() {
+        return pending.size();
+    }
+}
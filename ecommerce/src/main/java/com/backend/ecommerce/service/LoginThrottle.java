@@ -0,0 +1,125 @@
+package com.backend.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * In-memory sliding-window throttle for failed logins, per account and per client IP
+ *
+ * Each key keeps the times of its most recent failures, at most as many as its limit. A key is throttled
+ * while its limit is reached within the window, until the oldest of those failures leaves it. Only
+ * failures count, so users who log in successfully are never throttled, and a successful login clears
+ * the failures of its account. Checked before the user is loaded or any password is hashed.
+ *
+ * Keys not seen for one window are dropped; the number of tracked keys is bounded by
+ * security.login.throttle.max-keys.
+ */
+@Component
+public class LoginThrottle {
+
+    private final long windowMillis;
+
+    private final int maxFailuresPerAccount;
+
+    private final int maxFailuresPerIp;
+
+    private final Cache<String, FailureWindow> failures;
+
+    public LoginThrottle(@Value("${security.login.throttle.window:15m}") Duration window,
+                         @Value("${security.login.throttle.max-failures-per-account:5}") int maxFailuresPerAccount,
+                         @Value("${security.login.throttle.max-failures-per-ip:50}") int maxFailuresPerIp,
+                         @Value("${security.login.throttle.max-keys:100000}") long maxKeys) {
+        this.windowMillis = window.toMillis();
+        this.maxFailuresPerAccount = maxFailuresPerAccount;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.failures = Caffeine.newBuilder()
+                .expireAfterAccess(window)
+                .maximumSize(maxKeys)
+                .build();
+    }
+
+    /**
+     * Check whether a login attempt may proceed
+     * @param email Email the attempt is for
+     * @param clientIp Client IP, or null if unknown
+     * @return Seconds until the attempt would be allowed, or 0 if it is allowed now
+     */
+    public long retryAfterSeconds(String email, String clientIp) {
+        long now = System.currentTimeMillis();
+        long waitMillis = Math.max(waitMillis(accountKey(email), maxFailuresPerAccount, now),
+                waitMillis(ipKey(clientIp), maxFailuresPerIp, now));
+        return waitMillis == 0 ? 0 : Math.max(1, (waitMillis + 999) / 1000);
+    }
+
+    /**
+     * Record a failed login attempt
+     * @param email Email the attempt was for
+     * @param clientIp Client IP, or null if unknown
+     */
+    public void recordFailure(String email, String clientIp) {
+        long now = System.currentTimeMillis();
+        record(accountKey(email), maxFailuresPerAccount, now);
+        record(ipKey(clientIp), maxFailuresPerIp, now);
+    }
+
+    /**
+     * Record a successful login, which clears the failures of the account
+     * @param email Email of the account
+     */
+    public void recordSuccess(String email) {
+        String key = accountKey(email);
+        if (key != null) {
+            failures.invalidate(key);
+        }
+    }
+
+    private long waitMillis(String key, int limit, long now) {
+        FailureWindow window = key == null ? null : failures.getIfPresent(key);
+        return window == null ? 0 : window.waitMillis(limit, now - windowMillis);
+    }
+
+    private void record(String key, int limit, long now) {
+        if (key != null) {
+            failures.get(key, k -> new FailureWindow()).add(now, limit);
+        }
+    }
+
+    private static String accountKey(String email) {
+        return email == null ? null : "account:" + email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String ipKey(String clientIp) {
+        return clientIp == null ? null : "ip:" + clientIp;
+    }
+
+    /**
+     * Times of the most recent failures of one key, oldest first
+     */
+    private static final class FailureWindow {
+
+        private final ArrayDeque<Long> times = new ArrayDeque<>();
+
+        synchronized void add(long time, int limit) {
+            times.addLast(time);
+            while (times.size() > limit) {
+                times.removeFirst();
+            }
+        }
+
+        synchronized long waitMillis(int limit, long windowStart) {
+            while (!times.isEmpty() && times.peekFirst() <= windowStart) {
+                times.removeFirst();
+            }
+            if (times.size() < limit) {
+                return 0;
+            }
+            return times.peekFirst() - windowStart;
+        }
+    }
+}
@@ -2,18 +2,26 @@ package com.backend.ecommerce.service;
 
 import com.backend.ecommerce.event.OrderEvent;
 import com.backend.ecommerce.event.PaymentEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.backend.ecommerce.event.UserStatusEvent;
+import com.backend.ecommerce.event.serialization.EventPayload;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.SerializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.log.LogAccessor;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.SerializationUtils;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.CompletableFuture;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Service for consuming Kafka events related to order and payment activities
@@ -23,71 +31,68 @@ public class OrderKafkaConsumerService {
     
     private static final Logger logger = LoggerFactory.getLogger(OrderKafkaConsumerService.class);
     
+    private static final LogAccessor deserializationLogger = new LogAccessor(OrderKafkaConsumerService.class);
+    
+    @Autowired
+    private PaymentStatusBatchService paymentStatusBatchService;
+    
+    @Autowired
+    private EventDeduplicator eventDeduplicator;
+    
     @Autowired
-    private OrderService orderService;
+    private TokenRevocationList tokenRevocationList;
     
     @Autowired
-    private ObjectMapper objectMapper;
+    private RegisteredEmailFilter registeredEmailFilter;
     
     /**
-     * Consume payment verification responses from Payment Service
-     * @param message JSON message from Kafka
-     * @param topic Kafka topic name
+     * Consume payment verification responses from Payment Service, one poll at a time
+     * @param records Records of one poll
      */
-    @KafkaListener(topics = "${kafka.topic.payment-verification-response:payment-verification-response}")
-    public void consumePaymentVerificationResponse(@Payload String message, 
-                                                  @Header(KafkaHeaders.TOPIC) String topic) {
-        try {
-            logger.info("Received payment verification response from topic {}: {}", topic, message);
-            
-            PaymentEvent paymentEvent = objectMapper.readValue(message, PaymentEvent.class);
-            
-            // Handle payment verification response
-            handlePaymentVerificationResponse(paymentEvent);
-            
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to deserialize payment verification response: {}", e.getMessage(), e);
-        } catch (Exception e) {
-            logger.error("Error processing payment verification response: {}", e.getMessage(), e);
-        }
+    @KafkaListener(topics = "${kafka.topic.payment-verification-response:payment-verification-response}",
+                   containerFactory = "batchKafkaListenerContainerFactory")
+    public void consumePaymentVerificationResponses(List<ConsumerRecord<String, EventPayload>> records) {
+        logger.info("Received {} payment verification responses", records.size());
+        applyPaymentEvents(records);
     }
     
     /**
-     * Consume payment status updates from Payment Service
-     * @param message JSON message from Kafka
-     * @param topic Kafka topic name
+     * Consume payment status updates from Payment Service, one poll at a time
+     * Only the last update per order in the batch is applied
+     * @param records Records of one poll
      */
-    @KafkaListener(topics = "${kafka.topic.payment-status-updates:payment-status-updates}")
-    public void consumePaymentStatusUpdate(@Payload String message, 
-                                          @Header(KafkaHeaders.TOPIC) String topic) {
-        try {
-            logger.info("Received payment status update from topic {}: {}", topic, message);
-            
-            PaymentEvent paymentEvent = objectMapper.readValue(message, PaymentEvent.class);
-            
-            // Handle payment status update
-            handlePaymentStatusUpdate(paymentEvent);
-            
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to deserialize payment status update: {}", e.getMessage(), e);
-        } catch (Exception e) {
-            logger.error("Error processing payment status update: {}", e.getMessage(), e);
-        }
+    @KafkaListener(topics = "${kafka.topic.payment-status-updates:payment-status-updates}",
+                   containerFactory = "batchKafkaListenerContainerFactory")
+    public void consumePaymentStatusUpdates(List<ConsumerRecord<String, EventPayload>> records) {
+        logger.info("Received {} payment status updates", records.size());
+        applyPaymentEvents(records);
     }
     
     /**
      * Consume user status updates from User Management Service
-     * @param message JSON message from Kafka
+     * Each instance keeps its own token revocation list and email filter, so each one assigns itself every
+     * partition without a consumer group and reads from the oldest retained update on every start
+     * @param payload Message from Kafka
      * @param topic Kafka topic name
      */
-    @KafkaListener(topics = "${kafka.topic.user-status-updates:user-status-updates}")
-    public void consumeUserStatusUpdate(@Payload String message, 
+    @KafkaListener(topicPartitions = @TopicPartition(topic = "${kafka.topic.user-status-updates:user-status-updates}",
+                           partitions = "0-#{${kafka.topic.user-partitions:3} - 1}",
+                           partitionOffsets = @PartitionOffset(partition = "*", initialOffset = "0")),
+                   containerFactory = "broadcastKafkaListenerContainerFactory",
+                   properties = "auto.offset.reset=earliest")
+    public void consumeUserStatusUpdate(@Payload EventPayload payload, 
                                        @Header(KafkaHeaders.TOPIC) String topic) {
         try {
-            logger.info("Received user status update from topic {}: {}", topic, message);
+            UserStatusEvent event = payload.as(UserStatusEvent.class);
+            logger.info("Received user status update from topic {}: {}", topic, event);
+            
+            tokenRevocationList.apply(event);
+            if (event.getStatus() == UserStatusEvent.UserStatus.REGISTERED) {
+                registeredEmailFilter.add(event.getUserEmail());
+            }
             
             // Handle user status update (e.g., user suspended, account verified, etc.)
-            handleUserStatusUpdate(message);
+            handleUserStatusUpdate(event);
             
         } catch (Exception e) {
             logger.error("Error processing user status update: {}", e.getMessage(), e);
@@ -95,90 +100,69 @@ public class OrderKafkaConsumerService {
     }
     
     /**
-     * Handle payment verification response from Payment Service
-     * @param paymentEvent Payment verification response event
+     * Apply the payment events of a batch that have not been processed yet
+     * Redelivered events are dropped before the transaction starts, so replaying a topic costs no writes.
+     * A record the deserializer could not read is raised after the records before it have been applied, so
+     * the error handler commits up to it and dead-letters it.
+     * @param records Records of one poll
      */
-    private void handlePaymentVerificationResponse(PaymentEvent paymentEvent) {
-        try {
-            String orderId = paymentEvent.getOrderId();
-            String userId = paymentEvent.getUserId();
-            
-            if (PaymentEvent.PaymentStatus.SUCCESSFUL.equals(paymentEvent.getStatus())) {
-                // Payment verification successful - update order status
-                logger.info("Payment verification successful for order {}: {}", orderId, paymentEvent.getTransactionId());
-                
-                // Update order payment status
-                orderService.updateOrderPaymentStatus(orderId, "PAID", userId);
-                
-                // Update order status to confirmed
-                orderService.updateOrderStatus(orderId, "CONFIRMED", userId);
-                
-            } else if (PaymentEvent.PaymentStatus.FAILED.equals(paymentEvent.getStatus())) {
-                // Payment verification failed
-                logger.warn("Payment verification failed for order {}: {}", orderId, paymentEvent.getFailureReason());
-                
-                // Update order payment status
-                orderService.updateOrderPaymentStatus(orderId, "FAILED", userId);
-                
-                // Optionally cancel the order or mark as payment failed
-                // orderService.updateOrderStatus(orderId, "PAYMENT_FAILED", userId);
+    private void applyPaymentEvents(List<ConsumerRecord<String, EventPayload>> records) {
+        int unreadable = firstUnreadable(records);
+        List<ConsumerRecord<String, EventPayload>> readable = unreadable < 0 ? records : records.subList(0, unreadable);
+        List<PaymentEvent> events = eventDeduplicator.filterNew(readPaymentEvents(readable), PaymentEvent::getEventId);
+        if (!events.isEmpty()) {
+            paymentStatusBatchService.applyPaymentEvents(events);
+        }
+        if (unreadable >= 0) {
+            ConsumerRecord<String, EventPayload> record = records.get(unreadable);
+            throw new BatchListenerFailedException("Failed to deserialize payment event",
+                    SerializationUtils.getExceptionFromHeader(record,
+                            SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, deserializationLogger),
+                    unreadable);
+        }
+    }
+    
+    /**
+     * Find the first record of a batch whose value the deserializer could not read
+     * @param records Records of one poll
+     * @return Index of the record, or -1 if every record was read
+     */
+    private static int firstUnreadable(List<ConsumerRecord<String, EventPayload>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            if (records.get(i).headers().lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER) != null) {
+                return i;
             }
-            
-        } catch (Exception e) {
-            logger.error("Error handling payment verification response: {}", e.getMessage(), e);
         }
+        return -1;
     }
     
     /**
-     * Handle payment status update from Payment Service
-     * @param paymentEvent Payment status update event
+     * Decode the payment events of a batch, whatever format each record was written in
+     * Records that cannot be read are logged and skipped so they do not block the rest of the batch
+     * @param records Records of one poll
+     * @return Events in delivery order
      */
-    private void handlePaymentStatusUpdate(PaymentEvent paymentEvent) {
-        try {
-            String orderId = paymentEvent.getOrderId();
-            String userId = paymentEvent.getUserId();
-            
-            switch (paymentEvent.getStatus()) {
-                case SUCCESSFUL:
-                    logger.info("Payment successful for order {}: {}", orderId, paymentEvent.getTransactionId());
-                    orderService.updateOrderPaymentStatus(orderId, "PAID", userId);
-                    orderService.updateOrderStatus(orderId, "CONFIRMED", userId);
-                    break;
-                    
-                case FAILED:
-                    logger.warn("Payment failed for order {}: {}", orderId, paymentEvent.getFailureReason());
-                    orderService.updateOrderPaymentStatus(orderId, "FAILED", userId);
-                    break;
-                    
-                case REFUNDED:
-                    logger.info("Payment refunded for order {}: {}", orderId, paymentEvent.getTransactionId());
-                    orderService.updateOrderPaymentStatus(orderId, "REFUNDED", userId);
-                    orderService.updateOrderStatus(orderId, "REFUNDED", userId);
-                    break;
-                    
-                case PARTIALLY_REFUNDED:
-                    logger.info("Payment partially refunded for order {}: {}", orderId, paymentEvent.getTransactionId());
-                    orderService.updateOrderPaymentStatus(orderId, "PARTIALLY_REFUNDED", userId);
-                    break;
-                    
-                default:
-                    logger.debug("Unhandled payment status: {} for order {}", paymentEvent.getStatus(), orderId);
+    private List<PaymentEvent> readPaymentEvents(List<ConsumerRecord<String, EventPayload>> records) {
+        List<PaymentEvent> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, EventPayload> record : records) {
+            try {
+                events.add(record.value().as(PaymentEvent.class));
+            } catch (SerializationException e) {
+                logger.error("Failed to deserialize payment event at {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage());
             }
-            
-        } catch (Exception e) {
-            logger.error("Error handling payment status update: {}", e.getMessage(), e);
         }
+        return events;
     }
     
     /**
      * Handle user status update from User Management Service
-     * @param message User status update message
+     * @param event User status update
      */
-    private void handleUserStatusUpdate(String message) {
+    private void handleUserStatusUpdate(UserStatusEvent event) {
         try {
-            // Parse user status update message
             // This could include user suspension, account verification, etc.
-            logger.info("Processing user status update: {}", message);
+            logger.info("Processing user status update: {}", event);
             
             // Example: If user is suspended, cancel all pending orders
             // if (userSuspended) {
@@ -189,15 +173,4 @@ public class OrderKafkaConsumerService {
             logger.error("Error handling user status update: {}", e.getMessage(), e);
         }
     }
-    
-    /**
-     * Process events asynchronously
-     * @param task The task to execute
-     */
-    private void processAsync(Runnable task) {
-        CompletableFuture.runAsync(task).exceptionally(throwable -> {
-            logger.error("Error in async event processing: {}", throwable.getMessage(), throwable);
-            return null;
-        });
-    }
 }
@@ -1,33 +1,38 @@
 package com.backend.ecommerce.service;
 
+import com.backend.ecommerce.entity.OutboxEvent;
+import com.backend.ecommerce.event.EventKeys;
 import com.backend.ecommerce.event.OrderEvent;
 import com.backend.ecommerce.event.PaymentEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.backend.ecommerce.event.serialization.EncodedEvent;
+import com.backend.ecommerce.event.serialization.EventCodecs;
+import com.backend.ecommerce.repository.OutboxEventRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for producing Kafka events related to order and payment activities
+ * Events go through the transactional outbox, so every method must run inside the transaction
+ * that makes the change the event announces
  */
 @Service
+@Transactional(propagation = Propagation.MANDATORY)
 public class OrderKafkaProducerService {
     
     private static final Logger logger = LoggerFactory.getLogger(OrderKafkaProducerService.class);
     
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private OutboxEventRepository outboxEventRepository;
     
     @Autowired
-    private ObjectMapper objectMapper;
+    private EventCodecs eventCodecs;
     
     @Value("${kafka.topic.order-events:order-events}")
     private String orderEventsTopic;
@@ -44,37 +49,33 @@ public class OrderKafkaProducerService {
     /**
      * Send an order event to the general order events topic
      * @param event The order event to send
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendOrderEvent(OrderEvent event) {
-        return sendEvent(orderEventsTopic, event);
+    public void sendOrderEvent(OrderEvent event) {
+        sendEvent(orderEventsTopic, event);
     }
     
     /**
      * Send an order status update event
      * @param event The order status update event
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendOrderStatusUpdate(OrderEvent event) {
-        return sendEvent(orderStatusUpdatesTopic, event);
+    public void sendOrderStatusUpdate(OrderEvent event) {
+        sendEvent(orderStatusUpdatesTopic, event);
     }
     
     /**
      * Send a payment event to the payment events topic
      * @param event The payment event to send
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentEvent(PaymentEvent event) {
-        return sendEvent(paymentEventsTopic, event);
+    public void sendPaymentEvent(PaymentEvent event) {
+        sendEvent(paymentEventsTopic, event);
     }
     
     /**
      * Send a payment verification request
      * @param event The payment verification event
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentVerificationRequest(PaymentEvent event) {
-        return sendEvent(paymentVerificationTopic, event);
+    public void sendPaymentVerificationRequest(PaymentEvent event) {
+        sendEvent(paymentVerificationTopic, event);
     }
     
     /**
@@ -83,27 +84,25 @@ public class OrderKafkaProducerService {
      * @param userId User ID
      * @param orderNumber Order number
      * @param totalAmount Total amount
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendOrderCreatedEvent(String orderId, String userId, String orderNumber, java.math.BigDecimal totalAmount) {
+    public void sendOrderCreatedEvent(String orderId, String userId, String orderNumber, java.math.BigDecimal totalAmount) {
         OrderEvent event = new OrderEvent(OrderEvent.ORDER_CREATED, orderId, userId);
         event.setOrderNumber(orderNumber);
         event.setTotalAmount(totalAmount);
         event.setStatus(OrderEvent.OrderStatus.PENDING);
         event.setPaymentStatus(OrderEvent.PaymentStatus.PENDING);
-        return sendOrderEvent(event);
+        sendOrderEvent(event);
     }
     
     /**
      * Send order confirmed event
      * @param orderId Order ID
      * @param userId User ID
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendOrderConfirmedEvent(String orderId, String userId) {
+    public void sendOrderConfirmedEvent(String orderId, String userId) {
         OrderEvent event = new OrderEvent(OrderEvent.ORDER_CONFIRMED, orderId, userId);
         event.setStatus(OrderEvent.OrderStatus.CONFIRMED);
-        return sendOrderStatusUpdate(event);
+        sendOrderStatusUpdate(event);
     }
     
     /**
@@ -111,14 +110,13 @@ public class OrderKafkaProducerService {
      * @param orderId Order ID
      * @param userId User ID
      * @param paymentTransactionId Payment transaction ID
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendOrderPaidEvent(String orderId, String userId, String paymentTransactionId) {
+    public void sendOrderPaidEvent(String orderId, String userId, String paymentTransactionId) {
         OrderEvent event = new OrderEvent(OrderEvent.ORDER_PAID, orderId, userId);
         event.setStatus(OrderEvent.OrderStatus.PAID);
         event.setPaymentStatus(OrderEvent.PaymentStatus.PAID);
         event.setPaymentTransactionId(paymentTransactionId);
-        return sendOrderStatusUpdate(event);
+        sendOrderStatusUpdate(event);
     }
     
     /**
@@ -126,25 +124,23 @@ public class OrderKafkaProducerService {
      * @param orderId Order ID
      * @param userId User ID
      * @param trackingNumber Tracking number
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendOrderShippedEvent(String orderId, String userId, String trackingNumber) {
+    public void sendOrderShippedEvent(String orderId, String userId, String trackingNumber) {
         OrderEvent event = new OrderEvent(OrderEvent.ORDER_SHIPPED, orderId, userId);
         event.setStatus(OrderEvent.OrderStatus.SHIPPED);
         event.setTrackingNumber(trackingNumber);
-        return sendOrderStatusUpdate(event);
+        sendOrderStatusUpdate(event);
     }
     
     /**
      * Send order delivered event
      * @param orderId Order ID
      * @param userId User ID
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendOrderDeliveredEvent(String orderId, String userId) {
+    public void sendOrderDeliveredEvent(String orderId, String userId) {
         OrderEvent event = new OrderEvent(OrderEvent.ORDER_DELIVERED, orderId, userId);
         event.setStatus(OrderEvent.OrderStatus.DELIVERED);
-        return sendOrderStatusUpdate(event);
+        sendOrderStatusUpdate(event);
     }
     
     /**
@@ -152,13 +148,12 @@ public class OrderKafkaProducerService {
      * @param orderId Order ID
      * @param userId User ID
      * @param reason Cancellation reason
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendOrderCancelledEvent(String orderId, String userId, String reason) {
+    public void sendOrderCancelledEvent(String orderId, String userId, String reason) {
         OrderEvent event = new OrderEvent(OrderEvent.ORDER_CANCELLED, orderId, userId);
         event.setStatus(OrderEvent.OrderStatus.CANCELLED);
         event.setMetadata(java.util.Map.of("cancellationReason", reason));
-        return sendOrderStatusUpdate(event);
+        sendOrderStatusUpdate(event);
     }
     
     /**
@@ -167,45 +162,37 @@ public class OrderKafkaProducerService {
      * @param userId User ID
      * @param amount Payment amount
      * @param paymentMethod Payment method
-     * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentVerificationRequest(String orderId, String userId, java.math.BigDecimal amount, String paymentMethod) {
+    public void sendPaymentVerificationRequest(String orderId, String userId, java.math.BigDecimal amount, String paymentMethod) {
         PaymentEvent event = new PaymentEvent(PaymentEvent.PAYMENT_VERIFICATION_REQUESTED, orderId, userId, amount);
         event.setPaymentMethod(paymentMethod);
         event.setStatus(PaymentEvent.PaymentStatus.PENDING);
-        return sendPaymentVerificationRequest(event);
+        sendPaymentVerificationRequest(event);
     }
     
     /**
-     * Generic method to send an event to a specific topic
+     * Generic method to queue an event for a specific topic
+     * The event is written to the outbox in the caller's transaction and published by {@link OutboxRelay}
+     * after commit, so the caller never waits on the broker and a rolled back transaction sends nothing
      * @param topic The Kafka topic to send to
      * @param event The event to send
-     * @return CompletableFuture for the send operation
      */
-    private <T> CompletableFuture<SendResult<String, String>> sendEvent(String topic, T event) {
-        try {
-            String eventJson = objectMapper.writeValueAsString(event);
-            String key = extractKey(event);
-            
-            logger.info("Sending event to topic {}: {}", topic, eventJson);
-            
-            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(topic, key, eventJson);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    logger.info("Event sent successfully to topic {}: {}", topic, result.getRecordMetadata());
-                } else {
-                    logger.error("Failed to send event to topic {}: {}", topic, ex.getMessage(), ex);
-                }
-            });
-            
-            return future;
-            
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to serialize event: {}", e.getMessage(), e);
-            CompletableFuture<SendResult<String, String>> failedFuture = new CompletableFuture<>();
-            failedFuture.completeExceptionally(e);
-            return failedFuture;
+    private <T> void sendEvent(String topic, T event) {
+        assignEventId(event);
+        EncodedEvent encoded = eventCodecs.encode(event);
+        outboxEventRepository.save(new OutboxEvent(topic, extractKey(event), encoded));
+        logger.debug("Queued {} event for topic {} ({} bytes)", encoded.getFormat(), topic, encoded.getData().length);
+    }
+    
+    /**
+     * Generate an event ID if not present; consumers use it to drop redeliveries
+     * @param event The event to send
+     */
+    private <T> void assignEventId(T event) {
+        if (event instanceof OrderEvent && ((OrderEvent) event).getEventId() == null) {
+            ((OrderEvent) event).setEventId(UUID.randomUUID().toString());
+        } else if (event instanceof PaymentEvent && ((PaymentEvent) event).getEventId() == null) {
+            ((PaymentEvent) event).setEventId(UUID.randomUUID().toString());
         }
     }
     
@@ -216,12 +203,10 @@ public class OrderKafkaProducerService {
      */
     private <T> String extractKey(T event) {
         if (event instanceof OrderEvent) {
-            OrderEvent orderEvent = (OrderEvent) event;
-            return orderEvent.getOrderId() != null ? orderEvent.getOrderId() : orderEvent.getUserId();
+            return EventKeys.of((OrderEvent) event);
         } else if (event instanceof PaymentEvent) {
-            PaymentEvent paymentEvent = (PaymentEvent) event;
-            return paymentEvent.getOrderId() != null ? paymentEvent.getOrderId() : paymentEvent.getUserId();
+            return EventKeys.of((PaymentEvent) event);
         }
-        return UUID.randomUUID().toString();
+        throw new IllegalArgumentException("No key for " + event.getClass().getSimpleName());
     }
 }
@@ -47,6 +47,9 @@ public class OrderManagementService {
     @Autowired
     private OrderKafkaProducerService kafkaProducerService;
     
+    @Autowired
+    private UserOrderStatsService userOrderStatsService;
+    
     /**
      * Create a new order from cart with Kafka event publishing
      * @param userId User ID
@@ -61,7 +64,7 @@ public class OrderManagementService {
                     .orElseThrow(() -> new RuntimeException("User not found: " + userId));
             
             // Get user's active cart
-            Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+            Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                     .orElseThrow(() -> new RuntimeException("No active cart found for user: " + userId));
             
             if (cart.getItems().isEmpty()) {
@@ -115,6 +118,7 @@ public class OrderManagementService {
             
             // Save order
             Order savedOrder = orderRepository.save(order);
+            userOrderStatsService.recordOrderPlaced(savedOrder);
             
             // Clear cart
             cart.setStatus(Cart.CartStatus.CONVERTED);
@@ -170,11 +174,13 @@ public class OrderManagementService {
                 throw new RuntimeException("Unauthorized to update this order");
             }
             
+            Order.OrderStatus previousStatus = order.getStatus();
             Order.OrderStatus newStatus = Order.OrderStatus.valueOf(status.toUpperCase());
             order.setStatus(newStatus);
             order.setUpdatedAt(LocalDateTime.now());
             
             Order savedOrder = orderRepository.save(order);
+            userOrderStatsService.recordStatusChange(savedOrder, previousStatus);
             
             // Publish order status update event via Kafka
             switch (newStatus) {
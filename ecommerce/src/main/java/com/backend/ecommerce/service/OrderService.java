@@ -1,5 +1,6 @@
 package com.backend.ecommerce.service;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -12,6 +13,7 @@ public interface OrderService {
      * @param userId User ID
      * @param orderData Order data including delivery address and payment method
      * @return Response with created order details
+     * @throws OutOfStockException if any line cannot be reserved; nothing is saved
      */
     Map<String, Object> createOrder(String userId, Map<String, Object> orderData);
     
@@ -40,6 +42,16 @@ public interface OrderService {
      */
     Map<String, Object> getUserOrders(String userId, int page, int size);
     
+    /**
+     * Get user's order history using keyset pagination, newest first
+     * @param userId User ID
+     * @param cursor Continuation token from the previous page, or null for the first page
+     * @param size Page size
+     * @param includeTotal Whether to also count all of the user's orders
+     * @return Orders and the cursor of the next page
+     */
+    Map<String, Object> scrollUserOrders(String userId, String cursor, int size, boolean includeTotal);
+    
     /**
      * Get user's order history
      * @param userId User ID
@@ -129,6 +141,12 @@ public interface OrderService {
      */
     Map<String, Object> getUserOrderStats(String userId);
     
+    /**
+     * Recompute the order statistics of every user from the orders table (admin)
+     * @return Number of users with statistics
+     */
+    Map<String, Object> rebuildUserOrderStats();
+    
     /**
      * Get order details for admin (with full information)
      * @param orderId Order ID
@@ -214,4 +232,22 @@ public interface OrderService {
      * @return Updated order
      */
     Map<String, Object> updateOrderDelivery(String orderId, String trackingNumber, Object estimatedDelivery);
+    
+    /**
+     * Thrown when an order cannot be created because stock runs short for one or more lines
+     * The order transaction rolls back; the failed lines are reported to the client
+     */
+    class OutOfStockException extends RuntimeException {
+        
+        private final List<Map<String, Object>> failedItems;
+        
+        public OutOfStockException(List<Map<String, Object>> failedItems) {
+            super("Insufficient stock for " + failedItems.size() + " order line(s)");
+            this.failedItems = List.copyOf(failedItems);
+        }
+        
+        public List<Map<String, Object>> getFailedItems() {
+            return failedItems;
+        }
+    }
 }
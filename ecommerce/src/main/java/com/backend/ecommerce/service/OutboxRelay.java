@@ -0,0 +1,209 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.OutboxEvent;
+import com.backend.ecommerce.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outbox rows to Kafka in the background (outbox.relay.enabled=true)
+ *
+ * Each run claims the oldest unclaimed rows for outbox.relay.lease in a short transaction, sends them with
+ * no transaction or row lock held, and deletes the acknowledged rows and releases the rest in a second
+ * transaction. A relay that dies mid-batch leaves its claim to expire, after which the rows are sent again,
+ * so delivery is at least once.
+ *
+ * Events of one key go out in ID order: a key is only claimed by the relay holding its oldest row, its
+ * events are sent one round at a time, and the first failed send stops the key for the rest of the batch.
+ * Events of other keys share each round, and with it the producer batches.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    @Value("${outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.relay.send-timeout:10s}")
+    private Duration sendTimeout;
+
+    // Must cover a batch's send rounds; an expired claim lets another relay send the rows again
+    @Value("${outbox.relay.lease:60s}")
+    private Duration lease;
+
+    private final String relayId = UUID.randomUUID().toString();
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Value("${kafka.topic.payment-verification:payment-verification}")
+    private String paymentVerificationTopic;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    @Qualifier("criticalKafkaTemplate")
+    private KafkaTemplate<String, Object> criticalKafkaTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Scheduled run; drains the outbox batch by batch
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:100}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // A full batch means more rows may be waiting
+            int published;
+            do {
+                published = publishPending();
+            } while (published == batchSize);
+        } catch (Exception e) {
+            logger.error("Outbox relay failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Publish one batch of pending rows
+     * @return Number of rows published and deleted
+     */
+    public int publishPending() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> claim());
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> published = new ArrayList<>(batch.size());
+        Map<Object, Deque<OutboxEvent>> byKey = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            // Keyless events have no order to keep
+            Object key = event.getMessageKey() != null ? event.getMessageKey() : event.getId();
+            byKey.computeIfAbsent(key, k -> new ArrayDeque<>()).add(event);
+        }
+        while (!byKey.isEmpty()) {
+            // One event per key per round, so a key's next event is only sent once the previous one is acknowledged
+            List<OutboxEvent> round = new ArrayList<>(byKey.size());
+            List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(byKey.size());
+            for (Deque<OutboxEvent> events : byKey.values()) {
+                round.add(events.peek());
+                sends.add(send(events.peek()));
+            }
+
+            Iterator<Deque<OutboxEvent>> keys = byKey.values().iterator();
+            for (int i = 0; i < round.size(); i++) {
+                Deque<OutboxEvent> events = keys.next();
+                boolean acknowledged = awaitAck(round.get(i), sends.get(i));
+                if (acknowledged) {
+                    published.add(events.poll().getId());
+                }
+                if (!acknowledged || events.isEmpty()) {
+                    keys.remove();
+                }
+            }
+        }
+
+        Set<Long> publishedIds = new HashSet<>(published);
+        List<Long> unpublished = batch.stream().map(OutboxEvent::getId).filter(id -> !publishedIds.contains(id)).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxEventRepository.deleteAllByIdInBatch(published);
+            if (!unpublished.isEmpty()) {
+                outboxEventRepository.release(unpublished, relayId);
+            }
+        });
+        return published.size();
+    }
+
+    /**
+     * Claim the oldest unclaimed rows, skipping keys whose oldest row another relay holds
+     */
+    private List<OutboxEvent> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> candidates = outboxEventRepository.findUnclaimed(now, Limit.of(batchSize));
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        Set<Long> candidateIds = new HashSet<>();
+        Set<String> keys = new HashSet<>();
+        for (OutboxEvent event : candidates) {
+            candidateIds.add(event.getId());
+            if (event.getMessageKey() != null) {
+                keys.add(event.getMessageKey());
+            }
+        }
+        Set<String> heldElsewhere = new HashSet<>();
+        if (!keys.isEmpty()) {
+            for (Object[] oldest : outboxEventRepository.findOldestIdByMessageKeyIn(keys)) {
+                if (!candidateIds.contains((Long) oldest[1])) {
+                    heldElsewhere.add((String) oldest[0]);
+                }
+            }
+        }
+
+        List<OutboxEvent> claimed = candidates.stream()
+                .filter(event -> event.getMessageKey() == null || !heldElsewhere.contains(event.getMessageKey()))
+                .toList();
+        if (!claimed.isEmpty()) {
+            outboxEventRepository.claim(claimed.stream().map(OutboxEvent::getId).toList(), relayId, now.plus(lease));
+        }
+        return claimed;
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(OutboxEvent event) {
+        try {
+            // Verification requests hold up order confirmation, so they skip the batching of the default profile
+            KafkaTemplate<String, Object> template = paymentVerificationTopic.equals(event.getTopic())
+                    ? criticalKafkaTemplate : kafkaTemplate;
+            return template.send(event.getTopic(), event.getMessageKey(), event.toEncodedEvent());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private boolean awaitAck(OutboxEvent event, CompletableFuture<SendResult<String, Object>> send) {
+        try {
+            send.get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            logger.warn("Failed to publish outbox event {} to topic {}, retrying later: {}",
+                    event.getId(), event.getTopic(), e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.backend.ecommerce.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs password hashing on the bounded passwordHashingExecutor
+ *
+ * At most security.password.hashing.pool-size hashes run at once and at most queue-capacity wait; beyond
+ * that a request is rejected at once with {@link TaskRejectedException} instead of queueing behind the
+ * backlog, so a burst of logins cannot take every CPU or grow the queue without bound.
+ *
+ * Logins for unknown emails are checked against a dummy hash made with the current encoder, so they cost
+ * as much as a wrong password and their timing does not reveal whether an account exists.
+ */
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    @Qualifier("passwordHashingExecutor")
+    private ThreadPoolTaskExecutor passwordHashingExecutor;
+
+    @Value("${security.password.hashing.timeout:5s}")
+    private Duration timeout;
+
+    private volatile String dummyHash;
+
+    /**
+     * Check a raw password against a stored hash
+     * @param rawPassword Password as entered
+     * @param encodedPassword Stored hash
+     * @return true if the password matches
+     * @throws TaskRejectedException if the pool is saturated or the check timed out
+     */
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Check a raw password the way {@link #matches} does when there is no account to check it against
+     * @param rawPassword Password as entered
+     * @return Always false
+     * @throws TaskRejectedException if the pool is saturated or the check timed out
+     */
+    public boolean matchesNoAccount(CharSequence rawPassword) {
+        return run(() -> {
+            passwordEncoder.matches(rawPassword, dummyHash());
+            return false;
+        });
+    }
+
+    /**
+     * Hash a raw password
+     * @param rawPassword Password as entered
+     * @return Hash to store
+     * @throws TaskRejectedException if the pool is saturated or hashing timed out
+     */
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            // Racing threads may each make one; any of them will do
+            hash = passwordEncoder.encode(UUID.randomUUID().toString());
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future = passwordHashingExecutor.submit(task);
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new TaskRejectedException("Password hashing timed out after " + timeout);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new TaskRejectedException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -17,6 +17,14 @@ public interface PaymentGatewayService {
      */
     Map<String, Object> processPayment(BigDecimal amount, String paymentMethod, Map<String, Object> paymentData);
     
+    /**
+     * Look up a payment by the reference it was submitted with
+     * Settles payments whose gateway call timed out without an answer
+     * @param reference Value of the "reference" entry in the payment data
+     * @return Gateway response as from processPayment, or status NOT_FOUND if the gateway never received the payment
+     */
+    Map<String, Object> lookupPayment(String reference);
+    
     /**
      * Verify payment transaction
      * @param transactionId Transaction ID from gateway
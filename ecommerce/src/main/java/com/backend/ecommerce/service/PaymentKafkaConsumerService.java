@@ -1,19 +1,20 @@
 package com.backend.ecommerce.service;
 
+import com.backend.ecommerce.entity.Payment;
 import com.backend.ecommerce.event.PaymentEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.backend.ecommerce.event.serialization.EventPayload;
+import com.backend.ecommerce.repository.PaymentRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.SerializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.util.concurrent.CompletableFuture;
+import java.util.List;
 
 /**
  * Service for consuming Kafka events related to payment activities
@@ -26,128 +27,147 @@ public class PaymentKafkaConsumerService {
     @Autowired
     private PaymentService paymentService;
     
+    @Autowired
+    private PaymentRepository paymentRepository;
+    
     @Autowired
     private PaymentKafkaProducerService kafkaProducerService;
     
     @Autowired
-    private ObjectMapper objectMapper;
+    private EventDeduplicator eventDeduplicator;
+    
+    @Autowired
+    private PaymentVerificationPipeline paymentVerificationPipeline;
     
     /**
      * Consume payment verification requests from Order Management Service
-     * @param message JSON message from Kafka
-     * @param topic Kafka topic name
+     * Requests processed before are dropped; the rest are handed to the {@link PaymentVerificationPipeline},
+     * which acknowledges each record once its payment has been handled, so the listener thread is free
+     * for the next record while the gateway call is in progress
+     * @param record Request record
+     * @param acknowledgment Acknowledgment of the record
      */
-    @KafkaListener(topics = "${kafka.topic.payment-verification:payment-verification}")
-    public void consumePaymentVerificationRequest(@Payload String message, 
-                                                 @Header(KafkaHeaders.TOPIC) String topic) {
+    @KafkaListener(id = PaymentVerificationPipeline.LISTENER_ID,
+                   topics = "${kafka.topic.payment-verification:payment-verification}",
+                   containerFactory = "pipelineKafkaListenerContainerFactory")
+    public void consumePaymentVerificationRequest(ConsumerRecord<String, EventPayload> record, Acknowledgment acknowledgment) {
+        PaymentEvent paymentEvent;
         try {
-            logger.info("Received payment verification request from topic {}: {}", topic, message);
-            
-            PaymentEvent paymentEvent = objectMapper.readValue(message, PaymentEvent.class);
-            
-            // Handle payment verification request
-            handlePaymentVerificationRequest(paymentEvent);
-            
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to deserialize payment verification request: {}", e.getMessage(), e);
-        } catch (Exception e) {
-            logger.error("Error processing payment verification request: {}", e.getMessage(), e);
+            paymentEvent = record.value().as(PaymentEvent.class);
+        } catch (SerializationException e) {
+            logger.error("Failed to deserialize payment verification request at {}-{}@{}: {}",
+                    record.topic(), record.partition(), record.offset(), e.getMessage());
+            acknowledgment.acknowledge();
+            return;
         }
+        
+        if (eventDeduplicator.filterNew(List.of(paymentEvent), PaymentEvent::getEventId).isEmpty()) {
+            acknowledgment.acknowledge();
+            return;
+        }
+        
+        logger.info("Received payment verification request for order {}", paymentEvent.getOrderId());
+        paymentVerificationPipeline.submit(record, paymentEvent.getOrderId(), paymentEvent.getEventId(), acknowledgment,
+                () -> handlePaymentVerificationRequest(paymentEvent));
     }
     
     /**
      * Handle payment verification request from Order Management Service
+     * Failures propagate, so the pipeline retries the request and dead-letters it instead of recording it as processed
      * @param paymentEvent Payment verification request event
      */
     private void handlePaymentVerificationRequest(PaymentEvent paymentEvent) {
-        try {
-            String orderId = paymentEvent.getOrderId();
-            String userId = paymentEvent.getUserId();
-            BigDecimal amount = paymentEvent.getAmount();
-            String paymentMethod = paymentEvent.getPaymentMethod();
-            
-            logger.info("Processing payment verification request for order {}: amount={}, method={}", 
-                       orderId, amount, paymentMethod);
-            
-            // Send payment initiated event
-            kafkaProducerService.sendPaymentInitiatedEvent(orderId, userId, amount, paymentMethod);
-            
-            // Send payment processing event
-            kafkaProducerService.sendPaymentProcessingEvent(orderId, userId, amount, paymentMethod);
-            
-            // Process the payment through the gateway
-            processPaymentForOrder(orderId, userId, amount, paymentMethod);
-            
-        } catch (Exception e) {
-            logger.error("Error handling payment verification request: {}", e.getMessage(), e);
-        }
+        String orderId = paymentEvent.getOrderId();
+        String userId = paymentEvent.getUserId();
+        BigDecimal amount = paymentEvent.getAmount();
+        String paymentMethod = paymentEvent.getPaymentMethod();
+        
+        logger.info("Processing payment verification request for order {}: amount={}, method={}", 
+                   orderId, amount, paymentMethod);
+        
+        // Send payment initiated event
+        kafkaProducerService.sendPaymentInitiatedEvent(orderId, userId, amount, paymentMethod);
+        
+        // Send payment processing event
+        kafkaProducerService.sendPaymentProcessingEvent(orderId, userId, amount, paymentMethod);
+        
+        // Process the payment through the gateway
+        processPaymentForOrder(orderId, userId, amount, paymentMethod);
     }
     
     /**
      * Process payment for an order
+     * A declined payment is published as failed; errors propagate to the caller.
+     * At most one charge per order is unresolved at a time, so a retry never starts a second one
      * @param orderId Order ID
      * @param userId User ID
      * @param amount Payment amount
      * @param paymentMethod Payment method
      */
     private void processPaymentForOrder(String orderId, String userId, BigDecimal amount, String paymentMethod) {
-        try {
-            // Create mock payment data (in real implementation, this would come from the request)
-            java.util.Map<String, Object> paymentData = new java.util.HashMap<>();
-            paymentData.put("cardNumber", "****-****-****-1234");
-            paymentData.put("expiryMonth", "12");
-            paymentData.put("expiryYear", "2026");
-            paymentData.put("cvv", "123");
-            paymentData.put("cardholderName", "John Doe");
+        // A retried request must not charge the order again: a successful payment is republished, and a payment
+        // still PROCESSING or UNKNOWN may have been charged, so it is left to reconciliation to settle and publish
+        List<Payment> payments = paymentRepository.findByOrderId(orderId);
+        Payment paid = payments.stream()
+                .filter(payment -> payment.getStatus() == Payment.PaymentStatus.SUCCESSFUL)
+                .findFirst()
+                .orElse(null);
+        if (paid != null) {
+            kafkaProducerService.sendPaymentSuccessfulEvent(orderId, userId, amount, paymentMethod, paid.getTransactionId());
+            kafkaProducerService.sendPaymentVerificationResponse(orderId, userId, amount, paid.getTransactionId(), true);
+            logger.info("Order {} already paid: transactionId={}", orderId, paid.getTransactionId());
+            return;
+        }
+        Payment unresolved = payments.stream()
+                .filter(payment -> payment.getStatus() == Payment.PaymentStatus.PROCESSING
+                        || payment.getStatus() == Payment.PaymentStatus.UNKNOWN)
+                .findFirst()
+                .orElse(null);
+        if (unresolved != null) {
+            logger.warn("Payment {} for order {} is still {}, not charging again; reconciliation settles it",
+                    unresolved.getId(), orderId, unresolved.getStatus());
+            return;
+        }
+        
+        // Create mock payment data (in real implementation, this would come from the request)
+        java.util.Map<String, Object> paymentData = new java.util.HashMap<>();
+        paymentData.put("cardNumber", "****-****-****-1234");
+        paymentData.put("expiryMonth", "12");
+        paymentData.put("expiryYear", "2026");
+        paymentData.put("cvv", "123");
+        paymentData.put("cardholderName", "John Doe");
+        
+        // Process payment through the service
+        java.util.Map<String, Object> paymentResult = paymentService.processPayment(
+            orderId, userId, amount, paymentMethod, paymentData
+        );
+        
+        // Handle payment result
+        if ("UNKNOWN".equals(paymentResult.get("status"))) {
+            // The gateway timed out; reconciliation publishes the outcome once it is known
+            logger.warn("Payment outcome unknown for order {}: paymentId={}", orderId, paymentResult.get("paymentId"));
+            
+        } else if ((Boolean) paymentResult.get("success")) {
+            String transactionId = (String) paymentResult.get("transactionId");
             
-            // Process payment through the service
-            java.util.Map<String, Object> paymentResult = paymentService.processPayment(
-                orderId, userId, amount, paymentMethod, paymentData
-            );
+            // Send payment successful event
+            kafkaProducerService.sendPaymentSuccessfulEvent(orderId, userId, amount, paymentMethod, transactionId);
             
-            // Handle payment result
-            if ((Boolean) paymentResult.get("success")) {
-                String transactionId = (String) paymentResult.get("transactionId");
-                
-                // Send payment successful event
-                kafkaProducerService.sendPaymentSuccessfulEvent(orderId, userId, amount, paymentMethod, transactionId);
-                
-                // Send payment verification response
-                kafkaProducerService.sendPaymentVerificationResponse(orderId, userId, amount, transactionId, true);
-                
-                logger.info("Payment processed successfully for order {}: transactionId={}", orderId, transactionId);
-                
-            } else {
-                String failureReason = (String) paymentResult.get("failureReason");
-                
-                // Send payment failed event
-                kafkaProducerService.sendPaymentFailedEvent(orderId, userId, amount, paymentMethod, failureReason);
-                
-                // Send payment verification response (failed)
-                kafkaProducerService.sendPaymentVerificationResponse(orderId, userId, amount, null, false);
-                
-                logger.warn("Payment failed for order {}: reason={}", orderId, failureReason);
-            }
+            // Send payment verification response
+            kafkaProducerService.sendPaymentVerificationResponse(orderId, userId, amount, transactionId, true);
             
-        } catch (Exception e) {
-            logger.error("Error processing payment for order {}: {}", orderId, e.getMessage(), e);
+            logger.info("Payment processed successfully for order {}: transactionId={}", orderId, transactionId);
             
-            // Send payment failed event due to processing error
-            kafkaProducerService.sendPaymentFailedEvent(orderId, userId, amount, paymentMethod, "Processing error: " + e.getMessage());
+        } else {
+            String failureReason = (String) paymentResult.get("failureReason");
+            
+            // Send payment failed event
+            kafkaProducerService.sendPaymentFailedEvent(orderId, userId, amount, paymentMethod, failureReason);
             
             // Send payment verification response (failed)
             kafkaProducerService.sendPaymentVerificationResponse(orderId, userId, amount, null, false);
+            
+            logger.warn("Payment failed for order {}: reason={}", orderId, failureReason);
         }
     }
-    
-    /**
-     * Process events asynchronously
-     * @param task The task to execute
-     */
-    private void processAsync(Runnable task) {
-        CompletableFuture.runAsync(task).exceptionally(throwable -> {
-            logger.error("Error in async payment event processing: {}", throwable.getMessage(), throwable);
-            return null;
-        });
-    }
 }
@@ -1,11 +1,11 @@
 package com.backend.ecommerce.service;
 
+import com.backend.ecommerce.event.EventKeys;
 import com.backend.ecommerce.event.PaymentEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
@@ -24,10 +24,12 @@ public class PaymentKafkaProducerService {
     private static final Logger logger = LoggerFactory.getLogger(PaymentKafkaProducerService.class);
     
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, Object> kafkaTemplate;
     
+    /** Order confirmation waits on verification responses, so they are sent without lingering */
     @Autowired
-    private ObjectMapper objectMapper;
+    @Qualifier("criticalKafkaTemplate")
+    private KafkaTemplate<String, Object> criticalKafkaTemplate;
     
     @Value("${kafka.topic.payment-events:payment-events}")
     private String paymentEventsTopic;
@@ -46,7 +48,7 @@ public class PaymentKafkaProducerService {
      * @param event The payment event to send
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentEvent(PaymentEvent event) {
+    public CompletableFuture<SendResult<String, Object>> sendPaymentEvent(PaymentEvent event) {
         return sendEvent(paymentEventsTopic, event);
     }
     
@@ -55,7 +57,7 @@ public class PaymentKafkaProducerService {
      * @param event The payment status update event
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentStatusUpdate(PaymentEvent event) {
+    public CompletableFuture<SendResult<String, Object>> sendPaymentStatusUpdate(PaymentEvent event) {
         return sendEvent(paymentStatusUpdatesTopic, event);
     }
     
@@ -64,8 +66,8 @@ public class PaymentKafkaProducerService {
      * @param event The payment verification response event
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentVerificationResponse(PaymentEvent event) {
-        return sendEvent(paymentVerificationResponseTopic, event);
+    public CompletableFuture<SendResult<String, Object>> sendPaymentVerificationResponse(PaymentEvent event) {
+        return sendEvent(criticalKafkaTemplate, paymentVerificationResponseTopic, event);
     }
     
     /**
@@ -73,7 +75,7 @@ public class PaymentKafkaProducerService {
      * @param event The payment refund event
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentRefundEvent(PaymentEvent event) {
+    public CompletableFuture<SendResult<String, Object>> sendPaymentRefundEvent(PaymentEvent event) {
         return sendEvent(paymentRefundsTopic, event);
     }
     
@@ -85,7 +87,7 @@ public class PaymentKafkaProducerService {
      * @param paymentMethod Payment method
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentInitiatedEvent(String orderId, String userId, BigDecimal amount, String paymentMethod) {
+    public CompletableFuture<SendResult<String, Object>> sendPaymentInitiatedEvent(String orderId, String userId, BigDecimal amount, String paymentMethod) {
         PaymentEvent event = new PaymentEvent(PaymentEvent.PAYMENT_INITIATED, orderId, userId, amount);
         event.setPaymentMethod(paymentMethod);
         event.setStatus(PaymentEvent.PaymentStatus.PROCESSING);
@@ -100,7 +102,7 @@ public class PaymentKafkaProducerService {
      * @param paymentMethod Payment method
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentProcessingEvent(String orderId, String userId, BigDecimal amount, String paymentMethod) {
+    public CompletableFuture<SendResult<String, Object>> sendPaymentProcessingEvent(String orderId, String userId, BigDecimal amount, String paymentMethod) {
         PaymentEvent event = new PaymentEvent(PaymentEvent.PAYMENT_PROCESSING, orderId, userId, amount);
         event.setPaymentMethod(paymentMethod);
         event.setStatus(PaymentEvent.PaymentStatus.PROCESSING);
@@ -116,7 +118,7 @@ public class PaymentKafkaProducerService {
      * @param transactionId Transaction ID from gateway
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentSuccessfulEvent(String orderId, String userId, BigDecimal amount, String paymentMethod, String transactionId) {
+    public CompletableFuture<SendResult<String, Object>> sendPaymentSuccessfulEvent(String orderId, String userId, BigDecimal amount, String paymentMethod, String transactionId) {
         PaymentEvent event = new PaymentEvent(PaymentEvent.PAYMENT_SUCCESSFUL, orderId, userId, amount);
         event.setPaymentMethod(paymentMethod);
         event.setTransactionId(transactionId);
@@ -134,7 +136,7 @@ public class PaymentKafkaProducerService {
      * @param failureReason Reason for failure
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentFailedEvent(String orderId, String userId, BigDecimal amount, String paymentMethod, String failureReason) {
+    public CompletableFuture<SendResult<String, Object>> sendPaymentFailedEvent(String orderId, String userId, BigDecimal amount, String paymentMethod, String failureReason) {
         PaymentEvent event = new PaymentEvent(PaymentEvent.PAYMENT_FAILED, orderId, userId, amount);
         event.setPaymentMethod(paymentMethod);
         event.setStatus(PaymentEvent.PaymentStatus.FAILED);
@@ -152,7 +154,7 @@ public class PaymentKafkaProducerService {
      * @param isVerified Whether payment is verified
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentVerificationResponse(String orderId, String userId, BigDecimal amount, String transactionId, boolean isVerified) {
+    public CompletableFuture<SendResult<String, Object>> sendPaymentVerificationResponse(String orderId, String userId, BigDecimal amount, String transactionId, boolean isVerified) {
         PaymentEvent event = new PaymentEvent(PaymentEvent.PAYMENT_VERIFICATION_COMPLETED, orderId, userId, amount);
         event.setTransactionId(transactionId);
         event.setStatus(isVerified ? PaymentEvent.PaymentStatus.SUCCESSFUL : PaymentEvent.PaymentStatus.FAILED);
@@ -170,7 +172,7 @@ public class PaymentKafkaProducerService {
      * @param reason Refund reason
      * @return CompletableFuture for the send operation
      */
-    public CompletableFuture<SendResult<String, String>> sendPaymentRefundedEvent(String orderId, String userId, BigDecimal amount, String transactionId, String refundId, String reason) {
+    public CompletableFuture<SendResult<String, Object>> sendPaymentRefundedEvent(String orderId, String userId, BigDecimal amount, String transactionId, String refundId, String reason) {
         PaymentEvent event = new PaymentEvent(PaymentEvent.PAYMENT_REFUNDED, orderId, userId, amount);
         event.setTransactionId(transactionId);
         event.setPaymentId(refundId);
@@ -181,36 +183,44 @@ public class PaymentKafkaProducerService {
     }
     
     /**
-     * Generic method to send an event to a specific topic
+     * Generic method to send an event to a specific topic on the default producer profile
      * @param topic The Kafka topic to send to
      * @param event The event to send
      * @return CompletableFuture for the send operation
      */
-    private <T> CompletableFuture<SendResult<String, String>> sendEvent(String topic, T event) {
-        try {
-            String eventJson = objectMapper.writeValueAsString(event);
-            String key = extractKey(event);
-            
-            logger.info("Sending payment event to topic {}: {}", topic, eventJson);
-            
-            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(topic, key, eventJson);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    logger.info("Payment event sent successfully to topic {}: {}", topic, result.getRecordMetadata());
-                } else {
-                    logger.error("Failed to send payment event to topic {}: {}", topic, ex.getMessage(), ex);
-                }
-            });
-            
-            return future;
-            
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to serialize payment event: {}", e.getMessage(), e);
-            CompletableFuture<SendResult<String, String>> failedFuture = new CompletableFuture<>();
-            failedFuture.completeExceptionally(e);
-            return failedFuture;
+    private <T> CompletableFuture<SendResult<String, Object>> sendEvent(String topic, T event) {
+        return sendEvent(kafkaTemplate, topic, event);
+    }
+    
+    /**
+     * Send an event through the given producer profile
+     * @param template Template of the producer profile
+     * @param topic The Kafka topic to send to
+     * @param event The event to send
+     * @return CompletableFuture for the send operation
+     */
+    private <T> CompletableFuture<SendResult<String, Object>> sendEvent(KafkaTemplate<String, Object> template, String topic, T event) {
+        // Generate event ID if not present; consumers use it to drop redeliveries
+        if (event instanceof PaymentEvent && ((PaymentEvent) event).getEventId() == null) {
+            ((PaymentEvent) event).setEventId(UUID.randomUUID().toString());
         }
+        
+        String key = extractKey(event);
+        
+        logger.info("Sending payment event {} to topic {} with key {}", event.getClass().getSimpleName(), topic, key);
+        
+        // The event is encoded by the template's value serializer in the configured format
+        CompletableFuture<SendResult<String, Object>> future = template.send(topic, key, event);
+        
+        future.whenComplete((result, ex) -> {
+            if (ex == null) {
+                logger.info("Payment event sent successfully to topic {}: {}", topic, result.getRecordMetadata());
+            } else {
+                logger.error("Failed to send payment event to topic {}: {}", topic, ex.getMessage(), ex);
+            }
+        });
+        
+        return future;
     }
     
     /**
@@ -220,9 +230,8 @@ public class PaymentKafkaProducerService {
      */
     private <T> String extractKey(T event) {
         if (event instanceof PaymentEvent) {
-            PaymentEvent paymentEvent = (PaymentEvent) event;
-            return paymentEvent.getOrderId() != null ? paymentEvent.getOrderId() : paymentEvent.getUserId();
+            return EventKeys.of((PaymentEvent) event);
         }
-        return UUID.randomUUID().toString();
+        throw new IllegalArgumentException("No key for " + event.getClass().getSimpleName());
     }
 }
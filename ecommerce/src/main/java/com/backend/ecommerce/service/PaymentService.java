@@ -16,6 +16,8 @@ public interface PaymentService {
      * @param paymentMethod Payment method
      * @param paymentData Additional payment data (card details, etc.)
      * @return Response with payment details
+     * @throws RuntimeException if the payment failed to process, including when the gateway was too busy to
+     *         attempt the charge; nothing was charged then, so the payment can be retried
      */
     Map<String, Object> processPayment(String orderId, String userId, BigDecimal amount, String paymentMethod, Map<String, Object> paymentData);
     
@@ -62,6 +64,16 @@ public interface PaymentService {
      */
     Map<String, Object> getUserPaymentHistory(String userId, int page, int size);
     
+    /**
+     * Get payment history for a user using keyset pagination, newest first
+     * @param userId User ID
+     * @param cursor Continuation token from the previous page, or null for the first page
+     * @param size Page size
+     * @param includeTotal Whether to also count all of the user's payments
+     * @return Payments and the cursor of the next page
+     */
+    Map<String, Object> scrollUserPaymentHistory(String userId, String cursor, int size, boolean includeTotal);
+    
     /**
      * Update payment status
      * @param paymentId Payment ID
@@ -71,6 +83,13 @@ public interface PaymentService {
      */
     Map<String, Object> updatePaymentStatus(String paymentId, String status, String userId);
     
+    /**
+     * Settle payments left UNKNOWN by a gateway timeout, or left PROCESSING because their outcome was never
+     * recorded, by looking them up at the gateway
+     * @return Number of payments settled
+     */
+    int reconcileUnknownPayments();
+    
     /**
      * Get payment gateway status
      * @return Gateway status information
@@ -0,0 +1,149 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Order;
+import com.backend.ecommerce.event.PaymentEvent;
+import com.backend.ecommerce.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies payment outcomes reported by the Payment Service to orders, a whole Kafka batch at a time
+ *
+ * Events are collapsed to the last one per order, the affected order headers are read with a single query
+ * and all writes go out as one JDBC batch in one transaction, so a burst of N events costs one round trip
+ * per batch instead of two transactions per event.
+ */
+@Service
+public class PaymentStatusBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentStatusBatchService.class);
+
+    private static final String UPDATE_SQL =
+            "UPDATE orders SET payment_status = ?, status = ?, updated_at = ? WHERE id = ?";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserOrderStatsService userOrderStatsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EventDeduplicator eventDeduplicator;
+
+    /**
+     * Keep only the last event per order, in delivery order
+     * @param events Events as delivered; events without order ID are dropped
+     * @return Last event per order ID
+     */
+    public static Map<String, PaymentEvent> latestByOrderId(List<PaymentEvent> events) {
+        Map<String, PaymentEvent> latest = new LinkedHashMap<>();
+        for (PaymentEvent event : events) {
+            if (event.getOrderId() != null) {
+                latest.put(event.getOrderId(), event);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Apply the latest payment event of each order
+     * Events for unknown orders, for orders of another user or with a status that does not change
+     * the order are skipped. All events are recorded as processed in the same transaction.
+     * @param events Payment events in delivery order, already filtered by {@link EventDeduplicator#filterNew}
+     * @return Number of orders updated
+     */
+    @Transactional
+    public int applyPaymentEvents(List<PaymentEvent> events) {
+        // A duplicate that slipped past the filter fails here, before any order is touched
+        eventDeduplicator.markProcessed(events.stream().map(PaymentEvent::getEventId).toList());
+
+        Map<String, PaymentEvent> latest = latestByOrderId(events);
+        if (latest.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, OrderRepository.OrderSummary> orders = orderRepository.findSummariesByIdIn(latest.keySet())
+                .stream()
+                .collect(Collectors.toMap(OrderRepository.OrderSummary::getId, Function.identity()));
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> updates = new ArrayList<>();
+        for (PaymentEvent event : latest.values()) {
+            OrderRepository.OrderSummary order = orders.get(event.getOrderId());
+            if (order == null) {
+                logger.warn("Ignoring payment status {} for unknown order {}", event.getStatus(), event.getOrderId());
+                continue;
+            }
+            if (!order.getUserId().equals(event.getUserId())) {
+                logger.warn("Ignoring payment status {} for order {} of another user", event.getStatus(), event.getOrderId());
+                continue;
+            }
+
+            Order.PaymentStatus paymentStatus = paymentStatusFor(event.getStatus());
+            if (paymentStatus == null) {
+                logger.debug("Unhandled payment status: {} for order {}", event.getStatus(), event.getOrderId());
+                continue;
+            }
+            Order.OrderStatus orderStatus = orderStatusFor(event.getStatus(), order.getStatus());
+
+            updates.add(new Object[]{paymentStatus.name(), orderStatus.name(), now, order.getId()});
+            userOrderStatsService.recordStatusChange(order.getUserId(), order.getTotalAmount(),
+                    order.getStatus(), orderStatus);
+        }
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        }
+        logger.info("Applied {} payment status updates from {} events", updates.size(), events.size());
+        return updates.size();
+    }
+
+    /**
+     * Order payment status for a payment outcome
+     * @return Payment status, or null if the outcome does not change the order
+     */
+    private static Order.PaymentStatus paymentStatusFor(PaymentEvent.PaymentStatus status) {
+        if (status == null) {
+            return null;
+        }
+        switch (status) {
+            case SUCCESSFUL:
+                return Order.PaymentStatus.PAID;
+            case FAILED:
+                return Order.PaymentStatus.FAILED;
+            case REFUNDED:
+                return Order.PaymentStatus.REFUNDED;
+            case PARTIALLY_REFUNDED:
+                return Order.PaymentStatus.PARTIALLY_REFUNDED;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Order status after a payment outcome; failed and partially refunded payments keep the current status
+     */
+    private static Order.OrderStatus orderStatusFor(PaymentEvent.PaymentStatus status, Order.OrderStatus current) {
+        switch (status) {
+            case SUCCESSFUL:
+                return Order.OrderStatus.CONFIRMED;
+            case REFUNDED:
+                return Order.OrderStatus.REFUNDED;
+            default:
+                return current;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.backend.ecommerce.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs payment verification requests off the listener threads
+ *
+ * Up to payment.pipeline.max-in-flight requests are processed at once, so throughput follows gateway
+ * concurrency instead of the partition count. Each order has at most one request in flight; a request
+ * for an order that is already being processed is a repeat and waits for it. If that request succeeds,
+ * its repeats are recorded as processed and acknowledged with it; otherwise the first repeat runs in its
+ * place. A record is acknowledged only after its request has been handled, and the listener container
+ * commits offsets as soon as all earlier records are acknowledged.
+ *
+ * Requests run off the listener thread, so a failure cannot reach the container error handler. The pipeline
+ * applies the same policy: a failed request is retried with the consumer back-off, then published to the
+ * dead letter topic and acknowledged. Only a request that succeeded is recorded as processed.
+ *
+ * When the limit is reached the listener container is paused, so its partitions stop fetching, and the
+ * rest of the current poll waits in a backlog that is started as requests complete; the listener thread
+ * never blocks, so the consumer keeps polling within max.poll.interval.ms. The backlog is bounded by
+ * max.poll.records per consumer. The container resumes once the backlog is empty and half of the slots
+ * are free again.
+ */
+@Component
+public class PaymentVerificationPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentVerificationPipeline.class);
+
+    /** ID of the listener container paused under backpressure */
+    public static final String LISTENER_ID = "paymentVerificationRequests";
+
+    @Autowired
+    @Qualifier("paymentPipelineExecutor")
+    private AsyncTaskExecutor paymentPipelineExecutor;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private EventDeduplicator eventDeduplicator;
+
+    @Autowired
+    private BackOff kafkaRetryBackOff;
+
+    @Autowired
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    private final int maxInFlight;
+
+    // Guards everything below
+    private final Object lock = new Object();
+
+    private final Map<String, Request> requestsByOrder = new HashMap<>();
+
+    private final Deque<Request> backlog = new ArrayDeque<>();
+
+    private int running;
+
+    private boolean paused;
+
+    public PaymentVerificationPipeline(@Value("${payment.pipeline.max-in-flight:32}") int maxInFlight,
+                                       MeterRegistry meterRegistry) {
+        this.maxInFlight = maxInFlight;
+        meterRegistry.gauge("payment.pipeline.in-flight", this, PaymentVerificationPipeline::getInFlight);
+        meterRegistry.gauge("payment.pipeline.backlog", this, PaymentVerificationPipeline::getBacklog);
+    }
+
+    /**
+     * Process a request asynchronously, one request per order at a time
+     * Called on the listener thread; never blocks
+     * @param record Request record, dead-lettered if the request keeps failing
+     * @param orderId Order the request belongs to
+     * @param eventId Event ID, recorded as processed once the request has succeeded
+     * @param acknowledgment Acknowledgment of the record
+     * @param handler Request processing; throws if the request failed
+     */
+    public void submit(ConsumerRecord<?, ?> record, String orderId, String eventId, Acknowledgment acknowledgment,
+                       Runnable handler) {
+        Request request = new Request(record, orderId, eventId, acknowledgment, handler);
+        synchronized (lock) {
+            Request current = requestsByOrder.get(orderId);
+            if (current != null) {
+                logger.info("Payment verification for order {} already in progress, holding repeated request", orderId);
+                current.repeats.add(request);
+                return;
+            }
+            requestsByOrder.put(orderId, request);
+            if (running == maxInFlight) {
+                backlog.add(request);
+                if (!paused) {
+                    paused = true;
+                    logger.info("Payment pipeline full ({} in flight), pausing verification request consumption", maxInFlight);
+                    container().pause();
+                }
+                return;
+            }
+            running++;
+        }
+        start(request);
+    }
+
+    /**
+     * Number of requests being processed
+     */
+    public int getInFlight() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    /**
+     * Number of requests waiting for a free slot
+     */
+    public int getBacklog() {
+        synchronized (lock) {
+            return backlog.size();
+        }
+    }
+
+    /**
+     * Run a request on the executor; the caller has taken a slot for it
+     */
+    private void start(Request request) {
+        try {
+            paymentPipelineExecutor.execute(() -> {
+                Outcome outcome = Outcome.FAILED;
+                try {
+                    outcome = handle(request);
+                } catch (RuntimeException e) {
+                    logger.error("Could not dead-letter payment verification for order {}, leaving it unacknowledged: {}",
+                            request.orderId, e.getMessage(), e);
+                } finally {
+                    complete(request, outcome);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Not acknowledged, so the record and its repeats are redelivered after a restart or rebalance
+            logger.error("Could not schedule payment verification for order {}: {}", request.orderId, e.getMessage());
+            Request next;
+            synchronized (lock) {
+                requestsByOrder.remove(request.orderId);
+                next = nextOrRelease();
+            }
+            if (next != null) {
+                start(next);
+            }
+        }
+    }
+
+    /**
+     * Run a request, retrying it with the consumer back-off and dead-lettering it if it keeps failing
+     */
+    private Outcome handle(Request request) {
+        BackOffExecution backOff = kafkaRetryBackOff.start();
+        while (true) {
+            try {
+                request.handler.run();
+                return Outcome.SUCCEEDED;
+            } catch (RuntimeException e) {
+                long interval = backOff.nextBackOff();
+                if (interval == BackOffExecution.STOP) {
+                    logger.error("Payment verification for order {} failed, sending it to the dead letter topic: {}",
+                            request.orderId, e.getMessage(), e);
+                    deadLetterPublishingRecoverer.accept(request.record, e);
+                    return Outcome.DEAD_LETTERED;
+                }
+                logger.warn("Payment verification for order {} failed, retrying in {} ms: {}",
+                        request.orderId, interval, e.getMessage());
+                try {
+                    Thread.sleep(interval);
+                } catch (InterruptedException interrupted) {
+                    // Shutting down: left unacknowledged for redelivery
+                    Thread.currentThread().interrupt();
+                    return Outcome.FAILED;
+                }
+            }
+        }
+    }
+
+    private void complete(Request request, Outcome outcome) {
+        List<Request> repeats;
+        Request next;
+        synchronized (lock) {
+            repeats = new ArrayList<>(request.repeats);
+            if (outcome != Outcome.SUCCEEDED && !repeats.isEmpty()) {
+                // The repeats only waited for this request; the first one runs in its place, on its slot
+                next = repeats.remove(0);
+                next.repeats.addAll(repeats);
+                repeats.clear();
+                requestsByOrder.put(request.orderId, next);
+            } else {
+                requestsByOrder.remove(request.orderId);
+                next = nextOrRelease();
+            }
+        }
+
+        try {
+            if (outcome == Outcome.SUCCEEDED) {
+                List<String> eventIds = new ArrayList<>(repeats.size() + 1);
+                eventIds.add(request.eventId);
+                repeats.forEach(repeat -> eventIds.add(repeat.eventId));
+                eventDeduplicator.markProcessed(eventIds);
+                request.acknowledgment.acknowledge();
+                repeats.forEach(repeat -> repeat.acknowledgment.acknowledge());
+            } else if (outcome == Outcome.DEAD_LETTERED) {
+                request.acknowledgment.acknowledge();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to complete payment verification for order {}: {}", request.orderId, e.getMessage(), e);
+        } finally {
+            if (next != null) {
+                start(next);
+            }
+        }
+    }
+
+    /**
+     * Hand a freed slot to the oldest waiting request, or give it up and resume consumption once half are free
+     * Called with the lock held
+     * @return Request to start on the slot, or null if the slot was released
+     */
+    private Request nextOrRelease() {
+        Request next = backlog.poll();
+        if (next != null) {
+            return next;
+        }
+        running--;
+        if (paused && running <= maxInFlight / 2) {
+            paused = false;
+            logger.info("Payment pipeline drained, resuming verification request consumption");
+            container().resume();
+        }
+        return null;
+    }
+
+    private MessageListenerContainer container() {
+        return listenerRegistry.getListenerContainer(LISTENER_ID);
+    }
+
+    /**
+     * How a request ended: succeeded, dead-lettered after its retries, or unresolved and left for redelivery
+     */
+    private enum Outcome {
+        SUCCEEDED, DEAD_LETTERED, FAILED
+    }
+
+    /**
+     * Verification request of one record, with the repeats for its order that arrived while it was pending
+     */
+    private static final class Request {
+
+        private final ConsumerRecord<?, ?> record;
+        private final String orderId;
+        private final String eventId;
+        private final Acknowledgment acknowledgment;
+        private final Runnable handler;
+        private final List<Request> repeats = new ArrayList<>();
+
+        private Request(ConsumerRecord<?, ?> record, String orderId, String eventId, Acknowledgment acknowledgment,
+                        Runnable handler) {
+            this.record = record;
+            this.orderId = orderId;
+            this.eventId = eventId;
+            this.acknowledgment = acknowledgment;
+            this.handler = handler;
+        }
+    }
+}
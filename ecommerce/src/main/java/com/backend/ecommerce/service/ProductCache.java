@@ -0,0 +1,187 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded read-through cache of products keyed by product ID
+ * Entries are detached snapshots weighed by their approximate size in memory and expire after a TTL.
+ * Writers must call {@link #evict(String)} after changing a product.
+ *
+ * The stock quantity of a cached product is NOT authoritative; stock has to be read through
+ * {@link #getStockQuantity(String)}, which never uses the cached entries.
+ *
+ * Hit, miss, eviction and size metrics are published as cache.* meters tagged cache=products.
+ */
+@Component
+public class ProductCache {
+
+    // Rough per-object overhead of a product snapshot and its boxed fields
+    private static final int BASE_ENTRY_BYTES = 512;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    private final Cache<String, Product> cache;
+
+    public ProductCache(@Value("${catalog.product-cache.max-weight-bytes:16777216}") long maxWeightBytes,
+                        @Value("${catalog.product-cache.ttl:10m}") Duration ttl,
+                        MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String id, Product product) -> estimateSize(product))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+    }
+
+    /**
+     * Get a product, loading it from the database on a miss
+     * @param productId Product ID
+     * @return Product snapshot if it exists; must not be modified or saved
+     */
+    public Optional<Product> get(String productId) {
+        if (productId == null) {
+            return Optional.empty();
+        }
+        Product product = cache.get(productId, id -> load(List.of(id)).get(id));
+        return Optional.ofNullable(product);
+    }
+
+    /**
+     * Get several products, loading all misses with a single query
+     * @param productIds Product IDs
+     * @return Product snapshots by ID; IDs of products that do not exist are absent
+     */
+    public Map<String, Product> getAll(Collection<String> productIds) {
+        return cache.getAll(new HashSet<>(productIds), this::load);
+    }
+
+    /**
+     * Current stock of a product, read from the inventory ledger when enabled and from the database otherwise
+     * @param productId Product ID
+     * @return Stock quantity if the product exists
+     */
+    public Optional<Integer> getStockQuantity(String productId) {
+        if (inventoryLedger.isEnabled()) {
+            return inventoryLedger.getAvailable(productId);
+        }
+        return productRepository.findStockQuantityById(productId);
+    }
+
+    /**
+     * Current stock of several products, with the same source rules as {@link #getStockQuantity(String)}
+     * @param productIds Product IDs
+     * @return Stock quantity by ID; IDs of products that do not exist are absent
+     */
+    public Map<String, Integer> getStockQuantities(Collection<String> productIds) {
+        Map<String, Integer> stock = new HashMap<>();
+        if (inventoryLedger.isEnabled()) {
+            for (String productId : productIds) {
+                inventoryLedger.getAvailable(productId).ifPresent(quantity -> stock.put(productId, quantity));
+            }
+        } else if (!productIds.isEmpty()) {
+            for (ProductRepository.StockLevel level : productRepository.findStockLevelsByIdIn(productIds)) {
+                stock.put(level.getId(), level.getStockQuantity());
+            }
+        }
+        return stock;
+    }
+
+    /**
+     * Drop a product from the cache
+     * When called inside a transaction the entry is dropped again after commit, so a concurrent
+     * reader cannot re-cache the row as it was before the change
+     * @param productId Product ID
+     */
+    public void evict(String productId) {
+        if (productId == null) {
+            return;
+        }
+        cache.invalidate(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(productId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drop every product from the cache
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Number of cached products
+     * @return Estimated entry count
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Load products with their images in one query and turn them into detached snapshots
+     */
+    private Map<String, Product> load(Collection<? extends String> productIds) {
+        Map<String, Product> loaded = new HashMap<>();
+        for (Product product : productRepository.findAllWithImagesByIdIn(new ArrayList<>(productIds))) {
+            loaded.put(product.getId(), ProductSnapshots.of(product));
+        }
+        return loaded;
+    }
+
+    /**
+     * Approximate heap footprint of a product snapshot in bytes
+     */
+    private static int estimateSize(Product product) {
+        long bytes = BASE_ENTRY_BYTES;
+        bytes += stringBytes(product.getId());
+        bytes += stringBytes(product.getName());
+        bytes += stringBytes(product.getDescription());
+        bytes += stringBytes(product.getCategory());
+        bytes += stringBytes(product.getSubCategory());
+        bytes += stringBytes(product.getBrand());
+        bytes += stringBytes(product.getModel());
+        bytes += stringBytes(product.getSku());
+        bytes += stringBytes(product.getDimensions());
+        bytes += stringBytes(product.getImageUrl());
+        List<String> images = product.getAdditionalImages();
+        if (images != null) {
+            for (String image : images) {
+                bytes += stringBytes(image);
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40L + value.length();
+    }
+}
@@ -0,0 +1,201 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Cache of product detail responses as serialized JSON, keyed by product ID
+ *
+ * Each entry holds the JSON of every detail field except stockQuantity, which is never cached, and the
+ * product's updatedAt it was rendered from. A read looks up the current stock and updatedAt with one
+ * query; an entry of an older version is rendered again, so changes made by any instance show up on the
+ * next read. The stock is appended to the cached bytes, so hot reads skip the product mapping and Jackson.
+ * The strong ETag is a digest of the cached bytes, which include updatedAt, plus the stock. Writers on
+ * this instance call {@link #evict(String)} to drop the old entry at once.
+ *
+ * Hit, miss, eviction and size metrics are published as cache.* meters tagged cache=product-details.
+ */
+@Component
+public class ProductDetailCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductDetailCache.class);
+
+    private static final byte[] STOCK_FIELD = ",\"stockQuantity\":".getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Cache<String, Entry> cache;
+
+    public ProductDetailCache(@Value("${catalog.product-detail-cache.max-weight-bytes:16777216}") long maxWeightBytes,
+                              @Value("${catalog.product-detail-cache.ttl:10m}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String id, Entry entry) -> entry.head.length + 128)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product-details");
+    }
+
+    /**
+     * A serialized product detail response with its strong ETag
+     * @param body JSON bytes
+     * @param etag Quoted entity tag
+     */
+    public record Detail(byte[] body, String etag) {}
+
+    /**
+     * Get the detail response of a product, serializing it on a miss
+     * @param productId Product ID
+     * @return Response bytes and ETag, or empty if the product does not exist or could not be serialized
+     */
+    public Optional<Detail> get(String productId) {
+        if (productId == null) {
+            return Optional.empty();
+        }
+        Optional<ProductRepository.StockVersion> current = productRepository.findStockVersionById(productId);
+        if (current.isEmpty()) {
+            return Optional.empty();
+        }
+        LocalDateTime version = current.get().getUpdatedAt();
+        Entry entry = cache.getIfPresent(productId);
+        if (entry == null || !Objects.equals(entry.version, version)) {
+            entry = render(productId, version);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            cache.put(productId, entry);
+        }
+
+        // With the ledger enabled the stock column lags its counters
+        int quantity = inventoryLedger.isEnabled()
+                ? productCache.getStockQuantity(productId).orElse(0)
+                : current.get().getStockQuantity();
+        byte[] stock = Integer.toString(quantity).getBytes(StandardCharsets.US_ASCII);
+        byte[] body = Arrays.copyOf(entry.head, entry.head.length + STOCK_FIELD.length + stock.length + 1);
+        System.arraycopy(STOCK_FIELD, 0, body, entry.head.length, STOCK_FIELD.length);
+        System.arraycopy(stock, 0, body, entry.head.length + STOCK_FIELD.length, stock.length);
+        body[body.length - 1] = '}';
+        return Optional.of(new Detail(body, "\"" + entry.digest + "-" + new String(stock, StandardCharsets.US_ASCII) + "\""));
+    }
+
+    /**
+     * Drop a product's response from the cache
+     * When called inside a transaction the entry is dropped again after commit, so a concurrent
+     * reader cannot re-cache the response as it was before the change
+     * @param productId Product ID
+     */
+    public void evict(String productId) {
+        if (productId == null) {
+            return;
+        }
+        cache.invalidate(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(productId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drop every response from the cache
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Serialize the cacheable fields of a product, leaving the closing brace off for the stock to follow
+     * This is the only mapping of a product to its detail response.
+     * A product that cannot be serialized is logged and, like a missing one, not cached
+     * @param version updatedAt just read; a cached product of another version is loaded again
+     */
+    private Entry render(String productId, LocalDateTime version) {
+        Optional<Product> productOpt = productCache.get(productId);
+        if (productOpt.isPresent() && !Objects.equals(productOpt.get().getUpdatedAt(), version)) {
+            productCache.evict(productId);
+            productOpt = productCache.get(productId);
+        }
+        if (productOpt.isEmpty()) {
+            return null;
+        }
+        Product product = productOpt.get();
+        Map<String, Object> productDetails = new LinkedHashMap<>();
+        productDetails.put("id", product.getId());
+        productDetails.put("name", product.getName());
+        productDetails.put("description", product.getDescription());
+        productDetails.put("price", product.getPrice());
+        productDetails.put("category", product.getCategory());
+        productDetails.put("subCategory", product.getSubCategory());
+        productDetails.put("brand", product.getBrand());
+        productDetails.put("model", product.getModel());
+        productDetails.put("sku", product.getSku());
+        productDetails.put("imageUrl", product.getImageUrl());
+        productDetails.put("additionalImages", product.getAdditionalImages());
+        productDetails.put("averageRating", product.getAverageRating());
+        productDetails.put("reviewCount", product.getReviewCount());
+        productDetails.put("featured", product.isFeatured());
+        productDetails.put("active", product.isActive());
+        productDetails.put("createdAt", product.getCreatedAt());
+        productDetails.put("updatedAt", product.getUpdatedAt());
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(productDetails);
+            byte[] head = Arrays.copyOf(json, json.length - 1);
+            return new Entry(head, digest(head), product.getUpdatedAt());
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize details of product {}: {}", productId, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Entry(byte[] head, String digest, LocalDateTime version) {}
+}
@@ -0,0 +1,322 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.repository.ProductRepository;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the product catalog
+ * Indexes name, description, brand and category so that catalog search can be
+ * answered without scanning the products table. Stock changes with every order and is
+ * not indexed; callers read it at query time.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // Field weights used when scoring a term occurrence
+    private static final int NAME_WEIGHT = 4;
+    private static final int BRAND_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Prefix matches ("iph" -> "iphone") score lower than exact term matches
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productId -> weighted term frequency); sorted so prefixes can be expanded
+    private final NavigableMap<String, Map<String, Integer>> postings = new TreeMap<>();
+
+    // productId -> indexed snapshot of the product
+    private final Map<String, Product> documents = new HashMap<>();
+
+    // productId -> terms it was indexed under, needed for incremental removal
+    private final Map<String, Set<String>> termsByProduct = new HashMap<>();
+
+    /**
+     * Build the index from the database once the application is ready
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        List<Product> products = productRepository.findAllWithImages();
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            termsByProduct.clear();
+            for (Product product : products) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        logger.info("Product search index built: {} products, {} terms", documents.size(), postings.size());
+    }
+
+    /**
+     * Add or replace a product in the index
+     * Inactive products are removed instead, matching the soft delete used by the catalog.
+     * A product whose images were never loaded is read again together with them.
+     * @param product Product to index
+     */
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        if (!Hibernate.isInitialized(product.getAdditionalImages())) {
+            List<Product> loaded = productRepository.findAllWithImagesByIdIn(List.of(product.getId()));
+            if (loaded.isEmpty()) {
+                remove(product.getId());
+                return;
+            }
+            product = loaded.get(0);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a product from the index
+     * @param productId Product ID
+     */
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Search the index and return a relevance-ranked page
+     * Every query term has to match (exactly or as a prefix) for a product to be returned
+     * Returned products are copies without stock quantity, for the caller to fill in
+     * @param query Free text query
+     * @param page Page number (0-based)
+     * @param size Page size
+     * @return Search result page
+     */
+    public SearchResult search(String query, int page, int size) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+
+        List<Map.Entry<String, Double>> ranked;
+        lock.readLock().lock();
+        try {
+            Map<String, Double> scores = score(queryTerms);
+            ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<String, Double>comparingByValue().reversed()
+                    .thenComparing(entry -> documents.get(entry.getKey()).getName())
+                    .thenComparing(Map.Entry::getKey));
+
+            int from = Math.min(page * size, ranked.size());
+            int to = Math.min(from + size, ranked.size());
+            List<Product> products = new ArrayList<>(to - from);
+            for (Map.Entry<String, Double> entry : ranked.subList(from, to)) {
+                products.add(ProductSnapshots.of(documents.get(entry.getKey())));
+            }
+            return new SearchResult(products, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find IDs of all indexed products matching the query, in no particular order
+     * @param query Free text query
+     * @return Matching product IDs
+     */
+    public Set<String> matchingIds(String query) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return Set.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(score(queryTerms).keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of products currently in the index
+     * @return Indexed product count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Score every product matching all query terms; caller must hold the read lock
+     */
+    private Map<String, Double> score(List<String> queryTerms) {
+        Map<String, Double> scores = null;
+        int totalDocuments = Math.max(documents.size(), 1);
+
+        for (String queryTerm : queryTerms) {
+            Map<String, Double> termScores = new HashMap<>();
+
+            for (Map.Entry<String, Map<String, Integer>> termEntry : expand(queryTerm).entrySet()) {
+                Map<String, Integer> termPostings = termEntry.getValue();
+                double idf = Math.log(1.0 + (double) totalDocuments / termPostings.size());
+                double factor = termEntry.getKey().equals(queryTerm) ? 1.0 : PREFIX_MATCH_FACTOR;
+
+                for (Map.Entry<String, Integer> posting : termPostings.entrySet()) {
+                    double termScore = (1.0 + Math.log(posting.getValue())) * idf * factor;
+                    termScores.merge(posting.getKey(), termScore, Math::max);
+                }
+            }
+
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                    entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                }
+            }
+
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        return scores != null ? scores : Map.of();
+    }
+
+    /**
+     * All indexed terms that equal or start with the given query term
+     */
+    private SortedMap<String, Map<String, Integer>> expand(String queryTerm) {
+        return postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false);
+    }
+
+    private void addDocument(Product product) {
+        if (!product.isActive()) {
+            return;
+        }
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTerms(frequencies, product.getName(), NAME_WEIGHT);
+        addTerms(frequencies, product.getBrand(), BRAND_WEIGHT);
+        addTerms(frequencies, product.getCategory(), CATEGORY_WEIGHT);
+        addTerms(frequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        String productId = product.getId();
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(productId, entry.getValue());
+        }
+        termsByProduct.put(productId, frequencies.keySet());
+        Product document = ProductSnapshots.of(product);
+        document.setStockQuantity(null);
+        documents.put(productId, document);
+    }
+
+    private void removeDocument(String productId) {
+        Set<String> terms = termsByProduct.remove(productId);
+        documents.remove(productId);
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms) {
+            Map<String, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        for (String term : tokenize(text)) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * Split text into lower-cased alphanumeric terms
+     * @param text Text to tokenize
+     * @return Terms in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        List<String> terms = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                terms.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            terms.add(current.toString());
+        }
+        return terms;
+    }
+
+    /**
+     * A page of search results along with the total number of matches
+     */
+    public static class SearchResult {
+
+        private final List<Product> products;
+        private final long totalElements;
+
+        public SearchResult(List<Product> products, long totalElements) {
+            this.products = products;
+            this.totalElements = totalElements;
+        }
+
+        public List<Product> getProducts() {
+            return products;
+        }
+
+        public long getTotalElements() {
+            return totalElements;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Product;
+import org.hibernate.Hibernate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detached copies of products for the in-memory catalog structures
+ *
+ * The product cache and the search index hold these copies instead of entities, so neither keeps a
+ * managed entity or a lazy collection alive and callers cannot change what the other readers see.
+ */
+final class ProductSnapshots {
+
+    private ProductSnapshots() {
+    }
+
+    /**
+     * Copy a product with its additional images
+     * @param product Product loaded together with its additional images
+     * @return Detached copy
+     * @throws IllegalArgumentException if the additional images were not fetched with the product
+     */
+    static Product of(Product product) {
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setDescription(product.getDescription());
+        copy.setPrice(product.getPrice());
+        copy.setOriginalPrice(product.getOriginalPrice());
+        copy.setDiscountPercentage(product.getDiscountPercentage());
+        copy.setCategory(product.getCategory());
+        copy.setSubCategory(product.getSubCategory());
+        copy.setBrand(product.getBrand());
+        copy.setModel(product.getModel());
+        copy.setSku(product.getSku());
+        copy.setStockQuantity(product.getStockQuantity());
+        copy.setMinStockLevel(product.getMinStockLevel());
+        copy.setWeight(product.getWeight());
+        copy.setDimensions(product.getDimensions());
+        copy.setImageUrl(product.getImageUrl());
+        copy.setAverageRating(product.getAverageRating());
+        copy.setReviewCount(product.getReviewCount());
+        copy.setFeatured(product.isFeatured());
+        copy.setActive(product.isActive());
+        copy.setCreatedAt(product.getCreatedAt());
+        copy.setUpdatedAt(product.getUpdatedAt());
+
+        List<String> images = product.getAdditionalImages();
+        if (!Hibernate.isInitialized(images)) {
+            throw new IllegalArgumentException("Additional images of product " + product.getId() + " were not fetched");
+        }
+        copy.setAdditionalImages(images != null ? new ArrayList<>(images) : null);
+        return copy;
+    }
+}
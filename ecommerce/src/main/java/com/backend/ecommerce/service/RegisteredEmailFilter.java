@@ -0,0 +1,207 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting Bloom filter over the normalized emails of registered users
+ *
+ * A negative answer is definite, so email checks for unregistered addresses are answered in memory and
+ * only possible hits go to the database. Each slot is a 4-bit counter, sixteen to a long, so removing an
+ * email on account deletion only decrements its slots; a counter that reaches 15 stays there, which at
+ * worst leaves a false positive. Emails are lowercased before hashing, so differently cased forms of an
+ * address share slots, and the database check stays exact.
+ *
+ * The filter is sized for users.email-filter.expected-users at users.email-filter.false-positive-rate
+ * and filled once the application is ready; until then every email is a possible hit. Beyond the
+ * expected count the false-positive rate rises, but answers stay correct.
+ *
+ * Each instance keeps its own filter. Registrations on other instances reach it through the user status
+ * topic, so a negative can be briefly stale: it only answers availability checks, and registration itself
+ * asks the database. Deletions are only removed on the instance that made them; elsewhere, and after an
+ * email was added twice, the deleted email stays a false positive.
+ */
+@Component
+public class RegisteredEmailFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegisteredEmailFilter.class);
+
+    private static final int COUNTER_BITS = 4;
+    private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final AtomicLongArray counters;
+
+    private final int slots;
+
+    private final int hashFunctions;
+
+    private final Counter definiteMisses;
+
+    private final Counter possibleHits;
+
+    private volatile boolean ready;
+
+    public RegisteredEmailFilter(@Value("${users.email-filter.expected-users:1000000}") long expectedUsers,
+                                 @Value("${users.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                 MeterRegistry meterRegistry) {
+        double ln2 = Math.log(2);
+        long optimalSlots = (long) Math.ceil(-expectedUsers * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.slots = (int) Math.min(Math.max(optimalSlots, COUNTERS_PER_WORD), Integer.MAX_VALUE - COUNTERS_PER_WORD);
+        this.hashFunctions = Math.max(1, (int) Math.round((double) slots / expectedUsers * ln2));
+        this.counters = new AtomicLongArray((slots + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+        this.definiteMisses = meterRegistry.counter("users.email-filter.checks", "result", "absent");
+        this.possibleHits = meterRegistry.counter("users.email-filter.checks", "result", "possible");
+    }
+
+    /**
+     * Fill the filter from the users table once the application, including its data loading, is ready
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<String> emails = userRepository.findAllEmails();
+        emails.forEach(this::add);
+        ready = true;
+        logger.info("Registered email filter built: {} emails, {} slots, {} hash functions",
+                emails.size(), slots, hashFunctions);
+    }
+
+    /**
+     * Check whether an email may be registered
+     * @param email Email as entered
+     * @return false if the email is certainly not registered
+     */
+    public boolean mightContain(String email) {
+        if (!ready || email == null) {
+            possibleHits.increment();
+            return true;
+        }
+        long[] hashes = hashes(email);
+        for (int i = 0; i < hashFunctions; i++) {
+            if (counter(slot(hashes, i)) == 0) {
+                definiteMisses.increment();
+                return false;
+            }
+        }
+        possibleHits.increment();
+        return true;
+    }
+
+    /**
+     * Add a registered email
+     * Safe to call before the transaction commits: a rollback only leaves a false positive
+     * @param email Email as stored
+     */
+    public void add(String email) {
+        if (email == null) {
+            return;
+        }
+        long[] hashes = hashes(email);
+        for (int i = 0; i < hashFunctions; i++) {
+            increment(slot(hashes, i));
+        }
+    }
+
+    /**
+     * Remove the email of a deleted user once the deletion commits
+     * Removing it earlier would make a rolled-back deletion report the email as free
+     * @param email Email as stored
+     */
+    public void removeAfterCommit(String email) {
+        if (email == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remove(email);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remove(email);
+            }
+        });
+    }
+
+    private void remove(String email) {
+        long[] hashes = hashes(email);
+        for (int i = 0; i < hashFunctions; i++) {
+            decrement(slot(hashes, i));
+        }
+    }
+
+    private int counter(int slot) {
+        return (int) ((counters.get(slot / COUNTERS_PER_WORD) >>> shift(slot)) & COUNTER_MASK);
+    }
+
+    private void increment(int slot) {
+        int word = slot / COUNTERS_PER_WORD;
+        int shift = shift(slot);
+        long current;
+        do {
+            current = counters.get(word);
+            if (((current >>> shift) & COUNTER_MASK) == COUNTER_MASK) {
+                return;
+            }
+        } while (!counters.compareAndSet(word, current, current + (1L << shift)));
+    }
+
+    private void decrement(int slot) {
+        int word = slot / COUNTERS_PER_WORD;
+        int shift = shift(slot);
+        long current;
+        do {
+            current = counters.get(word);
+            long count = (current >>> shift) & COUNTER_MASK;
+            // Saturated counters no longer know their count
+            if (count == 0 || count == COUNTER_MASK) {
+                return;
+            }
+        } while (!counters.compareAndSet(word, current, current - (1L << shift)));
+    }
+
+    private static int shift(int slot) {
+        return (slot % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+
+    private int slot(long[] hashes, int i) {
+        return (int) Math.floorMod(hashes[0] + i * hashes[1], (long) slots);
+    }
+
+    /**
+     * Two independent 64-bit hashes of the normalized email; slot i is derived as h1 + i * h2
+     */
+    private static long[] hashes(String email) {
+        byte[] bytes = email.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return new long[]{mix(hash), mix(hash ^ 0x9e3779b97f4a7c15L) | 1};
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,179 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Reserves and releases product stock with conditional SQL updates
+ * Every line becomes a single "UPDATE ... WHERE stock_quantity >= ?" statement, and all lines of an order
+ * are sent as one JDBC batch. No product entity is loaded, so concurrent checkouts can neither lose
+ * updates nor oversell. With the inventory ledger enabled, order reservations are taken from memory instead.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? " +
+            "WHERE id = ? AND stock_quantity >= ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    /**
+     * Reserve stock for an order, either in the database or in the inventory ledger when it is enabled
+     * A ledger reservation is recorded by the order itself (stock_committed = false) and handed back if
+     * the order rolls back
+     * @param order Order being created; must already have its ID
+     * @param quantities Quantity per product ID
+     * @throws InsufficientStockException listing every product whose stock was too low or that does not exist
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Order order, Map<String, Integer> quantities) {
+        if (!inventoryLedger.isEnabled()) {
+            reserve(quantities);
+            return;
+        }
+
+        List<String> failedProductIds = inventoryLedger.tryReserve(quantities);
+        if (!failedProductIds.isEmpty()) {
+            throw new InsufficientStockException(failedProductIds);
+        }
+
+        order.setStockCommitted(false);
+        Map<String, Integer> reserved = Map.copyOf(quantities);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    inventoryLedger.restore(reserved);
+                }
+            }
+        });
+    }
+
+    /**
+     * Put stock of an order back, e.g. when it is cancelled
+     * With the ledger enabled the release is recorded with the cancellation and the stock is returned once it commits
+     * @param quantities Quantity per product ID
+     */
+    @Transactional
+    public void releaseForOrder(Map<String, Integer> quantities) {
+        if (!inventoryLedger.isEnabled()) {
+            release(quantities);
+            return;
+        }
+        inventoryLedger.release(quantities);
+    }
+
+    /**
+     * Decrement stock for every line, all or nothing
+     * Must run inside the caller's transaction: when a line fails the exception rolls back the
+     * lines that did succeed
+     * @param quantities Quantity per product ID; duplicate lines must already be merged
+     * @throws InsufficientStockException listing every product whose stock was too low or that does not exist
+     * @throws IllegalStateException if the driver does not report a row count for every line
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Map<String, Integer> quantities) {
+        // Lock rows in a stable order so two multi-line orders cannot deadlock each other
+        List<Map.Entry<String, Integer>> lines = sortedLines(quantities);
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(RESERVE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setTimestamp(2, now);
+            ps.setString(3, line.getKey());
+            ps.setInt(4, line.getValue());
+        });
+
+        // Only an exact count of one proves a line was reserved; a driver that reports SUCCESS_NO_INFO
+        // (e.g. MySQL with rewriteBatchedStatements) cannot tell a short line from a reserved one
+        List<String> failedProductIds = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    failedProductIds.add(lines.get(index).getKey());
+                } else if (count != 1) {
+                    throw new IllegalStateException("Stock update for product " + lines.get(index).getKey()
+                            + " reported " + count + " rows; per-row update counts are required");
+                }
+                index++;
+            }
+        }
+
+        if (!failedProductIds.isEmpty()) {
+            logger.info("Stock reservation failed for products: {}", failedProductIds);
+            throw new InsufficientStockException(failedProductIds);
+        }
+    }
+
+    /**
+     * Put stock back, e.g. when an order is cancelled
+     * @param quantities Quantity per product ID
+     */
+    @Transactional
+    public void release(Map<String, Integer> quantities) {
+        List<Map.Entry<String, Integer>> lines = sortedLines(quantities);
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(RELEASE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setTimestamp(2, now);
+            ps.setString(3, line.getKey());
+        });
+    }
+
+    private static List<Map.Entry<String, Integer>> sortedLines(Map<String, Integer> quantities) {
+        List<Map.Entry<String, Integer>> lines = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            if (entry.getValue() != null && entry.getValue() > 0) {
+                lines.add(entry);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Thrown when one or more lines could not be reserved
+     */
+    public static class InsufficientStockException extends RuntimeException {
+
+        private final List<String> failedProductIds;
+
+        public InsufficientStockException(List<String> failedProductIds) {
+            super("Insufficient stock for products: " + String.join(", ", failedProductIds));
+            this.failedProductIds = List.copyOf(failedProductIds);
+        }
+
+        public List<String> getFailedProductIds() {
+            return failedProductIds;
+        }
+    }
+}
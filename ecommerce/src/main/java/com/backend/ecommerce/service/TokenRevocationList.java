@@ -0,0 +1,84 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.event.UserStatusEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Users whose earlier tokens must no longer be accepted
+ *
+ * Tokens are verified from their claims alone, so a deactivated, deleted or re-credentialed account
+ * would keep working until its tokens expire. For each such user this list holds the time of the change,
+ * and a token issued before then is rejected. Tokens carry their issue time in whole seconds, so the cutoff
+ * is truncated to seconds too: a token issued in the same second as the change, such as the one handed out
+ * right after a password change, stays valid.
+ *
+ * Entries are fed from user status events and dropped after jwt.expiration, when every token they cover
+ * has expired on its own. The list therefore only holds the accounts changed within one token lifetime.
+ * It is not size-bounded: evicting an entry early would accept revoked tokens again.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private final Cache<String, Long> revokedUpTo;
+
+    public TokenRevocationList(@Value("${jwt.expiration}") long tokenLifetimeMs, MeterRegistry meterRegistry) {
+        this.revokedUpTo = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(tokenLifetimeMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, revokedUpTo, "jwt-revocations");
+    }
+
+    /**
+     * Apply a user status change
+     * Every change except a registration or an activation revokes the tokens issued up to it; an activation
+     * needs no entry since tokens issued before the preceding deactivation stay revoked
+     * @param event User status event
+     */
+    public void apply(UserStatusEvent event) {
+        if (event.getUserId() == null || event.getStatus() == null) {
+            return;
+        }
+        if (event.getStatus() != UserStatusEvent.UserStatus.REGISTERED
+                && event.getStatus() != UserStatusEvent.UserStatus.ACTIVATED) {
+            revoke(event.getUserId(), event.getChangedAt());
+        }
+    }
+
+    /**
+     * Revoke the tokens of a user issued before a given time
+     * @param userId User ID
+     * @param issuedUpTo Epoch milliseconds; a later call with an earlier time keeps the later one
+     */
+    public void revoke(String userId, long issuedUpTo) {
+        revokedUpTo.asMap().merge(userId, issuedUpTo, Math::max);
+        logger.info("Revoked tokens of user {} issued up to {}", userId, issuedUpTo);
+    }
+
+    /**
+     * Check whether a token has been revoked
+     * Compared in whole seconds, as issue times are; only tokens issued in an earlier second than the change are rejected
+     * @param userId User ID claim of the token
+     * @param issuedAt Issued-at claim of the token; a token without one is revoked if the user has an entry
+     * @return true if the token must be rejected
+     */
+    public boolean isRevoked(String userId, Date issuedAt) {
+        Long cutoff = revokedUpTo.getIfPresent(userId);
+        if (cutoff == null) {
+            return false;
+        }
+        return issuedAt == null || issuedAt.getTime() / 1000 < cutoff / 1000;
+    }
+}
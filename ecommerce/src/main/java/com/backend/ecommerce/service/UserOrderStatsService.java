@@ -0,0 +1,173 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Order;
+import com.backend.ecommerce.entity.UserOrderStats;
+import com.backend.ecommerce.repository.UserOrderStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the per-user order stats table in step with the orders table
+ * Every change is a single in-place UPDATE issued inside the caller's transaction, so the stats commit
+ * or roll back together with the order. A user's first order creates an empty row in a separate
+ * transaction first, so concurrent first orders cannot fail on a duplicate key. {@link #rebuild()}
+ * recomputes the table for data written before the table existed (orders.stats.rebuild-on-startup=true
+ * runs it once at startup).
+ */
+@Service
+public class UserOrderStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserOrderStatsService.class);
+
+    // Orders in these statuses are neither counted nor part of the amount spent
+    private static final Set<Order.OrderStatus> EXCLUDED_STATUSES =
+            EnumSet.of(Order.OrderStatus.CANCELLED, Order.OrderStatus.REFUNDED);
+
+    @Value("${orders.stats.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Autowired
+    private UserOrderStatsRepository userOrderStatsRepository;
+
+    // Runs the creation of a missing stats row independently of the order's transaction
+    private final TransactionTemplate newTransaction;
+
+    public UserOrderStatsService(PlatformTransactionManager transactionManager) {
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Stats of a user
+     * @param userId User ID
+     * @return Stats if the user has any
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserOrderStats> getStats(String userId) {
+        return userOrderStatsRepository.findById(userId);
+    }
+
+    /**
+     * Add a newly created order to its user's stats
+     * @param order Saved order
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOrderPlaced(Order order) {
+        if (!isCounted(order.getStatus())) {
+            return;
+        }
+        BigDecimal amount = amountOf(order);
+        LocalDateTime orderedAt = order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+        int updated = userOrderStatsRepository.addOrder(order.getUserId(), amount, orderedAt, LocalDateTime.now());
+        if (updated == 0) {
+            createEmptyStats(order.getUserId());
+            userOrderStatsRepository.addOrder(order.getUserId(), amount, orderedAt, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Create an empty stats row for a user in its own transaction
+     * A concurrent first order may create it at the same time; losing that race is not an error
+     */
+    private void createEmptyStats(String userId) {
+        try {
+            newTransaction.executeWithoutResult(status -> userOrderStatsRepository.insertEmpty(userId, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Order stats of user {} created concurrently", userId);
+        }
+    }
+
+    /**
+     * Update stats after an order changed status; only moves into or out of a cancelled or refunded
+     * status change the stats
+     * @param order Order with its new status
+     * @param previousStatus Status before the change
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChange(Order order, Order.OrderStatus previousStatus) {
+        recordStatusChange(order.getUserId(), order.getTotalAmount(), previousStatus, order.getStatus());
+    }
+
+    /**
+     * Update stats after an order changed status, for callers that write orders without loading the entity
+     * @param userId Owner of the order
+     * @param totalAmount Order total
+     * @param previousStatus Status before the change
+     * @param newStatus Status after the change
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChange(String userId, BigDecimal totalAmount,
+                                   Order.OrderStatus previousStatus, Order.OrderStatus newStatus) {
+        boolean wasCounted = isCounted(previousStatus);
+        boolean isCounted = isCounted(newStatus);
+        if (wasCounted == isCounted) {
+            return;
+        }
+        long sign = isCounted ? 1 : -1;
+        int updated = userOrderStatsRepository.applyDelta(userId, sign,
+                scaled(totalAmount).multiply(BigDecimal.valueOf(sign)), LocalDateTime.now());
+        if (updated == 0) {
+            logger.warn("No order stats for user {}; run a stats rebuild", userId);
+        }
+    }
+
+    /**
+     * Recompute the stats of every user from the orders table
+     * Rows are recomputed in place in one transaction, so readers see the old stats until it commits
+     * and never an empty table; orders placed meanwhile block on the rows being rebuilt and apply after it
+     * @return Number of users with stats
+     */
+    @Transactional
+    public int rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = userOrderStatsRepository.deleteWithoutOrders();
+        int updated = userOrderStatsRepository.recomputeFromOrders(EXCLUDED_STATUSES, now);
+        int inserted = userOrderStatsRepository.insertMissingFromOrders(EXCLUDED_STATUSES, now);
+        logger.info("Rebuilt order stats: {} updated, {} added, {} removed", updated, inserted, deleted);
+        return updated + inserted;
+    }
+
+    /**
+     * One-off rebuild at startup, enabled with orders.stats.rebuild-on-startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Order total at the scale the orders table stores it with
+     */
+    private static BigDecimal amountOf(Order order) {
+        return scaled(order.getTotalAmount());
+    }
+
+    private static BigDecimal scaled(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static boolean isCounted(Order.OrderStatus status) {
+        return status != null && !EXCLUDED_STATUSES.contains(status);
+    }
+}
@@ -23,10 +23,13 @@ public interface UserService {
     
     /**
      * Authenticate user login
+     * Failed attempts are throttled per account and per client IP; a throttled or overloaded login
+     * carries retryAfterSeconds, and an overloaded one also overloaded=true
      * @param loginDto User credentials
+     * @param clientIp Client IP address, or null if unknown
      * @return Map containing authentication result and token
      */
-    Map<String, Object> loginUser(UserLoginDto loginDto);
+    Map<String, Object> loginUser(UserLoginDto loginDto, String clientIp);
     
     /**
      * Get user profile by ID
@@ -52,6 +55,7 @@ public interface UserService {
     
     /**
      * Check if user exists by email
+     * Emails not in the registered email filter are answered without a query
      * @param email User email
      * @return true if user exists, false otherwise
      */
@@ -118,6 +122,7 @@ public interface UserService {
     
     /**
      * Update last login time
+     * The time is buffered and written to the users table by a periodic batch
      * @param userId User ID
      */
     void updateLastLogin(String userId);
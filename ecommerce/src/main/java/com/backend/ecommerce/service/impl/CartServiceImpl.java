@@ -5,9 +5,9 @@ import com.backend.ecommerce.entity.CartItem;
 import com.backend.ecommerce.entity.Product;
 import com.backend.ecommerce.entity.User;
 import com.backend.ecommerce.repository.CartRepository;
-import com.backend.ecommerce.repository.ProductRepository;
 import com.backend.ecommerce.repository.UserRepository;
 import com.backend.ecommerce.service.CartService;
+import com.backend.ecommerce.service.ProductCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,9 +15,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -28,14 +30,14 @@ public class CartServiceImpl implements CartService {
     private CartRepository cartRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductCache productCache;
 
     @Autowired
     private UserRepository userRepository;
 
     @Override
     public Map<String, Object> getUserCart(String userId) {
-        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+        Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                 .orElseGet(() -> createNewCart(userId));
         
         Map<String, Object> response = new HashMap<>();
@@ -51,15 +53,16 @@ public class CartServiceImpl implements CartService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Validate product exists and has sufficient stock
-        Product product = productRepository.findById(productId)
+        Product product = productCache.get(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
+        int stockQuantity = productCache.getStockQuantity(productId).orElse(0);
 
-        if (product.getStockQuantity() < quantity) {
+        if (stockQuantity < quantity) {
             throw new RuntimeException("Insufficient stock available");
         }
 
         // Get or create cart
-        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+        Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                 .orElseGet(() -> createNewCart(userId));
 
         // Check if product already exists in cart
@@ -71,7 +74,7 @@ public class CartServiceImpl implements CartService {
             // Update existing item quantity
             CartItem item = existingItem.get();
             int newQuantity = item.getQuantity() + quantity;
-            if (newQuantity > product.getStockQuantity()) {
+            if (newQuantity > stockQuantity) {
                 throw new RuntimeException("Insufficient stock available for requested quantity");
             }
             item.setQuantity(newQuantity);
@@ -80,7 +83,6 @@ public class CartServiceImpl implements CartService {
         } else {
             // Create new cart item
             CartItem newItem = new CartItem();
-            newItem.setId(UUID.randomUUID().toString());
             newItem.setCart(cart);
             newItem.setProductId(productId);
             newItem.setProductName(product.getName());
@@ -108,7 +110,7 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Map<String, Object> updateCartItemQuantity(String userId, String itemId, Integer quantity) {
-        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+        Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         
         CartItem item = cart.getItems().stream()
@@ -121,10 +123,10 @@ public class CartServiceImpl implements CartService {
             cart.getItems().remove(item);
         } else {
             // Validate stock availability
-            Product product = productRepository.findById(item.getProductId())
+            int stockQuantity = productCache.getStockQuantity(item.getProductId())
                     .orElseThrow(() -> new RuntimeException("Product not found"));
 
-            if (product.getStockQuantity() < quantity) {
+            if (stockQuantity < quantity) {
                 throw new RuntimeException("Insufficient stock available");
             }
 
@@ -146,7 +148,7 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Map<String, Object> removeFromCart(String userId, String itemId) {
-        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+        Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         
         cart.getItems().removeIf(item -> item.getId().equals(itemId));
@@ -164,7 +166,7 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Map<String, Object> clearCart(String userId) {
-        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+        Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         
         cart.clearItems();
@@ -193,7 +195,7 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public boolean isProductInCart(String userId, String productId) {
-        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+        Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                 .orElse(null);
         
         if (cart == null) return false;
@@ -218,7 +220,7 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Map<String, Object> applyDiscount(String userId, String discountCode) {
-        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+        Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         
         // TODO: Implement discount logic
@@ -239,7 +241,7 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Map<String, Object> removeDiscount(String userId) {
-        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+        Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         
         // TODO: Remove any applied discounts and recalculate totals
@@ -255,7 +257,7 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Map<String, Object> validateCart(String userId) {
-        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+        Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                 .orElse(null);
         
         Map<String, Object> validation = new HashMap<>();
@@ -266,15 +268,23 @@ public class CartServiceImpl implements CartService {
             return validation;
         }
 
+        // Load every referenced product and its stock up front instead of once per line
+        Set<String> productIds = new HashSet<>();
+        for (CartItem item : cart.getItems()) {
+            productIds.add(item.getProductId());
+        }
+        Map<String, Product> products = productCache.getAll(productIds);
+        Map<String, Integer> stock = productCache.getStockQuantities(productIds);
+
         // Validate each item
         for (CartItem item : cart.getItems()) {
-            Product product = productRepository.findById(item.getProductId()).orElse(null);
+            Product product = products.get(item.getProductId());
             if (product == null || !product.isActive()) {
                 validation.put("valid", false);
                 validation.put("message", "Product no longer exists or is inactive");
                 return validation;
             }
-            if (product.getStockQuantity() < item.getQuantity()) {
+            if (stock.getOrDefault(item.getProductId(), 0) < item.getQuantity()) {
                 validation.put("valid", false);
                 validation.put("message", "Insufficient stock for " + product.getName());
                 return validation;
@@ -288,7 +298,7 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Map<String, Object> checkoutCart(String userId, Map<String, Object> deliveryAddress) {
-        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+        Cart cart = cartRepository.findWithItemsByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         
         Map<String, Object> validation = validateCart(userId);
@@ -347,7 +357,6 @@ public class CartServiceImpl implements CartService {
 
     private Cart createNewCart(String userId) {
         Cart cart = new Cart();
-        cart.setId(UUID.randomUUID().toString());
         cart.setUserId(userId);
         cart.setStatus(Cart.CartStatus.ACTIVE);
         cart.setCreatedAt(LocalDateTime.now());
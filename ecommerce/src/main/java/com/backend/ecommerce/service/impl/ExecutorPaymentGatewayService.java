@@ -0,0 +1,66 @@
+package com.backend.ecommerce.service.impl;
+
+import com.backend.ecommerce.service.AsyncPaymentGatewayService;
+import com.backend.ecommerce.service.PaymentGatewayService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking Stripe gateway on the bounded payment gateway executor
+ * Callers get a future straight away and choose how to wait on it; the gateway round trip itself
+ * never holds a database connection.
+ */
+@Service("asyncStripePaymentGateway")
+public class ExecutorPaymentGatewayService implements AsyncPaymentGatewayService {
+
+    private final PaymentGatewayService delegate;
+    private final Executor executor;
+    private final Duration timeout;
+
+    public ExecutorPaymentGatewayService(@Qualifier("stripePaymentGateway") PaymentGatewayService delegate,
+                                         @Qualifier("paymentGatewayExecutor") Executor executor,
+                                         @Value("${payment.gateway.timeout:30s}") Duration timeout) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> processPayment(BigDecimal amount, String paymentMethod, Map<String, Object> paymentData) {
+        return submit(() -> delegate.processPayment(amount, paymentMethod, paymentData));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> lookupPayment(String reference) {
+        return submit(() -> delegate.lookupPayment(reference));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> verifyTransaction(String transactionId) {
+        return submit(() -> delegate.verifyTransaction(transactionId));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> processRefund(String transactionId, BigDecimal amount, String reason) {
+        return submit(() -> delegate.processRefund(transactionId, amount, reason));
+    }
+
+    private CompletableFuture<Map<String, Object>> submit(Supplier<Map<String, Object>> call) {
+        try {
+            return CompletableFuture.supplyAsync(call, executor)
+                    .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // The executor rejects synchronously once its queue is full
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -1,25 +1,35 @@
 package com.backend.ecommerce.service.impl;
 
+import com.backend.ecommerce.dto.PageCursor;
 import com.backend.ecommerce.entity.*;
 import com.backend.ecommerce.repository.OrderRepository;
 import com.backend.ecommerce.repository.UserRepository;
 import com.backend.ecommerce.repository.ProductRepository;
 import com.backend.ecommerce.service.OrderService;
+import com.backend.ecommerce.service.StockReservationService;
+import com.backend.ecommerce.service.UserOrderStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -35,6 +45,12 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private UserOrderStatsService userOrderStatsService;
+
     @Override
     public Map<String, Object> createOrder(String userId, Map<String, Object> orderData) {
         // Extract data from orderData
@@ -49,7 +65,6 @@ public class OrderServiceImpl implements OrderService {
 
         // Create order
         Order order = new Order();
-        order.setId(UUID.randomUUID().toString());
         order.setOrderNumber(generateOrderNumber());
         order.setUserId(userId);
         order.setStatus(Order.OrderStatus.PENDING);
@@ -59,21 +74,30 @@ public class OrderServiceImpl implements OrderService {
         order.setCreatedAt(LocalDateTime.now());
         order.setUpdatedAt(LocalDateTime.now());
 
+        // Load all referenced products in one query instead of once per line
+        Set<String> productIds = new HashSet<>();
+        for (Map<String, Object> itemData : itemsData) {
+            productIds.add((String) itemData.get("productId"));
+        }
+        Map<String, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+
         // Create order items and calculate totals
         BigDecimal subtotal = BigDecimal.ZERO;
+        Map<String, Integer> reservedQuantities = new LinkedHashMap<>();
+        Map<String, String> productNames = new HashMap<>();
         for (Map<String, Object> itemData : itemsData) {
             String productId = (String) itemData.get("productId");
             Integer quantity = (Integer) itemData.get("quantity");
 
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
-
-            if (product.getStockQuantity() < quantity) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName());
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new RuntimeException("Product not found: " + productId);
             }
 
             OrderItem orderItem = new OrderItem();
-            orderItem.setId(UUID.randomUUID().toString());
             orderItem.setOrder(order);
             orderItem.setProductId(productId);
             orderItem.setProductName(product.getName());
@@ -87,9 +111,8 @@ public class OrderServiceImpl implements OrderService {
             order.getItems().add(orderItem);
             subtotal = subtotal.add(orderItem.getSubtotal());
 
-            // Update product stock
-            product.setStockQuantity(product.getStockQuantity() - quantity);
-            productRepository.save(product);
+            reservedQuantities.merge(productId, quantity, Integer::sum);
+            productNames.put(productId, product.getName());
         }
 
         // Calculate order totals
@@ -99,6 +122,23 @@ public class OrderServiceImpl implements OrderService {
         order.setTotalAmount(calculateTotalAmount(order.getSubtotal(), order.getTaxAmount(), order.getShippingAmount()));
 
         Order savedOrder = orderRepository.save(order);
+
+        // Decrement stock for all lines in one conditional batch; any shortfall rolls the whole order back
+        try {
+            stockReservationService.reserve(savedOrder, reservedQuantities);
+        } catch (StockReservationService.InsufficientStockException e) {
+            List<Map<String, Object>> failedItems = new ArrayList<>();
+            for (String productId : e.getFailedProductIds()) {
+                Map<String, Object> failedItem = new HashMap<>();
+                failedItem.put("productId", productId);
+                failedItem.put("productName", productNames.get(productId));
+                failedItem.put("requestedQuantity", reservedQuantities.get(productId));
+                failedItems.add(failedItem);
+            }
+            throw new OrderService.OutOfStockException(failedItems);
+        }
+
+        userOrderStatsService.recordOrderPlaced(savedOrder);
         
         Map<String, Object> response = new HashMap<>();
         response.put("order", savedOrder);
@@ -108,7 +148,7 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public Map<String, Object> getOrderById(String orderId, String userId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
         Map<String, Object> response = new HashMap<>();
@@ -119,7 +159,7 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public Map<String, Object> getOrderByNumber(String orderNumber, String userId) {
-        Order order = orderRepository.findByOrderNumber(orderNumber)
+        Order order = orderRepository.findWithItemsByOrderNumber(orderNumber)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
         Map<String, Object> response = new HashMap<>();
@@ -131,7 +171,7 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public Map<String, Object> getUserOrders(String userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Order> ordersPage = orderRepository.findByUserId(userId, pageable);
+        Page<OrderRepository.OrderSummary> ordersPage = orderRepository.findSummariesByUserId(userId, pageable);
         
         Map<String, Object> response = new HashMap<>();
         response.put("orders", ordersPage.getContent());
@@ -142,9 +182,37 @@ public class OrderServiceImpl implements OrderService {
         return response;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> scrollUserOrders(String userId, String cursor, int size, boolean includeTotal) {
+        Map<String, Object> response = new HashMap<>();
+        
+        ScrollPosition position;
+        try {
+            position = PageCursor.toScrollPosition(cursor, "createdAt", Sort.Direction.DESC, LocalDateTime.class);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return response;
+        }
+        
+        Window<OrderRepository.OrderSummary> window = orderRepository.findSummariesByUserId(userId, position, Limit.of(size),
+                PageCursor.keysetSort("createdAt", Sort.Direction.DESC));
+        
+        response.put("orders", window.getContent());
+        response.put("size", size);
+        response.put("hasNext", window.hasNext());
+        response.put("nextCursor", PageCursor.nextToken(window, "createdAt", Sort.Direction.DESC));
+        if (includeTotal) {
+            response.put("totalElements", orderRepository.countByUserId(userId));
+        }
+        response.put("success", true);
+        return response;
+    }
+
     @Override
     public Map<String, Object> getUserOrders(String userId) {
-        List<Order> orders = orderRepository.findByUserId(userId);
+        List<OrderRepository.OrderSummary> orders = orderRepository.findSummariesByUserId(userId);
         
         Map<String, Object> response = new HashMap<>();
         response.put("orders", orders);
@@ -155,7 +223,7 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public Map<String, Object> getOrdersByStatus(String userId, String status) {
         Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
-        List<Order> orders = orderRepository.findByStatus(orderStatus);
+        List<OrderRepository.OrderSummary> orders = orderRepository.findSummariesByStatus(orderStatus);
         
         Map<String, Object> response = new HashMap<>();
         response.put("orders", orders);
@@ -168,11 +236,13 @@ public class OrderServiceImpl implements OrderService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
+        Order.OrderStatus previousStatus = order.getStatus();
         Order.OrderStatus newStatus = Order.OrderStatus.valueOf(status.toUpperCase());
         order.setStatus(newStatus);
         order.setUpdatedAt(LocalDateTime.now());
         
         Order savedOrder = orderRepository.save(order);
+        userOrderStatsService.recordStatusChange(savedOrder, previousStatus);
         
         Map<String, Object> response = new HashMap<>();
         response.put("order", savedOrder);
@@ -182,7 +252,7 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public Map<String, Object> cancelOrder(String orderId, String userId, String reason) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
         if (order.getStatus() == Order.OrderStatus.CANCELLED) {
@@ -194,19 +264,19 @@ public class OrderServiceImpl implements OrderService {
             throw new RuntimeException("Cannot cancel shipped or delivered order");
         }
 
+        Order.OrderStatus previousStatus = order.getStatus();
         order.setStatus(Order.OrderStatus.CANCELLED);
         order.setUpdatedAt(LocalDateTime.now());
 
         // Restore product stock
+        Map<String, Integer> releasedQuantities = new HashMap<>();
         for (OrderItem item : order.getItems()) {
-            Product product = productRepository.findById(item.getProductId()).orElse(null);
-            if (product != null) {
-                product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-                productRepository.save(product);
-            }
+            releasedQuantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
         }
+        stockReservationService.releaseForOrder(releasedQuantities);
 
         Order savedOrder = orderRepository.save(order);
+        userOrderStatsService.recordStatusChange(savedOrder, previousStatus);
         
         Map<String, Object> response = new HashMap<>();
         response.put("order", savedOrder);
@@ -289,7 +359,7 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public Map<String, Object> getOrderConfirmation(String orderId, String userId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
         Map<String, Object> confirmation = new HashMap<>();
@@ -323,24 +393,33 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public Map<String, Object> getUserOrderStats(String userId) {
-        List<Order> userOrders = orderRepository.findByUserId(userId);
+        UserOrderStats userStats = userOrderStatsService.getStats(userId)
+                .orElseGet(() -> new UserOrderStats(userId, 0, BigDecimal.ZERO, null));
         
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalOrders", userOrders.size());
-        stats.put("totalSpent", userOrders.stream()
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
-        stats.put("averageOrderValue", userOrders.isEmpty() ? BigDecimal.ZERO :
-                stats.get("totalSpent").toString().equals("0") ? BigDecimal.ZERO :
-                ((BigDecimal) stats.get("totalSpent")).divide(BigDecimal.valueOf(userOrders.size()), 2, RoundingMode.HALF_UP));
+        stats.put("totalOrders", userStats.getOrderCount());
+        stats.put("totalSpent", userStats.getTotalSpent());
+        stats.put("averageOrderValue", userStats.getAverageOrderValue());
+        stats.put("lastOrderDate", userStats.getLastOrderAt());
         stats.put("success", true);
         
         return stats;
     }
 
+    @Override
+    public Map<String, Object> rebuildUserOrderStats() {
+        int users = userOrderStatsService.rebuild();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("users", users);
+        response.put("success", true);
+        response.put("message", "Order statistics rebuilt");
+        return response;
+    }
+
     @Override
     public Map<String, Object> getOrderForAdmin(String orderId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
         Map<String, Object> response = new HashMap<>();
@@ -352,7 +431,7 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public Map<String, Object> getAllOrders(int page, int size, String status, String userId, String startDate, String endDate) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Order> ordersPage = orderRepository.findAll(pageable);
+        Page<OrderRepository.OrderSummary> ordersPage = orderRepository.findSummariesBy(pageable);
         
         Map<String, Object> response = new HashMap<>();
         response.put("orders", ordersPage.getContent());
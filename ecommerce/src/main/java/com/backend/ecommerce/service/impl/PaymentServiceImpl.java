@@ -1,9 +1,10 @@
 package com.backend.ecommerce.service.impl;
 
+import com.backend.ecommerce.dto.PageCursor;
 import com.backend.ecommerce.entity.Payment;
-import com.backend.ecommerce.entity.User;
 import com.backend.ecommerce.repository.PaymentRepository;
 import com.backend.ecommerce.repository.UserRepository;
+import com.backend.ecommerce.service.AsyncPaymentGatewayService;
 import com.backend.ecommerce.service.PaymentService;
 import com.backend.ecommerce.service.PaymentGatewayService;
 import com.backend.ecommerce.service.PaymentKafkaProducerService;
@@ -11,12 +12,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Implementation of Payment Service with gateway integration and Kafka event publishing
@@ -25,6 +41,10 @@ import java.util.*;
 public class PaymentServiceImpl implements PaymentService {
     
     private static final Logger logger = LoggerFactory.getLogger(PaymentServiceImpl.class);
+    
+    private static final String GATEWAY_TIMEOUT = "TIMEOUT";
+    
+    private static final String GATEWAY_BUSY = "BUSY";
 
     @Autowired
     private PaymentRepository paymentRepository;
@@ -35,102 +55,168 @@ public class PaymentServiceImpl implements PaymentService {
     @Autowired
     @Qualifier("stripePaymentGateway")
     private PaymentGatewayService paymentGateway;
+    
+    @Autowired
+    @Qualifier("asyncStripePaymentGateway")
+    private AsyncPaymentGatewayService asyncPaymentGateway;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     @Autowired
     private PaymentKafkaProducerService kafkaProducerService;
 
+    // Longer than payment.gateway.timeout, so a timed-out call has settled at the gateway before it is looked up
+    @Value("${payment.reconciliation.min-age:5m}")
+    private Duration reconciliationMinAge;
+
+    @Value("${payment.reconciliation.batch-size:100}")
+    private int reconciliationBatchSize;
+
     @Override
-    @Transactional
     public Map<String, Object> processPayment(String orderId, String userId, BigDecimal amount, String paymentMethod, Map<String, Object> paymentData) {
         try {
             logger.info("Processing payment for order {}: amount={}, method={}", orderId, amount, paymentMethod);
             
-            // Validate user
-        User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found: " + userId));
-
-        // Create payment record
-        Payment payment = new Payment();
-        payment.setOrderId(orderId);
-        payment.setUserId(userId);
-        payment.setAmount(amount);
-        payment.setPaymentMethod(Payment.PaymentMethod.valueOf(paymentMethod.toUpperCase()));
-            payment.setStatus(Payment.PaymentStatus.PROCESSING);
-        payment.setCreatedAt(LocalDateTime.now());
-        payment.setUpdatedAt(LocalDateTime.now());
+            // First short transaction: commit a PROCESSING record so the connection is released before the gateway call
+            Payment savedPayment = transactionTemplate.execute(status -> {
+                // Validate user
+                userRepository.findById(userId)
+                        .orElseThrow(() -> new RuntimeException("User not found: " + userId));
 
-            // Save payment record
-            Payment savedPayment = paymentRepository.save(payment);
+                // Create payment record
+                Payment payment = new Payment();
+                payment.setOrderId(orderId);
+                payment.setUserId(userId);
+                payment.setAmount(amount);
+                payment.setPaymentMethod(Payment.PaymentMethod.valueOf(paymentMethod.toUpperCase()));
+                payment.setStatus(Payment.PaymentStatus.PROCESSING);
+                payment.setCreatedAt(LocalDateTime.now());
+                payment.setUpdatedAt(LocalDateTime.now());
+                return paymentRepository.save(payment);
+            });
+            String paymentId = savedPayment.getId();
             
-            // Process payment through gateway
-            Map<String, Object> gatewayResponse = paymentGateway.processPayment(amount, paymentMethod, paymentData);
+            // Process payment through gateway without holding a transaction; the reference lets a timed-out
+            // payment be looked up later
+            Map<String, Object> gatewayData = new HashMap<>(paymentData);
+            gatewayData.put("reference", paymentId);
+            Map<String, Object> gatewayResponse = awaitGateway(asyncPaymentGateway.processPayment(amount, paymentMethod, gatewayData));
             
-            // Update payment record with gateway response
-            if ((Boolean) gatewayResponse.get("success")) {
-                String transactionId = (String) gatewayResponse.get("transactionId");
-                String gatewayResponseMsg = (String) gatewayResponse.get("gatewayResponse");
-                
-                payment.setStatus(Payment.PaymentStatus.SUCCESSFUL);
-                payment.setTransactionId(transactionId);
-                payment.setGatewayResponse(gatewayResponseMsg);
-                payment.setProcessedAt(LocalDateTime.now());
-                payment.setUpdatedAt(LocalDateTime.now());
-                
-                // Set card details if available
-                if (paymentData.containsKey("cardLastFour")) {
-                    payment.setCardLastFour((String) paymentData.get("cardLastFour"));
-                }
-                if (paymentData.containsKey("cardBrand")) {
-                    payment.setCardBrand((String) paymentData.get("cardBrand"));
-                }
-                
-                paymentRepository.save(payment);
-                
-                logger.info("Payment processed successfully: paymentId={}, transactionId={}", savedPayment.getId(), transactionId);
-                
-                return Map.of(
-                    "success", true,
-                    "paymentId", savedPayment.getId(),
-                    "transactionId", transactionId,
-                    "status", "SUCCESSFUL",
-                    "amount", amount,
-                    "gatewayResponse", gatewayResponseMsg
-                );
-                
-            } else {
-                String failureReason = (String) gatewayResponse.get("failureReason");
-                String gatewayResponseMsg = (String) gatewayResponse.get("gatewayResponse");
-                
-                payment.setStatus(Payment.PaymentStatus.FAILED);
-                payment.setGatewayResponse(gatewayResponseMsg);
-                payment.setUpdatedAt(LocalDateTime.now());
-                
-                paymentRepository.save(payment);
-                
-                logger.warn("Payment failed: paymentId={}, reason={}", savedPayment.getId(), failureReason);
-                
+            if (GATEWAY_TIMEOUT.equals(gatewayResponse.get("status"))) {
+                // The charge may or may not have happened; reconciliation settles it against the gateway
+                logger.warn("Payment gateway timed out: paymentId={}", paymentId);
+                transactionTemplate.executeWithoutResult(status -> {
+                    Payment payment = paymentRepository.findById(paymentId)
+                            .orElseThrow(() -> new RuntimeException("Payment not found: " + paymentId));
+                    payment.setStatus(Payment.PaymentStatus.UNKNOWN);
+                    payment.setGatewayErrorCode(GATEWAY_TIMEOUT);
+                    payment.setGatewayErrorMessage("Payment gateway did not respond in time");
+                    payment.setUpdatedAt(LocalDateTime.now());
+                    paymentRepository.save(payment);
+                });
                 return Map.of(
                     "success", false,
-                    "paymentId", savedPayment.getId(),
-                    "status", "FAILED",
-                    "failureReason", failureReason,
-                    "gatewayResponse", gatewayResponseMsg
+                    "paymentId", paymentId,
+                    "status", Payment.PaymentStatus.UNKNOWN.name(),
+                    "statusUrl", "/api/payments/" + paymentId + "?userId=" + userId,
+                    "message", "Payment gateway did not respond in time; the payment will be reconciled"
                 );
             }
             
+            if (GATEWAY_BUSY.equals(gatewayResponse.get("status"))) {
+                // No charge was attempted: close the payment without publishing an outcome and let the caller retry
+                logger.warn("Payment gateway busy, no charge attempted: paymentId={}", paymentId);
+                transactionTemplate.executeWithoutResult(status -> {
+                    Payment payment = paymentRepository.findById(paymentId)
+                            .orElseThrow(() -> new RuntimeException("Payment not found: " + paymentId));
+                    payment.setStatus(Payment.PaymentStatus.FAILED);
+                    payment.setGatewayErrorCode(GATEWAY_BUSY);
+                    payment.setGatewayErrorMessage("Payment gateway busy, no charge was attempted");
+                    payment.setUpdatedAt(LocalDateTime.now());
+                    paymentRepository.save(payment);
+                });
+                throw new RejectedExecutionException("Payment gateway busy");
+            }
+            
+            // Second short transaction: record the gateway outcome
+            return transactionTemplate.execute(status -> completePayment(paymentId, amount, paymentData, gatewayResponse));
+            
         } catch (Exception e) {
             logger.error("Error processing payment for order {}: {}", orderId, e.getMessage(), e);
             throw new RuntimeException("Failed to process payment: " + e.getMessage());
         }
     }
 
+    /**
+     * Update a PROCESSING payment with the gateway response
+     */
+    private Map<String, Object> completePayment(String paymentId, BigDecimal amount, Map<String, Object> paymentData,
+                                                Map<String, Object> gatewayResponse) {
+        Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new RuntimeException("Payment not found: " + paymentId));
+        
+        // Update payment record with gateway response
+        if ((Boolean) gatewayResponse.get("success")) {
+            String transactionId = (String) gatewayResponse.get("transactionId");
+            String gatewayResponseMsg = (String) gatewayResponse.get("gatewayResponse");
+            
+            payment.setStatus(Payment.PaymentStatus.SUCCESSFUL);
+            payment.setTransactionId(transactionId);
+            payment.setGatewayResponse(gatewayResponseMsg);
+            payment.setProcessedAt(LocalDateTime.now());
+            payment.setUpdatedAt(LocalDateTime.now());
+            
+            // Set card details if available
+            if (paymentData.containsKey("cardLastFour")) {
+                payment.setCardLastFour((String) paymentData.get("cardLastFour"));
+            }
+            if (paymentData.containsKey("cardBrand")) {
+                payment.setCardBrand((String) paymentData.get("cardBrand"));
+            }
+            
+            paymentRepository.save(payment);
+            
+            logger.info("Payment processed successfully: paymentId={}, transactionId={}", paymentId, transactionId);
+            
+            return Map.of(
+                "success", true,
+                "paymentId", paymentId,
+                "transactionId", transactionId,
+                "status", "SUCCESSFUL",
+                "amount", amount,
+                "gatewayResponse", gatewayResponseMsg
+            );
+            
+        } else {
+            String failureReason = (String) gatewayResponse.get("failureReason");
+            String gatewayResponseMsg = (String) gatewayResponse.get("gatewayResponse");
+            
+            payment.setStatus(Payment.PaymentStatus.FAILED);
+            payment.setGatewayResponse(gatewayResponseMsg);
+            payment.setUpdatedAt(LocalDateTime.now());
+            
+            paymentRepository.save(payment);
+            
+            logger.warn("Payment failed: paymentId={}, reason={}", paymentId, failureReason);
+            
+            return Map.of(
+                "success", false,
+                "paymentId", paymentId,
+                "status", "FAILED",
+                "failureReason", failureReason,
+                "gatewayResponse", gatewayResponseMsg
+            );
+        }
+    }
+
     @Override
     public Map<String, Object> verifyPayment(String transactionId, String orderId) {
         try {
             logger.info("Verifying payment: transactionId={}, orderId={}", transactionId, orderId);
             
             // Verify through gateway
-            Map<String, Object> gatewayResponse = paymentGateway.verifyTransaction(transactionId);
+            Map<String, Object> gatewayResponse = awaitGateway(asyncPaymentGateway.verifyTransaction(transactionId));
             
             if ((Boolean) gatewayResponse.get("success")) {
                 return Map.of(
@@ -155,7 +241,6 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
-    @Transactional
     public Map<String, Object> processRefund(String paymentId, String orderId, BigDecimal amount, String reason) {
         try {
             logger.info("Processing refund: paymentId={}, orderId={}, amount={}, reason={}", paymentId, orderId, amount, reason);
@@ -169,16 +254,20 @@ public class PaymentServiceImpl implements PaymentService {
                 throw new RuntimeException("Payment does not belong to order: " + orderId);
             }
             
-            // Process refund through gateway
-            Map<String, Object> gatewayResponse = paymentGateway.processRefund(payment.getTransactionId(), amount, reason);
+            // Process refund through gateway; no transaction is open while waiting
+            Map<String, Object> gatewayResponse = awaitGateway(asyncPaymentGateway.processRefund(payment.getTransactionId(), amount, reason));
             
             if ((Boolean) gatewayResponse.get("success")) {
                 String refundId = (String) gatewayResponse.get("refundId");
                 
-                // Update payment status
-            payment.setStatus(Payment.PaymentStatus.REFUNDED);
-        payment.setUpdatedAt(LocalDateTime.now());
-                paymentRepository.save(payment);
+                // Update payment status in a short transaction of its own
+                transactionTemplate.executeWithoutResult(status -> {
+                    Payment refunded = paymentRepository.findById(paymentId)
+                            .orElseThrow(() -> new RuntimeException("Payment not found: " + paymentId));
+                    refunded.setStatus(Payment.PaymentStatus.REFUNDED);
+                    refunded.setUpdatedAt(LocalDateTime.now());
+                    paymentRepository.save(refunded);
+                });
                 
                 // Send refund event via Kafka
                 kafkaProducerService.sendPaymentRefundedEvent(orderId, payment.getUserId(), amount, payment.getTransactionId(), refundId, reason);
@@ -260,12 +349,51 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     public Map<String, Object> getUserPaymentHistory(String userId, int page, int size) {
         try {
-            // Implementation for paginated payment history
-            // This would use Spring Data JPA's Pageable interface
-            return Map.of(
-                "success", true,
-                "message", "Payment history retrieved successfully"
-            );
+            Pageable pageable = PageRequest.of(page, size, PageCursor.keysetSort("createdAt", Sort.Direction.DESC));
+            Page<Payment> paymentPage = paymentRepository.findByUserId(userId, pageable);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("payments", paymentPage.getContent());
+            response.put("currentPage", paymentPage.getNumber());
+            response.put("totalPages", paymentPage.getTotalPages());
+            response.put("totalElements", paymentPage.getTotalElements());
+            response.put("size", paymentPage.getSize());
+            response.put("hasNext", paymentPage.hasNext());
+            return response;
+            
+        } catch (Exception e) {
+            logger.error("Error getting user payment history: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to get payment history: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> scrollUserPaymentHistory(String userId, String cursor, int size, boolean includeTotal) {
+        Map<String, Object> response = new HashMap<>();
+        
+        ScrollPosition position;
+        try {
+            position = PageCursor.toScrollPosition(cursor, "createdAt", Sort.Direction.DESC, LocalDateTime.class);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return response;
+        }
+        
+        try {
+            Window<Payment> window = paymentRepository.findByUserId(userId, position, Limit.of(size),
+                    PageCursor.keysetSort("createdAt", Sort.Direction.DESC));
+            
+            response.put("success", true);
+            response.put("payments", window.getContent());
+            response.put("size", size);
+            response.put("hasNext", window.hasNext());
+            response.put("nextCursor", PageCursor.nextToken(window, "createdAt", Sort.Direction.DESC));
+            if (includeTotal) {
+                response.put("totalElements", paymentRepository.countByUserId(userId));
+            }
+            return response;
             
         } catch (Exception e) {
             logger.error("Error getting user payment history: {}", e.getMessage(), e);
@@ -306,6 +434,66 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    @Override
+    @Scheduled(fixedDelayString = "${payment.reconciliation.interval-ms:60000}")
+    public int reconcileUnknownPayments() {
+        // PROCESSING this long means the outcome of the gateway call was never recorded
+        List<Payment> unresolved = paymentRepository.findByStatusInAndUpdatedAtBeforeOrderByUpdatedAtAsc(
+                List.of(Payment.PaymentStatus.UNKNOWN, Payment.PaymentStatus.PROCESSING),
+                LocalDateTime.now().minus(reconciliationMinAge), Limit.of(reconciliationBatchSize));
+        int settled = 0;
+        for (Payment payment : unresolved) {
+            // Claimed before the lookup, so only one instance settles the payment and publishes its outcome;
+            // a claim left behind by a failed lookup expires after min-age
+            if (paymentRepository.claimForReconciliation(payment.getId(), payment.getStatus(), payment.getUpdatedAt(),
+                    LocalDateTime.now()) == 0) {
+                continue;
+            }
+            
+            Map<String, Object> gatewayResponse;
+            try {
+                gatewayResponse = awaitGateway(asyncPaymentGateway.lookupPayment(payment.getId()));
+            } catch (RuntimeException e) {
+                logger.error("Payment lookup failed for payment {}: {}", payment.getId(), e.getMessage(), e);
+                continue;
+            }
+            Object gatewayStatus = gatewayResponse.get("status");
+            if (GATEWAY_TIMEOUT.equals(gatewayStatus) || GATEWAY_BUSY.equals(gatewayStatus)) {
+                logger.warn("Payment gateway unavailable for reconciliation, {} payments left unresolved", unresolved.size() - settled);
+                break;
+            }
+            
+            Map<String, Object> result = transactionTemplate.execute(status -> {
+                Payment current = paymentRepository.findById(payment.getId()).orElse(null);
+                if (current == null || current.getStatus() != payment.getStatus()) {
+                    return null;
+                }
+                return completePayment(payment.getId(), payment.getAmount(), Map.of(), gatewayResponse);
+            });
+            if (result == null) {
+                continue;
+            }
+            settled++;
+            
+            // Publish the outcome the payment verification consumer never published for this payment
+            String paymentMethod = payment.getPaymentMethod().name();
+            if ((Boolean) result.get("success")) {
+                String transactionId = (String) result.get("transactionId");
+                kafkaProducerService.sendPaymentSuccessfulEvent(payment.getOrderId(), payment.getUserId(), payment.getAmount(),
+                        paymentMethod, transactionId);
+                kafkaProducerService.sendPaymentVerificationResponse(payment.getOrderId(), payment.getUserId(),
+                        payment.getAmount(), transactionId, true);
+            } else {
+                kafkaProducerService.sendPaymentFailedEvent(payment.getOrderId(), payment.getUserId(), payment.getAmount(),
+                        paymentMethod, (String) result.get("failureReason"));
+                kafkaProducerService.sendPaymentVerificationResponse(payment.getOrderId(), payment.getUserId(),
+                        payment.getAmount(), null, false);
+            }
+            logger.info("Reconciled payment {}: {}", payment.getId(), result.get("status"));
+        }
+        return settled;
+    }
+
     @Override
     public Map<String, Object> getGatewayStatus() {
         try {
@@ -325,4 +513,30 @@ public class PaymentServiceImpl implements PaymentService {
             throw new RuntimeException("Failed to test gateway connectivity: " + e.getMessage());
         }
     }
+
+    /**
+     * Wait for a gateway call on the caller's thread
+     * A saturated gateway executor is reported as a failed response with status BUSY, a timeout as status TIMEOUT
+     */
+    private Map<String, Object> awaitGateway(CompletableFuture<Map<String, Object>> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("verified", false);
+            if (e.getCause() instanceof TimeoutException) {
+                response.put("status", GATEWAY_TIMEOUT);
+                response.put("error", "Payment gateway timed out");
+            } else if (e.getCause() instanceof RejectedExecutionException) {
+                response.put("status", GATEWAY_BUSY);
+                response.put("gatewayResponse", "Payment gateway busy");
+                response.put("failureReason", "Too many concurrent gateway calls");
+                response.put("error", "Payment gateway busy");
+            } else {
+                throw e;
+            }
+            return response;
+        }
+    }
 }
@@ -1,22 +1,39 @@
 package com.backend.ecommerce.service.impl;
 
+import com.backend.ecommerce.dto.PageCursor;
+import com.backend.ecommerce.dto.ProductSearchCriteria;
 import com.backend.ecommerce.entity.Product;
 import com.backend.ecommerce.entity.Category;
 import com.backend.ecommerce.repository.ProductRepository;
+import com.backend.ecommerce.repository.ProductSpecifications;
 import com.backend.ecommerce.repository.CategoryRepository;
 import com.backend.ecommerce.service.CatalogService;
+import com.backend.ecommerce.service.InventoryLedger;
+import com.backend.ecommerce.service.ProductCache;
+import com.backend.ecommerce.service.ProductDetailCache;
+import com.backend.ecommerce.service.ProductSearchIndex;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Implementation of CatalogService interface
@@ -25,30 +42,70 @@ import java.util.Optional;
 @Service
 public class ProductServiceImpl implements CatalogService {
 
+    // Fields clients may sort the catalog by
+    private static final Set<String> SORTABLE_FIELDS = Set.of(
+            "name", "price", "averageRating", "discountPercentage", "createdAt", "stockQuantity", "brand");
+    
+    // Non-null fields usable as keyset sort keys, with their types for cursor decoding
+    private static final Map<String, Class<?>> KEYSET_SORT_FIELDS = Map.of(
+            "name", String.class,
+            "price", BigDecimal.class,
+            "createdAt", LocalDateTime.class,
+            "stockQuantity", Integer.class);
+    
+
     @Autowired
     private ProductRepository productRepository;
     
     @Autowired
     private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+    private ProductDetailCache productDetailCache;
+    
+    @Autowired
+    private InventoryLedger inventoryLedger;
+    
+    // Most search hits pushed into one IN list; more hits are queried in chunks of this size and merged
+    @Value("${catalog.search.max-id-filter:1000}")
+    private int maxIdFilter;
 
     @Override
     public Map<String, Object> getProducts(int page, int size, String category, 
                                          String search, Double minPrice, Double maxPrice) {
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setCategory(category);
+        criteria.setSearch(search);
+        criteria.setMinPrice(minPrice != null ? BigDecimal.valueOf(minPrice) : null);
+        criteria.setMaxPrice(maxPrice != null ? BigDecimal.valueOf(maxPrice) : null);
+        
+        return getProducts(criteria, PageRequest.of(page, size));
+    }
+
+    @Override
+    public Map<String, Object> getProducts(ProductSearchCriteria criteria, Pageable pageable) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Product> productPage;
+            Pageable sortedPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                    sanitizeSort(pageable.getSort()));
             
-            // Apply filters based on parameters
-            if (category != null && !category.trim().isEmpty()) {
-                productPage = productRepository.findByCategory(category.trim(), pageable);
-            } else if (search != null && !search.trim().isEmpty()) {
-                productPage = productRepository.searchProducts(search.trim(), pageable);
-            } else if (minPrice != null && maxPrice != null) {
-                productPage = productRepository.findByPriceBetween(minPrice, maxPrice, pageable);
+            List<Specification<Product>> specifications = buildSpecifications(criteria);
+            
+            Page<Product> productPage;
+            if (specifications.isEmpty()) {
+                // Nothing can match; skip both the select and the count query
+                productPage = Page.empty(sortedPageable);
+            } else if (specifications.size() == 1) {
+                productPage = productRepository.findAll(specifications.get(0), sortedPageable);
             } else {
-                productPage = productRepository.findAll(pageable);
+                productPage = findAllInChunks(specifications, sortedPageable);
             }
             
             response.put("success", true);
@@ -67,40 +124,159 @@ public class ProductServiceImpl implements CatalogService {
         
         return response;
     }
-
+    
     @Override
-    public Optional<Map<String, Object>> getProductById(String productId) {
+    public Map<String, Object> scrollProducts(ProductSearchCriteria criteria, String sortBy, Sort.Direction direction,
+                                            String cursor, int size, boolean includeTotal) {
+        Map<String, Object> response = new HashMap<>();
+        
         try {
-            Optional<Product> productOpt = productRepository.findById(productId);
-            if (productOpt.isEmpty()) {
-                return Optional.empty();
+            String sortField = KEYSET_SORT_FIELDS.containsKey(sortBy) ? sortBy : "name";
+            ScrollPosition position = PageCursor.toScrollPosition(cursor, sortField, direction,
+                    KEYSET_SORT_FIELDS.get(sortField));
+            Sort sort = PageCursor.keysetSort(sortField, direction);
+            
+            List<Specification<Product>> specifications = buildSpecifications(criteria);
+            
+            List<Product> products = List.of();
+            String nextCursor = null;
+            boolean hasNext = false;
+            long totalElements = 0;
+            if (specifications.size() == 1) {
+                Window<Product> window = productRepository.findBy(specifications.get(0),
+                        query -> query.sortBy(sort).limit(size).scroll(position));
+                products = window.getContent();
+                hasNext = window.hasNext();
+                nextCursor = PageCursor.nextToken(window, sortField, direction);
+            } else if (!specifications.isEmpty()) {
+                // Each chunk continues from the same position; the first rows of all chunks make the page
+                List<Product> rows = new ArrayList<>();
+                for (Specification<Product> specification : specifications) {
+                    Window<Product> window = productRepository.findBy(specification,
+                            query -> query.sortBy(sort).limit(size).scroll(position));
+                    rows.addAll(window.getContent());
+                    hasNext |= window.hasNext();
+                }
+                rows.sort(comparator(sort));
+                hasNext |= rows.size() > size;
+                products = rows.subList(0, Math.min(size, rows.size()));
+                if (hasNext && !products.isEmpty()) {
+                    Product last = products.get(products.size() - 1);
+                    nextCursor = PageCursor.after(sortField, direction,
+                            new BeanWrapperImpl(last).getPropertyValue(sortField), last.getId());
+                }
+            }
+            if (includeTotal) {
+                for (Specification<Product> specification : specifications) {
+                    totalElements += productRepository.count(specification);
+                }
             }
             
-            Product product = productOpt.get();
-            Map<String, Object> productDetails = new HashMap<>();
-            productDetails.put("id", product.getId());
-            productDetails.put("name", product.getName());
-            productDetails.put("description", product.getDescription());
-            productDetails.put("price", product.getPrice());
-            productDetails.put("category", product.getCategory());
-            productDetails.put("subCategory", product.getSubCategory());
-            productDetails.put("brand", product.getBrand());
-            productDetails.put("model", product.getModel());
-            productDetails.put("sku", product.getSku());
-            productDetails.put("stockQuantity", product.getStockQuantity());
-            productDetails.put("imageUrl", product.getImageUrl());
-            productDetails.put("additionalImages", product.getAdditionalImages());
-            productDetails.put("averageRating", product.getAverageRating());
-            productDetails.put("reviewCount", product.getReviewCount());
-            productDetails.put("featured", product.isFeatured());
-            productDetails.put("active", product.isActive());
-            productDetails.put("createdAt", product.getCreatedAt());
-            productDetails.put("updatedAt", product.getUpdatedAt());
-            
-            return Optional.of(productDetails);
+            response.put("success", true);
+            response.put("products", products);
+            response.put("size", size);
+            response.put("hasNext", hasNext);
+            response.put("nextCursor", nextCursor);
+            if (includeTotal) {
+                response.put("totalElements", totalElements);
+            }
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
         } catch (Exception e) {
-            return Optional.empty();
+            response.put("success", false);
+            response.put("message", "Failed to retrieve products: " + e.getMessage());
         }
+        
+        return response;
+    }
+    
+    /**
+     * Turn catalog filters into product specifications
+     * Free text is resolved through the search index so SQL only sees an ID filter; when the index
+     * matches more than catalog.search.max-id-filter products there is one specification per chunk of IDs.
+     * The criteria are not modified.
+     * @param criteria Catalog filters
+     * @return Specifications whose results together make up the matching products; empty if the free
+     *         text search already rules out every product
+     */
+    private List<Specification<Product>> buildSpecifications(ProductSearchCriteria criteria) {
+        if (criteria.getInStock() != null) {
+            // Ledger counters are ahead of the stock column until their changes are flushed
+            inventoryLedger.flushPending();
+        }
+        if (!criteria.hasSearch()) {
+            return List.of(ProductSpecifications.matching(criteria, null));
+        }
+        
+        List<String> matchingIds = new ArrayList<>(productSearchIndex.matchingIds(criteria.getSearch()));
+        List<Specification<Product>> specifications = new ArrayList<>();
+        for (int from = 0; from < matchingIds.size(); from += maxIdFilter) {
+            List<String> chunk = matchingIds.subList(from, Math.min(from + maxIdFilter, matchingIds.size()));
+            specifications.add(ProductSpecifications.matching(criteria, chunk));
+        }
+        return specifications;
+    }
+    
+    /**
+     * Page through products matched by several ID chunks
+     * Every row of the page is among the first offset + size rows of its own chunk, so each chunk is
+     * read up to there in the requested order and the chunks are merged
+     * @param specifications One specification per chunk of IDs
+     * @param pageable Page with a sort that ends with the ID
+     * @return Page of the merged results
+     */
+    private Page<Product> findAllInChunks(List<Specification<Product>> specifications, Pageable pageable) {
+        int end = Math.toIntExact(Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE));
+        List<Product> rows = new ArrayList<>();
+        long total = 0;
+        for (Specification<Product> specification : specifications) {
+            Page<Product> chunk = productRepository.findAll(specification, PageRequest.of(0, end, pageable.getSort()));
+            rows.addAll(chunk.getContent());
+            total += chunk.getTotalElements();
+        }
+        rows.sort(comparator(pageable.getSort()));
+        int from = (int) Math.min(pageable.getOffset(), rows.size());
+        return new PageImpl<>(new ArrayList<>(rows.subList(from, Math.min(end, rows.size()))), pageable, total);
+    }
+    
+    /**
+     * Order products in memory the way SQL orders them for a sort, nulls first when ascending
+     */
+    private static Comparator<Product> comparator(Sort sort) {
+        Comparator<Product> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Object> values = Comparator.nullsFirst((x, y) -> compareValues(x, y));
+            Comparator<Product> byProperty = Comparator.comparing(
+                    product -> new BeanWrapperImpl(product).getPropertyValue(order.getProperty()), values);
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object a, Object b) {
+        return ((Comparable) a).compareTo(b);
+    }
+    
+    /**
+     * Keep only sortable product fields and add the ID as a tie-breaker for stable paging
+     * @param sort Requested sort
+     * @return Sort safe to push down to SQL
+     */
+    private Sort sanitizeSort(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            if (SORTABLE_FIELDS.contains(order.getProperty())) {
+                orders.add(order);
+            }
+        }
+        if (orders.isEmpty()) {
+            orders.add(Sort.Order.asc("name"));
+        }
+        orders.add(Sort.Order.asc("id"));
+        return Sort.by(orders);
     }
 
     @Override
@@ -137,16 +313,23 @@ public class ProductServiceImpl implements CatalogService {
                 return response;
             }
             
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Product> productPage = productRepository.searchProducts(query.trim(), pageable);
+            // Served from the in-memory index, ranked by relevance
+            ProductSearchIndex.SearchResult result = productSearchIndex.search(query.trim(), page, size);
+            // Stock is not indexed; read the current stock, from the ledger when enabled
+            Map<String, Integer> stock = productCache.getStockQuantities(
+                    result.getProducts().stream().map(Product::getId).toList());
+            for (Product product : result.getProducts()) {
+                product.setStockQuantity(stock.getOrDefault(product.getId(), 0));
+            }
+            int totalPages = size > 0 ? (int) Math.ceil((double) result.getTotalElements() / size) : 0;
             
             response.put("success", true);
-            response.put("products", productPage.getContent());
+            response.put("products", result.getProducts());
             response.put("query", query);
-            response.put("currentPage", productPage.getNumber());
-            response.put("totalPages", productPage.getTotalPages());
-            response.put("totalElements", productPage.getTotalElements());
-            response.put("count", productPage.getContent().size());
+            response.put("currentPage", page);
+            response.put("totalPages", totalPages);
+            response.put("totalElements", result.getTotalElements());
+            response.put("count", result.getProducts().size());
             
         } catch (Exception e) {
             response.put("success", false);
@@ -201,21 +384,23 @@ public class ProductServiceImpl implements CatalogService {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            Optional<Product> productOpt = productRepository.findById(productId);
-            if (productOpt.isEmpty()) {
+            Optional<Product> productOpt = productCache.get(productId);
+            Optional<Integer> stockOpt = productCache.getStockQuantity(productId);
+            if (productOpt.isEmpty() || stockOpt.isEmpty()) {
                 response.put("success", false);
                 response.put("message", "Product not found");
                 return response;
             }
             
             Product product = productOpt.get();
+            int stockQuantity = stockOpt.get();
             Map<String, Object> inventory = new HashMap<>();
             inventory.put("productId", product.getId());
             inventory.put("productName", product.getName());
-            inventory.put("stockQuantity", product.getStockQuantity());
+            inventory.put("stockQuantity", stockQuantity);
             inventory.put("minStockLevel", product.getMinStockLevel());
-            inventory.put("available", product.isInStock());
-            inventory.put("lowStock", product.isLowStock());
+            inventory.put("available", stockQuantity > 0);
+            inventory.put("lowStock", product.getMinStockLevel() != null && stockQuantity <= product.getMinStockLevel());
             inventory.put("lastUpdated", product.getUpdatedAt());
             
             response.put("success", true);
@@ -271,6 +456,7 @@ public class ProductServiceImpl implements CatalogService {
             product.setActive(true);
             
             Product savedProduct = productRepository.save(product);
+            productSearchIndex.index(savedProduct);
             
             response.put("success", true);
             response.put("message", "Product created successfully");
@@ -316,7 +502,18 @@ public class ProductServiceImpl implements CatalogService {
             }
             
             if (productData.get("stockQuantity") != null) {
-                product.setStockQuantity(Integer.parseInt(productData.get("stockQuantity").toString()));
+                int stockQuantity = Integer.parseInt(productData.get("stockQuantity").toString());
+                if (inventoryLedger.isEnabled()) {
+                    // Stock is owned by the ledger; apply the difference there so it is not overwritten
+                    int delta = stockQuantity - inventoryLedger.getAvailable(productId).orElse(stockQuantity);
+                    if (delta != 0 && !inventoryLedger.tryAdjust(productId, delta)) {
+                        response.put("success", false);
+                        response.put("message", "Stock changed concurrently, please retry");
+                        return response;
+                    }
+                } else {
+                    product.setStockQuantity(stockQuantity);
+                }
             }
             
             if (productData.get("brand") != null) {
@@ -331,7 +528,10 @@ public class ProductServiceImpl implements CatalogService {
                 product.setActive(Boolean.parseBoolean(productData.get("active").toString()));
             }
             
-            productRepository.save(product);
+            Product savedProduct = productRepository.save(product);
+            productCache.evict(productId);
+            productDetailCache.evict(productId);
+            productSearchIndex.index(savedProduct);
             
             response.put("success", true);
             response.put("message", "Product updated successfully");
@@ -359,6 +559,9 @@ public class ProductServiceImpl implements CatalogService {
             Product product = productOpt.get();
             product.setActive(false);
             productRepository.save(product);
+            productCache.evict(productId);
+            productDetailCache.evict(productId);
+            productSearchIndex.remove(productId);
             
             response.put("success", true);
             response.put("message", "Product deleted successfully");
@@ -376,24 +579,27 @@ public class ProductServiceImpl implements CatalogService {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            Optional<Product> productOpt = productRepository.findById(productId);
-            if (productOpt.isEmpty()) {
+            // Single conditional UPDATE instead of read-modify-write, so concurrent changes cannot be lost;
+            // the inventory ledger, when enabled, owns stock and writes it back itself
+            int updated = inventoryLedger.isEnabled()
+                    ? (inventoryLedger.tryAdjust(productId, quantity) ? 1 : 0)
+                    : productRepository.adjustStockQuantity(productId, quantity, LocalDateTime.now());
+            Optional<Integer> stockOpt = productCache.getStockQuantity(productId);
+            if (stockOpt.isEmpty()) {
                 response.put("success", false);
                 response.put("message", "Product not found");
                 return response;
             }
             
-            Product product = productOpt.get();
-            int newQuantity = product.getStockQuantity() + quantity;
-            
-            if (newQuantity < 0) {
+            if (updated == 0) {
                 response.put("success", false);
                 response.put("message", "Insufficient stock for this operation");
                 return response;
             }
             
-            product.setStockQuantity(newQuantity);
-            productRepository.save(product);
+            int newQuantity = stockOpt.get();
+            productCache.evict(productId);
+            productDetailCache.evict(productId);
             
             response.put("success", true);
             response.put("message", "Inventory updated successfully");
@@ -1,12 +1,15 @@
 package com.backend.ecommerce.service.impl;
 
 import com.backend.ecommerce.service.PaymentGatewayService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,6 +30,12 @@ public class StripePaymentGatewayService implements PaymentGatewayService {
     @Value("${stripe.webhook-secret}")
     private String stripeWebhookSecret;
     
+    // Simulated record of charges by reference, as Stripe keeps them in PaymentIntent metadata
+    private final Cache<String, Map<String, Object>> chargesByReference = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofDays(1))
+            .build();
+    
     @Override
     public Map<String, Object> processPayment(BigDecimal amount, String paymentMethod, Map<String, Object> paymentData) {
         try {
@@ -66,6 +75,10 @@ public class StripePaymentGatewayService implements PaymentGatewayService {
                 logger.warn("Stripe payment failed: amount={}", amount);
             }
             
+            Object reference = paymentData.get("reference");
+            if (reference != null) {
+                chargesByReference.put(reference.toString(), response);
+            }
             return response;
             
         } catch (Exception e) {
@@ -82,6 +95,25 @@ public class StripePaymentGatewayService implements PaymentGatewayService {
         }
     }
     
+    @Override
+    public Map<String, Object> lookupPayment(String reference) {
+        logger.info("Looking up Stripe payment by reference: {}", reference);
+        
+        // In a real implementation, this would search PaymentIntents by metadata
+        Map<String, Object> charge = chargesByReference.getIfPresent(reference);
+        if (charge != null) {
+            return charge;
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("status", "NOT_FOUND");
+        response.put("gatewayResponse", "No payment with this reference");
+        response.put("failureReason", "Payment never reached the gateway");
+        response.put("gateway", "STRIPE");
+        return response;
+    }
+    
     @Override
     public Map<String, Object> verifyTransaction(String transactionId) {
         try {
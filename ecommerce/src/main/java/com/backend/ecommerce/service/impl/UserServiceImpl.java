@@ -8,15 +8,23 @@ import com.backend.ecommerce.entity.PasswordResetToken;
 import com.backend.ecommerce.entity.User;
 import com.backend.ecommerce.event.UserLoginEvent;
 import com.backend.ecommerce.event.UserRegistrationEvent;
+import com.backend.ecommerce.event.UserStatusEvent;
 import com.backend.ecommerce.repository.PasswordResetTokenRepository;
 import com.backend.ecommerce.repository.UserRepository;
 import com.backend.ecommerce.service.JwtService;
 import com.backend.ecommerce.service.KafkaProducerService;
+import com.backend.ecommerce.service.LastLoginRecorder;
+import com.backend.ecommerce.service.LoginThrottle;
+import com.backend.ecommerce.service.PasswordHashingService;
+import com.backend.ecommerce.service.RegisteredEmailFilter;
+import com.backend.ecommerce.service.TokenRevocationList;
 import com.backend.ecommerce.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -50,6 +58,24 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     @Autowired
     private KafkaProducerService kafkaProducerService;
     
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+    
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+    
+    @Autowired
+    private LoginThrottle loginThrottle;
+    
+    @Autowired
+    private LastLoginRecorder lastLoginRecorder;
+    
+    @Autowired
+    private RegisteredEmailFilter registeredEmailFilter;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     @Value("${password.reset.token.expiration:3600000}")
     private long tokenExpiration;
     
@@ -62,8 +88,8 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            // Check if user already exists
-            if (userExistsByEmail(userDto.getEmail())) {
+            // Check if user already exists; the email filter only knows this instance's view, so ask the database
+            if (userRepository.existsByEmail(userDto.getEmail())) {
                 response.put("success", false);
                 response.put("error", "Email already registered");
                 return response;
@@ -83,6 +109,8 @@ public class UserServiceImpl implements UserService, UserDetailsService {
             
             // Save user
             User savedUser = userRepository.save(user);
+            registeredEmailFilter.add(savedUser.getEmail());
+            publishUserStatus(savedUser, UserStatusEvent.UserStatus.REGISTERED);
             
             // Send Kafka event
             UserRegistrationEvent event = new UserRegistrationEvent(
@@ -112,26 +140,35 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     }
     
     @Override
-    public Map<String, Object> loginUser(UserLoginDto loginDto) {
+    public Map<String, Object> loginUser(UserLoginDto loginDto, String clientIp) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            // Validate credentials
-            if (!validateCredentials(loginDto.getEmail(), loginDto.getPassword())) {
+            // Throttled attempts are rejected before any lookup or hashing
+            long retryAfterSeconds = loginThrottle.retryAfterSeconds(loginDto.getEmail(), clientIp);
+            if (retryAfterSeconds > 0) {
+                meterRegistry.counter("login.rejected", "reason", "throttled").increment();
                 response.put("success", false);
-                response.put("error", "Invalid credentials");
+                response.put("error", "Too many failed login attempts, please try again later");
+                response.put("retryAfterSeconds", retryAfterSeconds);
                 return response;
             }
             
-            // Get user
+            // Load the user once and check the password on the hashing pool; an unknown email is checked
+            // against a dummy hash so it takes as long as a wrong password
             Optional<User> userOpt = getUserByEmail(loginDto.getEmail());
-            if (userOpt.isEmpty()) {
+            boolean passwordMatches = userOpt.isPresent()
+                    ? passwordHashingService.matches(loginDto.getPassword(), userOpt.get().getPassword())
+                    : passwordHashingService.matchesNoAccount(loginDto.getPassword());
+            if (!passwordMatches) {
+                loginThrottle.recordFailure(loginDto.getEmail(), clientIp);
                 response.put("success", false);
-                response.put("error", "User not found");
+                response.put("error", "Invalid credentials");
                 return response;
             }
             
             User user = userOpt.get();
+            loginThrottle.recordSuccess(loginDto.getEmail());
             
             // Check if user is active
             if (!user.isActive()) {
@@ -140,11 +177,14 @@ public class UserServiceImpl implements UserService, UserDetailsService {
                 return response;
             }
             
+            // Rehash with the current algorithm and cost while the raw password is at hand
+            rehashIfOutdated(user, loginDto.getPassword());
+            
             // Update last login
             updateLastLogin(user.getId());
             
             // Generate JWT token
-            UserDetails userDetails = loadUserByUsername(user.getEmail());
+            UserDetails userDetails = toUserDetails(user);
             Map<String, Object> extraClaims = new HashMap<>();
             extraClaims.put("userId", user.getId());
             extraClaims.put("role", user.getRole().toString());
@@ -157,7 +197,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
                 user.getEmail(),
                 "EMAIL_PASSWORD",
                 "Web Client",
-                "127.0.0.1",
+                clientIp,
                 true
             );
             kafkaProducerService.sendUserLoginEvent(event);
@@ -169,6 +209,13 @@ public class UserServiceImpl implements UserService, UserDetailsService {
             
             logger.info("User logged in successfully: {}", user.getEmail());
             
+        } catch (TaskRejectedException e) {
+            logger.warn("Login rejected, password hashing is saturated: {}", e.getMessage());
+            meterRegistry.counter("login.rejected", "reason", "overloaded").increment();
+            response.put("success", false);
+            response.put("error", "Login is temporarily unavailable, please try again");
+            response.put("retryAfterSeconds", 1);
+            response.put("overloaded", true);
         } catch (Exception e) {
             logger.error("Error during login: {}", e.getMessage(), e);
             response.put("success", false);
@@ -267,6 +314,8 @@ public class UserServiceImpl implements UserService, UserDetailsService {
             
             // Delete user
             userRepository.delete(user);
+            registeredEmailFilter.removeAfterCommit(user.getEmail());
+            publishUserStatus(user, UserStatusEvent.UserStatus.DELETED);
             
             response.put("success", true);
             response.put("message", "Account deleted successfully");
@@ -284,7 +333,11 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     
     @Override
     public boolean userExistsByEmail(String email) {
-        return userRepository.findByEmail(email).isPresent();
+        // Emails the filter has never seen are free without a query
+        if (!registeredEmailFilter.mightContain(email)) {
+            return false;
+        }
+        return userRepository.existsByEmail(email);
     }
     
     @Override
@@ -295,7 +348,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         }
         
         User user = userOpt.get();
-        return passwordEncoder.matches(password, user.getPassword());
+        return passwordHashingService.matches(password, user.getPassword());
     }
     
     @Override
@@ -376,6 +429,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
             
             // Mark token as used
             passwordResetTokenRepository.markTokenAsUsed(resetToken.getId());
+            publishUserStatus(user, UserStatusEvent.UserStatus.CREDENTIALS_CHANGED);
             
             response.put("success", true);
             response.put("message", "Password reset successfully");
@@ -423,6 +477,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
             // Update password
             user.setPassword(passwordEncoder.encode(passwordChangeDto.getNewPassword()));
             userRepository.save(user);
+            publishUserStatus(user, UserStatusEvent.UserStatus.CREDENTIALS_CHANGED);
             
             response.put("success", true);
             response.put("message", "Password changed successfully");
@@ -503,14 +558,8 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     }
     
     @Override
-    @Transactional
     public void updateLastLogin(String userId) {
-        Optional<User> userOpt = getUserById(userId);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            user.setLastLogin(LocalDateTime.now());
-            userRepository.save(user);
-        }
+        lastLoginRecorder.record(userId, LocalDateTime.now());
     }
     
     @Override
@@ -531,8 +580,17 @@ public class UserServiceImpl implements UserService, UserDetailsService {
             throw new UsernameNotFoundException("User not found with email: " + email);
         }
         
-        User user = userOpt.get();
-        
+        return toUserDetails(userOpt.get());
+    }
+    
+    // Helper methods
+    
+    /**
+     * Build the Spring Security view of a loaded user
+     * @param user User entity
+     * @return User details
+     */
+    private UserDetails toUserDetails(User user) {
         return org.springframework.security.core.userdetails.User.builder()
                 .username(user.getEmail())
                 .password(user.getPassword())
@@ -544,7 +602,42 @@ public class UserServiceImpl implements UserService, UserDetailsService {
                 .build();
     }
     
-    // Helper methods
+    /**
+     * Replace a password hash made with an older algorithm or a lower cost
+     * Only the password column is written and the loaded user is left untouched, so it cannot overwrite
+     * last-login times flushed meanwhile; a password changed meanwhile is kept.
+     * Failures are logged and leave the old hash in place; the next login tries again
+     * @param user User who just logged in
+     * @param rawPassword Verified password
+     */
+    private void rehashIfOutdated(User user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return;
+        }
+        try {
+            String upgraded = passwordHashingService.encode(rawPassword);
+            if (userRepository.updatePassword(user.getId(), user.getPassword(), upgraded, LocalDateTime.now()) == 0) {
+                logger.info("Password of user {} changed during login, hash not upgraded", user.getEmail());
+                return;
+            }
+            logger.info("Upgraded password hash for user: {}", user.getEmail());
+        } catch (RuntimeException e) {
+            logger.warn("Could not upgrade password hash for user {}: {}", user.getEmail(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Publish an account change: on this instance at once and on the others through the user status topic,
+     * registrations reach the email filters and other changes revoke the tokens issued to the user so far
+     * @param user Changed user
+     * @param status Change
+     */
+    private void publishUserStatus(User user, UserStatusEvent.UserStatus status) {
+        UserStatusEvent event = new UserStatusEvent(user.getId(), user.getEmail(), status, System.currentTimeMillis());
+        tokenRevocationList.apply(event);
+        kafkaProducerService.sendUserStatusEvent(event);
+    }
+    
     private Map<String, Object> createUserMap(User user) {
         Map<String, Object> userMap = new HashMap<>();
         userMap.put("id", user.getId());
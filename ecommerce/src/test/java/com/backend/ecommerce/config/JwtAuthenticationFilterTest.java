@@ -0,0 +1,164 @@
+package com.backend.ecommerce.config;
+
+import com.backend.ecommerce.dto.AuthenticatedUser;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.event.UserStatusEvent;
+import com.backend.ecommerce.event.serialization.EncodedEvent;
+import com.backend.ecommerce.event.serialization.EventCodecs;
+import com.backend.ecommerce.event.serialization.EventPayload;
+import com.backend.ecommerce.repository.UserRepository;
+import com.backend.ecommerce.service.JwtService;
+import com.backend.ecommerce.service.KafkaProducerService;
+import com.backend.ecommerce.service.OrderKafkaConsumerService;
+import com.backend.ecommerce.service.TokenRevocationList;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bearer tokens authenticate requests from their claims alone and stop working once revoked
+ */
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.backend.ecommerce.config.SqlStatementCounter")
+@ActiveProfiles("test")
+class JwtAuthenticationFilterTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private OrderKafkaConsumerService orderKafkaConsumerService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EventCodecs eventCodecs;
+
+    @MockitoBean
+    private KafkaProducerService kafkaProducerService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+    }
+
+    @Test
+    void testValidTokenAuthenticatesWithoutLoadingTheUser() throws Exception {
+        User user = user(0);
+        String token = token(user);
+
+        SqlStatementCounter.reset();
+        mockMvc.perform(get("/api/orders/user/{userId}/stats", user.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        assertEquals(0, SqlStatementCounter.countContaining(" users"));
+
+        mockMvc.perform(get("/api/orders/user/{userId}/stats", user.getId()))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/orders/user/{userId}/stats", user.getId())
+                        .header("Authorization", "Bearer " + token.substring(0, token.length() - 2) + "xx"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void testPrincipalIsBuiltFromClaims() throws Exception {
+        User user = user(0);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cart");
+        request.addHeader("Authorization", "Bearer " + token(user));
+        AtomicReference<Authentication> authentication = new AtomicReference<>();
+
+        new JwtAuthenticationFilter(jwtService, tokenRevocationList).doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> authentication.set(SecurityContextHolder.getContext().getAuthentication()));
+        SecurityContextHolder.clearContext();
+
+        AuthenticatedUser principal = (AuthenticatedUser) authentication.get().getPrincipal();
+        assertEquals(user.getId(), principal.getUserId());
+        assertEquals(user.getEmail(), authentication.get().getName());
+        assertEquals(List.of("ROLE_" + user.getRole()),
+                authentication.get().getAuthorities().stream().map(Object::toString).toList());
+    }
+
+    @Test
+    void testStatusEventRevokesEarlierTokensOfThatUserOnly() throws Exception {
+        User revoked = user(1);
+        User other = user(2);
+        String revokedToken = token(revoked);
+        String otherToken = token(other);
+
+        orderKafkaConsumerService.consumeUserStatusUpdate(payload(new UserStatusEvent(revoked.getId(), revoked.getEmail(),
+                UserStatusEvent.UserStatus.ACTIVATED, System.currentTimeMillis())), "user-status-updates-test");
+        assertFalse(tokenRevocationList.isRevoked(revoked.getId(), jwtService.extractClaim(revokedToken, Claims::getIssuedAt)));
+
+        // Issue times are whole seconds, so the change has to fall in a later second to cover the token
+        long issuedAt = jwtService.extractClaim(revokedToken, Claims::getIssuedAt).getTime();
+        orderKafkaConsumerService.consumeUserStatusUpdate(payload(new UserStatusEvent(revoked.getId(), revoked.getEmail(),
+                UserStatusEvent.UserStatus.DEACTIVATED, issuedAt + 1000)), "user-status-updates-test");
+
+        mockMvc.perform(get("/api/orders/user/{userId}/stats", revoked.getId())
+                        .header("Authorization", "Bearer " + revokedToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/orders/user/{userId}/stats", other.getId())
+                        .header("Authorization", "Bearer " + otherToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testTokenIssuedInTheSecondOfTheChangeStaysValid() throws Exception {
+        User user = user(3);
+        String token = token(user);
+        Date issuedAt = jwtService.extractClaim(token, Claims::getIssuedAt);
+
+        // A token handed out right after a password change carries the same second as the change
+        tokenRevocationList.revoke(user.getId(), issuedAt.getTime() + 999);
+        assertFalse(tokenRevocationList.isRevoked(user.getId(), issuedAt));
+        mockMvc.perform(get("/api/orders/user/{userId}/stats", user.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        assertTrue(tokenRevocationList.isRevoked(user.getId(), new Date(issuedAt.getTime() - 1000)));
+    }
+
+    private User user(int index) {
+        return userRepository.findAll().get(index);
+    }
+
+    private String token(User user) {
+        return jwtService.generateToken(Map.of("userId", user.getId(), "role", user.getRole().toString()),
+                org.springframework.security.core.userdetails.User.withUsername(user.getEmail())
+                        .password("unused").roles(user.getRole().toString()).build());
+    }
+
+    private EventPayload payload(Object event) {
+        EncodedEvent encoded = eventCodecs.encode(event);
+        return new EventPayload(eventCodecs, encoded.getData(), encoded.getFormat(), encoded.getSchemaVersion());
+    }
+}
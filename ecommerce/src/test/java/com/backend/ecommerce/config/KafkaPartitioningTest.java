@@ -0,0 +1,114 @@
+package com.backend.ecommerce.config;
+
+import com.backend.ecommerce.entity.OutboxEvent;
+import com.backend.ecommerce.event.EventKeys;
+import com.backend.ecommerce.event.UserLoginEvent;
+import com.backend.ecommerce.repository.OutboxEventRepository;
+import com.backend.ecommerce.service.OrderKafkaProducerService;
+import com.backend.ecommerce.service.PaymentVerificationPipeline;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Order and payment events are keyed by order ID and consumed with one thread per partition
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class KafkaPartitioningTest {
+
+    @Autowired
+    private Map<String, NewTopic> topics;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private OrderKafkaProducerService orderKafkaProducerService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testBatchListenersRunOneThreadPerPartition() {
+        int partitions = topics.get("orderEventsTopic").numPartitions();
+        assertEquals(6, partitions);
+        for (String topic : List.of("orderStatusUpdatesTopic", "paymentEventsTopic", "paymentVerificationTopic",
+                "paymentVerificationResponseTopic", "paymentStatusUpdatesTopic", "paymentRefundsTopic")) {
+            assertEquals(partitions, topics.get(topic).numPartitions(), topic);
+        }
+
+        List<String> orderTopics = List.of("payment-verification-test", "payment-verification-response-test",
+                "payment-status-updates-test");
+        int orderListeners = 0;
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            String[] listenedTopics = container.getContainerProperties().getTopics();
+            if (listenedTopics != null && orderTopics.containsAll(List.of(listenedTopics))) {
+                assertEquals(partitions, ((ConcurrentMessageListenerContainer<?, ?>) container).getConcurrency());
+                orderListeners++;
+            }
+        }
+        assertEquals(orderTopics.size(), orderListeners);
+    }
+
+    @Test
+    void testVerificationRequestsArePolledOneRecordAtATimeWithinThePipelineLimit() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(PaymentVerificationPipeline.LISTENER_ID);
+        assertFalse(((AbstractMessageListenerContainer<?, ?>) container).getContainerProperties().getMessageListener()
+                instanceof BatchMessageListener);
+        // A full poll fits the pipeline, so the gateway calls of one poll never add up on the listener thread
+        assertEquals("32", container.getContainerProperties().getKafkaConsumerProperties()
+                .getProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG));
+
+        for (MessageListenerContainer batchContainer : listenerRegistry.getListenerContainers()) {
+            String[] listenedTopics = batchContainer.getContainerProperties().getTopics();
+            if (listenedTopics != null && List.of(listenedTopics).contains("payment-status-updates-test")) {
+                assertEquals("500", batchContainer.getContainerProperties().getKafkaConsumerProperties()
+                        .getProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG));
+            }
+        }
+    }
+
+    @Test
+    void testOrderAndPaymentEventsOfAnOrderShareTheKey() {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderKafkaProducerService.sendOrderCreatedEvent("order-1", "user-1", "ORD-1", BigDecimal.TEN);
+            orderKafkaProducerService.sendPaymentVerificationRequest("order-1", "user-1", BigDecimal.TEN, "CREDIT_CARD");
+            orderKafkaProducerService.sendOrderCancelledEvent("order-1", "user-1", "changed my mind");
+        });
+
+        List<OutboxEvent> queued = outboxEventRepository.findAll();
+        assertEquals(3, queued.size());
+        queued.forEach(event -> assertEquals("order-1", event.getMessageKey()));
+    }
+
+    @Test
+    void testUserEventsBeforeRegistrationAreKeyedByNormalizedEmail() {
+        UserLoginEvent event = new UserLoginEvent(null, " Jane@Example.com", "PASSWORD", "junit", "127.0.0.1", false);
+        assertEquals("jane@example.com", EventKeys.of(event));
+    }
+}
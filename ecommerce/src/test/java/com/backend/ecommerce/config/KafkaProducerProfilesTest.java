@@ -0,0 +1,104 @@
+package com.backend.ecommerce.config;
+
+import com.backend.ecommerce.event.PaymentEvent;
+import com.backend.ecommerce.event.UserLoginEvent;
+import com.backend.ecommerce.service.KafkaProducerService;
+import com.backend.ecommerce.service.PaymentKafkaProducerService;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Each kind of event is sent through the producer profile tuned for it
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class KafkaProducerProfilesTest {
+
+    @MockitoBean
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @MockitoBean(name = "bulkKafkaTemplate")
+    private KafkaTemplate<String, Object> bulkKafkaTemplate;
+
+    @MockitoBean(name = "criticalKafkaTemplate")
+    private KafkaTemplate<String, Object> criticalKafkaTemplate;
+
+    @Autowired
+    private ProducerFactory<String, Object> producerFactory;
+
+    @Autowired
+    @Qualifier("bulkProducerFactory")
+    private ProducerFactory<String, Object> bulkProducerFactory;
+
+    @Autowired
+    @Qualifier("criticalProducerFactory")
+    private ProducerFactory<String, Object> criticalProducerFactory;
+
+    @Autowired
+    private KafkaProducerService kafkaProducerService;
+
+    @Autowired
+    private PaymentKafkaProducerService paymentKafkaProducerService;
+
+    private final SendResult<String, Object> sendResult = mock();
+
+    @BeforeEach
+    void setUp() {
+        for (KafkaTemplate<String, Object> template : List.of(kafkaTemplate, bulkKafkaTemplate, criticalKafkaTemplate)) {
+            when(template.send(anyString(), anyString(), any()))
+                    .thenReturn(CompletableFuture.completedFuture(sendResult));
+        }
+    }
+
+    @Test
+    void testProfilesHaveTheirOwnTuning() {
+        Map<String, Object> bulk = bulkProducerFactory.getConfigurationProperties();
+        assertEquals("zstd", bulk.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(50, bulk.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(false, bulk.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+
+        Map<String, Object> critical = criticalProducerFactory.getConfigurationProperties();
+        assertEquals("none", critical.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(0, critical.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(true, critical.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+
+        Map<String, Object> defaults = producerFactory.getConfigurationProperties();
+        assertEquals("lz4", defaults.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(true, defaults.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+    }
+
+    @Test
+    void testSendMethodsRouteToTheirProfile() {
+        kafkaProducerService.sendUserLoginEvent(new UserLoginEvent("user-1", "user@example.com", "PASSWORD", "junit", "127.0.0.1", true));
+        verify(bulkKafkaTemplate).send(eq("user-logins"), eq("user-1"), any());
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+
+        paymentKafkaProducerService.sendPaymentVerificationResponse("order-1", "user-1", BigDecimal.TEN, "txn-1", true);
+        verify(criticalKafkaTemplate).send(eq("payment-verification-response-test"), eq("order-1"), any(PaymentEvent.class));
+
+        paymentKafkaProducerService.sendPaymentInitiatedEvent("order-1", "user-1", BigDecimal.TEN, "CREDIT_CARD");
+        verify(kafkaTemplate).send(eq("payment-events-test"), eq("order-1"), any(PaymentEvent.class));
+        verify(bulkKafkaTemplate, times(1)).send(anyString(), anyString(), any());
+        verify(criticalKafkaTemplate, times(1)).send(anyString(), anyString(), any());
+    }
+}
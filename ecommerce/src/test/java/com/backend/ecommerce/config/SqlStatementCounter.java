@@ -0,0 +1,41 @@
+package com.backend.ecommerce.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hibernate statement inspector that records every SQL statement Hibernate prepares
+ * Enable with spring.jpa.properties.hibernate.session_factory.statement_inspector
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    public static void reset() {
+        statements.clear();
+    }
+
+    public static int count() {
+        return statements.size();
+    }
+
+    public static long count(String prefix) {
+        return statements.stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith(prefix))
+                .count();
+    }
+
+    public static long countContaining(String fragment) {
+        return statements.stream()
+                .filter(sql -> sql.toLowerCase().contains(fragment))
+                .count();
+    }
+}
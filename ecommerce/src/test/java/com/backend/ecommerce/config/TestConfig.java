@@ -24,16 +24,16 @@ public class TestConfig {
      */
     @Bean
     @Primary
-    public KafkaTemplate<String, String> kafkaTemplate() {
+    public KafkaTemplate<String, Object> kafkaTemplate() {
         return new KafkaTemplate<>(null) {
             @Override
-            public CompletableFuture<SendResult<String, String>> send(String topic, String data) {
+            public CompletableFuture<SendResult<String, Object>> send(String topic, Object data) {
                 // Mock implementation - return completed future
                 return CompletableFuture.completedFuture(null);
             }
             
             @Override
-            public CompletableFuture<SendResult<String, String>> send(String topic, String key, String data) {
+            public CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object data) {
                 // Mock implementation - return completed future
                 return CompletableFuture.completedFuture(null);
             }
@@ -4,15 +4,21 @@ import com.backend.ecommerce.entity.Category;
 import com.backend.ecommerce.entity.Product;
 import com.backend.ecommerce.repository.CategoryRepository;
 import com.backend.ecommerce.repository.ProductRepository;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -97,4 +103,45 @@ class CatalogControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.success").value(true));
     }
+
+    @Test
+    void testGetProductsWithCursor() throws Exception {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        // Walk the whole catalog three products at a time by following nextCursor
+        List<String> names = new ArrayList<>();
+        String cursor = "";
+        do {
+            MvcResult result = mockMvc.perform(get("/api/catalog/products")
+                    .param("size", "3")
+                    .param("sortBy", "name")
+                    .param("cursor", cursor)
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.success").value(true))
+                    .andExpect(jsonPath("$.totalElements").doesNotExist())
+                    .andReturn();
+            String body = result.getResponse().getContentAsString();
+            names.addAll(JsonPath.read(body, "$.products[*].name"));
+            cursor = JsonPath.read(body, "$.nextCursor");
+        } while (cursor != null);
+
+        List<String> expected = productRepository.findAll().stream()
+                .filter(Product::isActive)
+                .map(Product::getName)
+                .sorted()
+                .toList();
+        assertEquals(expected, names);
+
+        // A cursor issued for one sort order is rejected for another
+        String priceCursor = JsonPath.read(mockMvc.perform(get("/api/catalog/products")
+                        .param("size", "1")
+                        .param("sortBy", "price")
+                        .param("cursor", ""))
+                .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+        mockMvc.perform(get("/api/catalog/products")
+                .param("sortBy", "name")
+                .param("cursor", priceCursor))
+                .andExpect(status().isBadRequest());
+    }
 }
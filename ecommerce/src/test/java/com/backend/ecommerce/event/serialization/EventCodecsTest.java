@@ -0,0 +1,177 @@
+package com.backend.ecommerce.event.serialization;
+
+import com.backend.ecommerce.event.OrderEvent;
+import com.backend.ecommerce.event.PaymentEvent;
+import com.backend.ecommerce.event.UserLoginEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips of event payloads through the JSON and Avro wire formats
+ */
+class EventCodecsTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final EventCodecs avroCodecs = new EventCodecs(objectMapper, AvroEventCodec.FORMAT);
+
+    private final EventCodecs jsonCodecs = new EventCodecs(objectMapper, JsonEventCodec.FORMAT);
+
+    @Test
+    void testAvroRoundTripKeepsEveryField() {
+        OrderEvent event = orderEvent();
+
+        EncodedEvent encoded = avroCodecs.encode(event);
+        assertEquals(AvroEventCodec.FORMAT, encoded.getFormat());
+        assertEquals(1, encoded.getSchemaVersion());
+
+        OrderEvent decoded = avroCodecs.decode(encoded.getData(), encoded.getFormat(), encoded.getSchemaVersion(), OrderEvent.class);
+        assertEquals(objectMapper.valueToTree(event), objectMapper.valueToTree(decoded));
+        assertEquals(new BigDecimal("129.90"), decoded.getTotalAmount());
+        assertEquals(event.getCreatedAt(), decoded.getCreatedAt());
+    }
+
+    @Test
+    void testAvroPayloadIsSmallerThanJson() {
+        OrderEvent event = orderEvent();
+
+        int avroBytes = avroCodecs.encode(event).getData().length;
+        int jsonBytes = jsonCodecs.encode(event).getData().length;
+        assertTrue(avroBytes * 2 < jsonBytes, "avro " + avroBytes + " bytes, json " + jsonBytes + " bytes");
+    }
+
+    @Test
+    void testEncodedSizesAreReported(TestReporter reporter) {
+        PaymentEvent payment = new PaymentEvent(PaymentEvent.PAYMENT_SUCCESSFUL, "5f0c2a7e-1b7d-4c1e-9a53-3f1e0f7c9d21",
+                "0b8e8a54-7d0f-4f0e-a0b3-9e4c6f7d1a22", new BigDecimal("129.90"));
+        payment.setPaymentId("c2d4e6f8-1a3b-4c5d-8e9f-0a1b2c3d4e5f");
+        payment.setTransactionId("txn_1Q2w3E4r5T6y7U8i");
+        payment.setPaymentMethod("CREDIT_CARD");
+        payment.setStatus(PaymentEvent.PaymentStatus.SUCCESSFUL);
+        payment.setTimestamp(LocalDateTime.of(2026, 10, 17, 12, 30, 16));
+
+        // Bytes per event next to the EventCodecBenchmark throughput figures
+        Map<String, Object> events = Map.of("order", orderEvent(), "payment", payment);
+        events.forEach((name, event) -> {
+            int avroBytes = avroCodecs.encode(event).getData().length;
+            int jsonBytes = jsonCodecs.encode(event).getData().length;
+            reporter.publishEntry(Map.of(name + ".avro.bytes", String.valueOf(avroBytes),
+                    name + ".json.bytes", String.valueOf(jsonBytes)));
+            assertTrue(avroBytes < jsonBytes, name + ": avro " + avroBytes + " bytes, json " + jsonBytes + " bytes");
+        });
+    }
+
+    @Test
+    void testSerializerHeadersSelectTheDecoder() {
+        PaymentEvent event = new PaymentEvent(PaymentEvent.PAYMENT_SUCCESSFUL, "order-1", "user-1", new BigDecimal("10.00"));
+        event.setStatus(PaymentEvent.PaymentStatus.SUCCESSFUL);
+
+        RecordHeaders headers = new RecordHeaders();
+        byte[] data = new EventSerializer(avroCodecs).serialize("payments", headers, event);
+        assertEquals("avro", new String(headers.lastHeader(EventCodecs.FORMAT_HEADER).value(), StandardCharsets.UTF_8));
+
+        // A consumer still producing JSON decodes Avro records by their headers
+        EventPayload payload = new EventDeserializer(jsonCodecs).deserialize("payments", headers, data);
+        PaymentEvent decoded = payload.as(PaymentEvent.class);
+        assertEquals("order-1", decoded.getOrderId());
+        assertEquals(PaymentEvent.PaymentStatus.SUCCESSFUL, decoded.getStatus());
+    }
+
+    @Test
+    void testConsumedPayloadIsRepublishedAsItWasWritten() {
+        RecordHeaders headers = new RecordHeaders();
+        byte[] data = new EventSerializer(avroCodecs).serialize("payments", headers, orderEvent());
+        EventPayload payload = new EventDeserializer(jsonCodecs).deserialize("payments", headers, data);
+
+        // As on the way to a dead letter topic, by a producer writing JSON
+        RecordHeaders republished = new RecordHeaders();
+        assertArrayEquals(data, new EventSerializer(jsonCodecs).serialize("payments.DLT", republished, payload));
+        assertEquals("avro", new String(republished.lastHeader(EventCodecs.FORMAT_HEADER).value(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testUnreadableHeaderIsReportedAndTheRecordRepublishedAsItWasWritten() {
+        RecordHeaders headers = new RecordHeaders();
+        byte[] data = new EventSerializer(avroCodecs).serialize("payments", headers, orderEvent());
+        headers.remove(EventCodecs.SCHEMA_VERSION_HEADER);
+        headers.add(EventCodecs.SCHEMA_VERSION_HEADER, "v1".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(SerializationException.class,
+                () -> new EventDeserializer(avroCodecs).deserialize("payments", headers, data));
+        try (ErrorHandlingDeserializer<EventPayload> deserializer =
+                     new ErrorHandlingDeserializer<>(new EventDeserializer(avroCodecs))) {
+            assertNull(deserializer.deserialize("payments", headers, data));
+        }
+        DeserializationException failure = SerializationUtils.byteArrayToDeserializationException(
+                new LogAccessor(EventCodecsTest.class), headers.lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER));
+        assertArrayEquals(data, failure.getData());
+
+        // The dead letter publishing recoverer sends the bytes it could not read
+        RecordHeaders republished = new RecordHeaders();
+        assertArrayEquals(data, new EventSerializer(jsonCodecs).serialize("payments.DLT", republished, failure.getData()));
+        assertNull(republished.lastHeader(EventCodecs.FORMAT_HEADER));
+    }
+
+    @Test
+    void testRecordsWithoutHeadersAreJson() throws Exception {
+        UserLoginEvent event = new UserLoginEvent("user-1", "user@example.com", "PASSWORD", "curl", "127.0.0.1", true);
+        byte[] legacy = objectMapper.writeValueAsBytes(event);
+
+        EventPayload payload = new EventDeserializer(avroCodecs).deserialize("logins", new RecordHeaders(), legacy);
+        assertNull(payload.getFormat());
+        UserLoginEvent decoded = payload.as(UserLoginEvent.class);
+        assertEquals("user@example.com", decoded.getUserEmail());
+        assertTrue(decoded.isSuccessful());
+    }
+
+    @Test
+    void testClassesWithoutSchemaFallBackToJson() {
+        EncodedEvent encoded = avroCodecs.encode(Map.of("key", "value"));
+        assertEquals(JsonEventCodec.FORMAT, encoded.getFormat());
+        assertNull(encoded.getSchemaVersion());
+    }
+
+    @Test
+    void testUnknownSchemaVersionIsRejected() {
+        EncodedEvent encoded = avroCodecs.encode(orderEvent());
+        assertThrows(SerializationException.class,
+                () -> avroCodecs.decode(encoded.getData(), AvroEventCodec.FORMAT, 99, OrderEvent.class));
+    }
+
+    static OrderEvent orderEvent() {
+        OrderEvent event = new OrderEvent(OrderEvent.ORDER_CREATED, "5f0c2a7e-1b7d-4c1e-9a53-3f1e0f7c9d21",
+                "0b8e8a54-7d0f-4f0e-a0b3-9e4c6f7d1a22");
+        event.setEventId("7c3d9f12-2e4b-4a8c-b1d5-6e7f8a9b0c13");
+        event.setOrderNumber("ORD-20261017-000123");
+        event.setUserEmail("jane.doe@example.com");
+        event.setStatus(OrderEvent.OrderStatus.PENDING);
+        event.setPaymentStatus(OrderEvent.PaymentStatus.PENDING);
+        event.setTotalAmount(new BigDecimal("129.90"));
+        event.setItems(List.of(
+                new OrderEvent.OrderItemEvent("a1f3c5e7-0000-4000-8000-000000000001", "Wireless Mouse", 2,
+                        new BigDecimal("24.95"), new BigDecimal("49.90")),
+                new OrderEvent.OrderItemEvent("a1f3c5e7-0000-4000-8000-000000000002", "Mechanical Keyboard", 1,
+                        new BigDecimal("80.00"), new BigDecimal("80.00"))));
+        event.setMetadata(Map.of("channel", "web", "itemCount", 3));
+        LocalDateTime now = LocalDateTime.of(2026, 10, 17, 12, 30, 15);
+        event.setTimestamp(now);
+        event.setCreatedAt(now);
+        return event;
+    }
+}
@@ -0,0 +1,110 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.dto.ProductSearchCriteria;
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.repository.CategoryRepository;
+import com.backend.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Search hits beyond one IN list are queried in chunks and merged into the same pages a single query gives
+ */
+@SpringBootTest(properties = "catalog.search.max-id-filter=2")
+@ActiveProfiles("test")
+class CatalogSearchChunkingTest {
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPagesMergeEveryChunkInSortOrder() {
+        List<String> expected = expectedIds(BigDecimal.ZERO);
+        assertTrue(expected.size() > 4, "needs hits spanning several chunks");
+
+        ProductSearchCriteria criteria = criteria(null);
+        List<String> paged = new ArrayList<>();
+        for (int page = 0; page * 4 < expected.size(); page++) {
+            Map<String, Object> response = catalogService.getProducts(criteria,
+                    PageRequest.of(page, 4, Sort.by("price")));
+            assertEquals(true, response.get("success"), String.valueOf(response.get("message")));
+            assertEquals((long) expected.size(), response.get("totalElements"));
+            ((List<Product>) response.get("products")).forEach(product -> paged.add(product.getId()));
+        }
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testScrollingMergesEveryChunkInSortOrder() {
+        List<String> expected = expectedIds(BigDecimal.ZERO);
+
+        List<String> scrolled = new ArrayList<>();
+        String cursor = null;
+        do {
+            Map<String, Object> response = catalogService.scrollProducts(criteria(null), "price", Sort.Direction.ASC,
+                    cursor, 4, true);
+            assertEquals(true, response.get("success"), String.valueOf(response.get("message")));
+            assertEquals((long) expected.size(), response.get("totalElements"));
+            ((List<Product>) response.get("products")).forEach(product -> scrolled.add(product.getId()));
+            cursor = (String) response.get("nextCursor");
+        } while (cursor != null);
+        assertEquals(expected, scrolled);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCategoryIdIsResolvedWithoutChangingTheCriteria() {
+        String categoryId = categoryRepository.findByName("Electronics").orElseThrow().getId();
+        ProductSearchCriteria criteria = criteria(categoryId);
+        criteria.setMinPrice(new BigDecimal("500"));
+
+        Map<String, Object> response = catalogService.getProducts(criteria, PageRequest.of(0, 100, Sort.by("price")));
+        assertEquals(expectedIds(new BigDecimal("500")),
+                ((List<Product>) response.get("products")).stream().map(Product::getId).toList());
+        assertEquals(categoryId, criteria.getCategory());
+    }
+
+    private ProductSearchCriteria criteria(String category) {
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setSearch("electronics");
+        criteria.setCategory(category);
+        return criteria;
+    }
+
+    /**
+     * Active electronics matched by the index, in price then ID order
+     */
+    private List<String> expectedIds(BigDecimal minPrice) {
+        Set<String> hits = productSearchIndex.matchingIds("electronics");
+        return productRepository.findAllById(hits).stream()
+                .filter(product -> product.isActive() && "Electronics".equals(product.getCategory()))
+                .filter(product -> product.getPrice().compareTo(minPrice) >= 0)
+                .sorted(Comparator.comparing(Product::getPrice).thenComparing(Product::getId))
+                .map(Product::getId)
+                .toList();
+    }
+}
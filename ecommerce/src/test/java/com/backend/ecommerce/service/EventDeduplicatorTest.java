@@ -0,0 +1,141 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.config.SqlStatementCounter;
+import com.backend.ecommerce.entity.Order;
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.event.PaymentEvent;
+import com.backend.ecommerce.event.serialization.EncodedEvent;
+import com.backend.ecommerce.event.serialization.EventCodecs;
+import com.backend.ecommerce.event.serialization.EventPayload;
+import com.backend.ecommerce.repository.OrderRepository;
+import com.backend.ecommerce.repository.ProcessedEventRepository;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.backend.ecommerce.repository.UserRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Redelivered events are dropped by event ID before they reach a transaction
+ */
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.backend.ecommerce.config.SqlStatementCounter")
+@ActiveProfiles("test")
+class EventDeduplicatorTest {
+
+    @Autowired
+    private EventDeduplicator eventDeduplicator;
+
+    @Autowired
+    private OrderKafkaConsumerService orderKafkaConsumerService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProcessedEventRepository processedEventRepository;
+
+    @Autowired
+    private EventCodecs eventCodecs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testRedeliveredBatchIsDroppedWithoutQueries() {
+        Order order = createOrder();
+        PaymentEvent event = new PaymentEvent("PAYMENT_STATUS_UPDATE", order.getId(), order.getUserId(), order.getTotalAmount());
+        event.setEventId(UUID.randomUUID().toString());
+        event.setStatus(PaymentEvent.PaymentStatus.SUCCESSFUL);
+        List<ConsumerRecord<String, EventPayload>> records = List.of(
+                new ConsumerRecord<>("payment-status-updates-test", 0, 0, order.getId(), payload(event)));
+
+        orderKafkaConsumerService.consumePaymentStatusUpdates(records);
+        assertTrue(processedEventRepository.existsById(event.getEventId()));
+        LocalDateTime updatedAt = orderRepository.findById(order.getId()).orElseThrow().getUpdatedAt();
+
+        SqlStatementCounter.reset();
+        orderKafkaConsumerService.consumePaymentStatusUpdates(records);
+        assertEquals(0, SqlStatementCounter.count("select"));
+        assertEquals(updatedAt, orderRepository.findById(order.getId()).orElseThrow().getUpdatedAt());
+    }
+
+    @Test
+    void testDuplicatesWithinABatchAndFromTheTableAreDropped() {
+        String fresh = UUID.randomUUID().toString();
+        String stored = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO processed_events (event_id, processed_at) VALUES (?, ?)",
+                stored, Timestamp.valueOf(LocalDateTime.now()));
+
+        List<String> kept = eventDeduplicator.filterNew(Arrays.asList(fresh, stored, fresh, null), id -> id);
+        assertEquals(Arrays.asList(fresh, null), kept);
+    }
+
+    @Test
+    void testIdsOfARolledBackTransactionAreNotRemembered() {
+        String id = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(status -> {
+            eventDeduplicator.markProcessed(List.of(id));
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of(id), eventDeduplicator.filterNew(List.of(id), eventId -> eventId));
+
+        transactionTemplate.executeWithoutResult(status -> eventDeduplicator.markProcessed(List.of(id)));
+        assertEquals(List.of(), eventDeduplicator.filterNew(List.of(id), eventId -> eventId));
+    }
+
+    @Test
+    void testCleanupRemovesExpiredIds() {
+        String expired = UUID.randomUUID().toString();
+        String current = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO processed_events (event_id, processed_at) VALUES (?, ?)",
+                expired, Timestamp.valueOf(LocalDateTime.now().minusDays(30)));
+        eventDeduplicator.markProcessed(List.of(current));
+
+        eventDeduplicator.cleanup();
+        assertFalse(processedEventRepository.existsById(expired));
+        assertTrue(processedEventRepository.existsById(current));
+    }
+
+    private Order createOrder() {
+        String userId = userRepository.findAll().stream().map(User::getId).skip(1).findFirst().orElseThrow();
+        Product product = productRepository.findAll().get(3);
+        Map<String, Object> response = orderService.createOrder(userId, Map.of(
+                "items", List.of(Map.of("productId", product.getId(), "quantity", 1)),
+                "deliveryAddress", "1 Test Street",
+                "paymentMethod", "CREDIT_CARD"));
+        assertEquals(true, response.get("success"));
+        return orderRepository.findById(((Order) response.get("order")).getId()).orElseThrow();
+    }
+
+    private EventPayload payload(Object event) {
+        EncodedEvent encoded = eventCodecs.encode(event);
+        return new EventPayload(eventCodecs, encoded.getData(), encoded.getFormat(), encoded.getSchemaVersion());
+    }
+}
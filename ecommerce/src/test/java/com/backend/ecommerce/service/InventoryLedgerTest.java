@@ -0,0 +1,214 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.dto.ProductSearchCriteria;
+import com.backend.ecommerce.entity.InventoryLedgerLease;
+import com.backend.ecommerce.entity.Order;
+import com.backend.ecommerce.entity.OrderItem;
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.repository.InventoryLedgerLeaseRepository;
+import com.backend.ecommerce.repository.OrderRepository;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.backend.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for the in-memory inventory ledger, its batched flush, crash recovery and lease
+ */
+@SpringBootTest(properties = {
+        "inventory.ledger.enabled=true",
+        "inventory.ledger.flush-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class InventoryLedgerTest {
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InventoryLedgerLeaseRepository inventoryLedgerLeaseRepository;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    private Product product;
+    private int initialStock;
+
+    @BeforeEach
+    void setUp() {
+        inventoryLedger.flush();
+        product = productRepository.findAll().get(2);
+        initialStock = inventoryLedger.getAvailable(product.getId()).orElseThrow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        inventoryLedger.flush();
+        int current = inventoryLedger.getAvailable(product.getId()).orElseThrow();
+        inventoryLedger.tryAdjust(product.getId(), initialStock - current);
+        inventoryLedger.flush();
+    }
+
+    @Test
+    void testConcurrentReservationsNeverOversell() throws Exception {
+        List<Future<List<String>>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < initialStock + 20; i++) {
+                futures.add(executor.submit(() -> inventoryLedger.tryReserve(Map.of(product.getId(), 1))));
+            }
+            int reserved = 0;
+            for (Future<List<String>> future : futures) {
+                if (future.get().isEmpty()) {
+                    reserved++;
+                }
+            }
+            assertEquals(initialStock, reserved);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(0, inventoryLedger.getAvailable(product.getId()).orElseThrow());
+        inventoryLedger.restore(Map.of(product.getId(), initialStock));
+    }
+
+    @Test
+    void testCommittedOrderIsFlushedInBatch() {
+        User user = userRepository.findAll().get(0);
+        Map<String, Object> response = orderService.createOrder(user.getId(), Map.of(
+                "items", List.of(Map.of("productId", product.getId(), "quantity", 2)),
+                "deliveryAddress", "1 Test Street",
+                "paymentMethod", "CREDIT_CARD"));
+        assertEquals(true, response.get("success"));
+        String orderId = ((Order) response.get("order")).getId();
+
+        // Reserved in memory only until the next flush
+        assertEquals(initialStock - 2, inventoryLedger.getAvailable(product.getId()).orElseThrow());
+        assertEquals(initialStock, productRepository.findStockQuantityById(product.getId()).orElseThrow());
+        assertFalse(orderRepository.findById(orderId).orElseThrow().getStockCommitted());
+
+        inventoryLedger.flush();
+
+        assertEquals(initialStock - 2, productRepository.findStockQuantityById(product.getId()).orElseThrow());
+        assertTrue(orderRepository.findById(orderId).orElseThrow().getStockCommitted());
+        inventoryLedger.tryAdjust(product.getId(), 2);
+    }
+
+    @Test
+    void testRecoveryAppliesUnflushedOrders() {
+        // Simulate an order committed right before a crash: reserved in the ledger, never flushed
+        Order order = new Order(userRepository.findAll().get(0).getId(), "ORD-RECOVERY-" + UUID.randomUUID());
+        order.setSubtotal(BigDecimal.TEN);
+        order.setTotalAmount(BigDecimal.TEN);
+        order.setStockCommitted(false);
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setProductId(product.getId());
+        item.setProductName(product.getName());
+        item.setQuantity(3);
+        item.setUnitPrice(BigDecimal.ONE);
+        item.setSubtotal(BigDecimal.valueOf(3));
+        item.setCreatedAt(LocalDateTime.now());
+        order.getItems().add(item);
+        Order saved = orderRepository.save(order);
+
+        inventoryLedger.recover();
+
+        assertEquals(initialStock - 3, productRepository.findStockQuantityById(product.getId()).orElseThrow());
+        assertTrue(orderRepository.findById(saved.getId()).orElseThrow().getStockCommitted());
+        productRepository.adjustStockQuantity(product.getId(), 3, LocalDateTime.now());
+        orderRepository.deleteById(saved.getId());
+    }
+
+    @Test
+    void testReleasesAndAdjustmentsAreRecordedBeforeTheyAreAcknowledged() {
+        User user = userRepository.findAll().get(0);
+        Map<String, Object> response = orderService.createOrder(user.getId(), Map.of(
+                "items", List.of(Map.of("productId", product.getId(), "quantity", 2)),
+                "deliveryAddress", "1 Test Street",
+                "paymentMethod", "CREDIT_CARD"));
+        String orderId = ((Order) response.get("order")).getId();
+        inventoryLedger.flush();
+
+        orderService.cancelOrder(orderId, user.getId(), "Changed my mind");
+        assertTrue(inventoryLedger.tryAdjust(product.getId(), -5));
+        assertEquals(2, inventoryLedger.pendingChanges());
+        assertEquals(initialStock - 5, inventoryLedger.getAvailable(product.getId()).orElseThrow());
+
+        // What a restart replays comes from the database alone
+        assertEquals(initialStock - 2, productRepository.findStockQuantityById(product.getId()).orElseThrow());
+        inventoryLedger.recover();
+        assertEquals(0, inventoryLedger.pendingChanges());
+        assertEquals(initialStock - 5, productRepository.findStockQuantityById(product.getId()).orElseThrow());
+    }
+
+    @Test
+    void testLedgerRefusesWorkWhileAnotherInstanceHoldsTheLease() {
+        InventoryLedgerLease lease = inventoryLedgerLeaseRepository.findById("inventory-ledger").orElseThrow();
+        String owner = lease.getOwner();
+        lease.setOwner("other-instance");
+        lease.setExpiresAt(LocalDateTime.now().plusMinutes(5));
+        inventoryLedgerLeaseRepository.save(lease);
+        try {
+            inventoryLedger.flush();
+            assertFalse(inventoryLedger.holdsLease());
+            assertEquals(List.of(product.getId()), inventoryLedger.tryReserve(Map.of(product.getId(), 1)));
+            assertFalse(inventoryLedger.tryAdjust(product.getId(), 1));
+        } finally {
+            lease.setOwner(owner);
+            inventoryLedgerLeaseRepository.save(lease);
+        }
+        inventoryLedger.flush();
+        assertTrue(inventoryLedger.holdsLease());
+    }
+
+    @Test
+    void testInStockFilterUsesLedgerStock() {
+        assertTrue(inventoryLedger.tryAdjust(product.getId(), -initialStock));
+
+        // The stock column still shows the old stock until the next flush
+        assertEquals(initialStock, productRepository.findStockQuantityById(product.getId()).orElseThrow());
+        assertFalse(catalogProductIds(true).contains(product.getId()));
+        assertTrue(catalogProductIds(false).contains(product.getId()));
+        // The filter flushed the adjustment instead of listing ledger-tracked products in the query
+        assertEquals(0, productRepository.findStockQuantityById(product.getId()).orElseThrow());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> catalogProductIds(boolean inStock) {
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setInStock(inStock);
+        Map<String, Object> response = catalogService.getProducts(criteria, PageRequest.of(0, 100));
+        return ((List<Product>) response.get("products")).stream().map(Product::getId).toList();
+    }
+}
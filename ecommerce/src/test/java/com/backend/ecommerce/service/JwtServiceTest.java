@@ -0,0 +1,72 @@
+package com.backend.ecommerce.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verified claims are served from the cache and bad or expired tokens are still rejected
+ */
+class JwtServiceTest {
+
+    private static final String SECRET = "test-secret-key-that-is-long-enough-for-hs256-signing";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final JwtService jwtService = new JwtService(SECRET, 3_600_000L, 100, meterRegistry);
+
+    private final UserDetails user = User.withUsername("jane@example.com").password("unused").roles("CUSTOMER").build();
+
+    @Test
+    void testRepeatedTokenIsServedFromTheCache() {
+        String token = jwtService.generateToken(Map.of("userId", "user-1", "role", "CUSTOMER"), user);
+
+        assertEquals("user-1", jwtService.extractUserId(token));
+        assertEquals("CUSTOMER", jwtService.extractUserRole(token));
+        assertTrue(jwtService.validateToken(token, user));
+
+        assertEquals(1.0, cacheGets("miss"));
+        assertEquals(3.0, cacheGets("hit"));
+    }
+
+    @Test
+    void testTamperedTokenIsRejected() {
+        String token = jwtService.generateToken(Map.of("userId", "user-1", "role", "CUSTOMER"), user);
+        String[] parts = token.split("\\.");
+        String forged = jwtService.generateToken(Map.of("userId", "user-2", "role", "ADMIN"), user).split("\\.")[1];
+        String tampered = parts[0] + "." + forged + "." + parts[2];
+
+        assertNull(jwtService.extractUserId(tampered));
+        assertFalse(jwtService.validateToken(tampered, user));
+        JwtService otherKey = new JwtService(SECRET + "-rotated", 3_600_000L, 100, new SimpleMeterRegistry());
+        assertFalse(otherKey.validateToken(token, user));
+    }
+
+    @Test
+    void testExpiredTokenIsRejected() {
+        String token = jwtService.generateToken(user, -1000L);
+
+        assertTrue(jwtService.isTokenExpired(token));
+        assertFalse(jwtService.validateToken(token, user));
+        assertEquals(0L, meterRegistry.get("cache.size").tag("cache", "jwt-claims").gauge().value());
+    }
+
+    @Test
+    void testCacheCanBeDisabled() {
+        JwtService uncached = new JwtService(SECRET, 3_600_000L, 0, new SimpleMeterRegistry());
+        String token = uncached.generateToken(Map.of("userId", "user-1", "role", "CUSTOMER"), user);
+
+        assertEquals("user-1", uncached.extractUserId(token));
+        assertTrue(uncached.validateToken(token, user));
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "jwt-claims").tag("result", result)
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,70 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.config.SqlStatementCounter;
+import com.backend.ecommerce.dto.UserLoginDto;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Logins buffer their time and a flush writes the latest time per user in one batch
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.backend.ecommerce.config.SqlStatementCounter",
+        "users.last-login.flush-interval-ms=3600000"})
+@ActiveProfiles("test")
+class LastLoginRecorderTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LastLoginRecorder lastLoginRecorder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private KafkaProducerService kafkaProducerService;
+
+    @Test
+    void testLoginsWriteNothingUntilTheFlush() {
+        User john = userRepository.findByEmail("john.doe@example.com").orElseThrow();
+        User mike = userRepository.findByEmail("mike.johnson@example.com").orElseThrow();
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+
+        SqlStatementCounter.reset();
+        for (User user : new User[]{john, john, mike}) {
+            Map<String, Object> response = userService.loginUser(new UserLoginDto(user.getEmail(), "password123"), "10.2.0.1");
+            assertEquals(true, response.get("success"));
+        }
+        assertEquals(0, SqlStatementCounter.count("update"));
+        assertEquals(2, lastLoginRecorder.pendingLogins());
+
+        lastLoginRecorder.flush();
+        assertEquals(0, lastLoginRecorder.pendingLogins());
+        assertTrue(userRepository.findById(john.getId()).orElseThrow().getLastLogin().isAfter(before));
+        assertTrue(userRepository.findById(mike.getId()).orElseThrow().getLastLogin().isAfter(before));
+    }
+
+    @Test
+    void testLatestLoginWinsWithinAWindow() {
+        User user = userRepository.findByEmail("sarah.wilson@example.com").orElseThrow();
+        LocalDateTime later = LocalDateTime.of(2030, 1, 1, 12, 0, 5);
+
+        lastLoginRecorder.record(user.getId(), later);
+        lastLoginRecorder.record(user.getId(), later.minusSeconds(5));
+        lastLoginRecorder.flush();
+
+        assertEquals(later, userRepository.findById(user.getId()).orElseThrow().getLastLogin());
+    }
+}
@@ -0,0 +1,156 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.config.SqlStatementCounter;
+import com.backend.ecommerce.dto.UserLoginDto;
+import com.backend.ecommerce.event.UserLoginEvent;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Logins load the user once, hash on the bounded pool and are refused before any work when throttled
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.backend.ecommerce.config.SqlStatementCounter",
+        "security.password.hashing.pool-size=1",
+        "security.password.hashing.queue-capacity=1"})
+@ActiveProfiles("test")
+class LoginThrottleTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    @Qualifier("passwordHashingExecutor")
+    private ThreadPoolTaskExecutor passwordHashingExecutor;
+
+    @MockitoSpyBean
+    private PasswordHashingService passwordHashingService;
+
+    @MockitoBean
+    private KafkaProducerService kafkaProducerService;
+
+    @Test
+    void testLoginLoadsTheUserOnce() {
+        SqlStatementCounter.reset();
+        Map<String, Object> response = userService.loginUser(new UserLoginDto("john.doe@example.com", PASSWORD), "10.0.0.1");
+
+        assertEquals(true, response.get("success"), String.valueOf(response.get("error")));
+        assertEquals(1, SqlStatementCounter.countContaining("u1_0.email=?"));
+        verify(passwordHashingService, times(1)).matches(any(), any());
+    }
+
+    @Test
+    void testUnknownEmailIsCheckedAgainstADummyHash() {
+        Map<String, Object> response = userService.loginUser(new UserLoginDto("nobody@example.com", PASSWORD), "10.0.0.5");
+
+        assertEquals("Invalid credentials", response.get("error"));
+        verify(passwordHashingService, times(1)).matchesNoAccount(any());
+    }
+
+    @Test
+    void testClientSuppliedForwardedAddressIsIgnored() throws Exception {
+        // Forwarded headers are only applied by Tomcat for trusted proxies, never by an application filter
+        assertFalse(webApplicationContext.containsBean("forwardedHeaderFilter"));
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        mockMvc.perform(post("/api/users/login")
+                        .with(request -> {
+                            request.setRemoteAddr("10.0.0.100");
+                            return request;
+                        })
+                        .header("X-Forwarded-For", "203.0.113.7")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"sarah.wilson@example.com\", \"password\": \"" + PASSWORD + "\"}"))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<UserLoginEvent> event = ArgumentCaptor.forClass(UserLoginEvent.class);
+        verify(kafkaProducerService).sendUserLoginEvent(event.capture());
+        assertEquals("10.0.0.100", event.getValue().getIpAddress());
+    }
+
+    @Test
+    void testFailedAttemptsThrottleTheAccountBeforeAnyWork() throws Exception {
+        String email = "jane.smith@example.com";
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> response = userService.loginUser(new UserLoginDto(email, "wrong-password"), "10.0.0.2");
+            assertEquals("Invalid credentials", response.get("error"));
+        }
+        clearInvocations(passwordHashingService);
+
+        SqlStatementCounter.reset();
+        Map<String, Object> response = userService.loginUser(new UserLoginDto(email, PASSWORD), "10.0.0.3");
+        assertEquals(false, response.get("success"));
+        assertTrue((Long) response.get("retryAfterSeconds") > 0);
+        assertEquals(0, SqlStatementCounter.count());
+        verify(passwordHashingService, never()).matches(any(), any());
+
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        mockMvc.perform(post("/api/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"" + email + "\", \"password\": \"" + PASSWORD + "\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+
+        // Other accounts are unaffected
+        assertEquals(true, userService.loginUser(new UserLoginDto("mike.johnson@example.com", PASSWORD), "10.0.0.2")
+                .get("success"));
+    }
+
+    @Test
+    void testSaturatedHashingPoolRefusesLogins() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocker = () -> {
+            running.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        try {
+            // One blocker occupies the only thread, the other the only queue slot
+            passwordHashingExecutor.execute(blocker);
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            passwordHashingExecutor.execute(blocker);
+
+            Map<String, Object> response = userService.loginUser(
+                    new UserLoginDto("admin@ecommerce.com", PASSWORD), "10.0.0.4");
+            assertEquals(false, response.get("success"));
+            assertEquals(true, response.get("overloaded"));
+        } finally {
+            release.countDown();
+        }
+
+        assertEquals(true, userService.loginUser(new UserLoginDto("admin@ecommerce.com", PASSWORD), "10.0.0.4")
+                .get("success"));
+    }
+}
@@ -0,0 +1,103 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.config.SqlStatementCounter;
+import com.backend.ecommerce.entity.Cart;
+import com.backend.ecommerce.entity.Order;
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.repository.OrderRepository;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.backend.ecommerce.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Order and cart items are lazy: list endpoints must not load them, detail endpoints fetch them in the same query
+ */
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.backend.ecommerce.config.SqlStatementCounter")
+@ActiveProfiles("test")
+class OrderFetchGraphTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String userId;
+    private String orderId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.findAll().stream().map(User::getId).skip(1).findFirst().orElseThrow();
+        List<Product> products = productRepository.findAll();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> response = orderService.createOrder(userId, Map.of(
+                    "items", List.of(
+                            Map.of("productId", products.get(3).getId(), "quantity", 1),
+                            Map.of("productId", products.get(4).getId(), "quantity", 1)),
+                    "deliveryAddress", "1 Test Street",
+                    "paymentMethod", "CREDIT_CARD"));
+            assertEquals(true, response.get("success"));
+            orderId = ((Order) response.get("order")).getId();
+        }
+    }
+
+    @Test
+    void testOrderListsDoNotLoadItems() {
+        SqlStatementCounter.reset();
+        Map<String, Object> page = orderService.getUserOrders(userId, 0, 20);
+        assertEquals(0, SqlStatementCounter.countContaining("order_items"));
+        assertTrue(((List<?>) page.get("orders")).size() >= 3);
+        assertInstanceOf(OrderRepository.OrderSummary.class, ((List<?>) page.get("orders")).get(0));
+
+        SqlStatementCounter.reset();
+        Map<String, Object> window = orderService.scrollUserOrders(userId, null, 20, false);
+        assertEquals(1, SqlStatementCounter.count());
+        assertEquals(0, SqlStatementCounter.countContaining("order_items"));
+        assertTrue(((List<?>) window.get("orders")).size() >= 3);
+    }
+
+    @Test
+    void testOrderDetailFetchesItemsInOneQuery() throws Exception {
+        SqlStatementCounter.reset();
+        Order order = (Order) orderService.getOrderById(orderId, userId).get("order");
+        assertEquals(1, SqlStatementCounter.count());
+        assertTrue(Hibernate.isInitialized(order.getItems()));
+        assertEquals(2, order.getItems().size());
+
+        String json = objectMapper.writeValueAsString(order);
+        assertTrue(json.contains("\"items\":[{"));
+    }
+
+    @Test
+    void testCartViewFetchesItemsInOneQuery() {
+        cartService.addToCart(userId, productRepository.findAll().get(3).getId(), 1);
+
+        SqlStatementCounter.reset();
+        Cart cart = (Cart) cartService.getUserCart(userId).get("cart");
+        assertEquals(1, SqlStatementCounter.count());
+        assertTrue(Hibernate.isInitialized(cart.getItems()));
+        assertFalse(cart.getItems().isEmpty());
+    }
+}
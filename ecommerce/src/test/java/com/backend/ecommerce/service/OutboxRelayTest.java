@@ -0,0 +1,166 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.OutboxEvent;
+import com.backend.ecommerce.event.OrderEvent;
+import com.backend.ecommerce.event.serialization.EncodedEvent;
+import com.backend.ecommerce.event.serialization.EventCodecs;
+import com.backend.ecommerce.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Order events are written to the outbox with their transaction and published by the relay
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OutboxRelayTest {
+
+    @MockitoBean
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @MockitoBean(name = "criticalKafkaTemplate")
+    private KafkaTemplate<String, Object> criticalKafkaTemplate;
+
+    @Autowired
+    private OrderKafkaProducerService orderKafkaProducerService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EventCodecs eventCodecs;
+
+    private final SendResult<String, Object> sendResult = mock();
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAllInBatch();
+        when(kafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(sendResult));
+        when(criticalKafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(sendResult));
+    }
+
+    @Test
+    void testEventsAreOnlyQueuedWhenTheTransactionCommits() {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderKafkaProducerService.sendOrderCreatedEvent("order-1", "user-1", "ORD-1", BigDecimal.TEN);
+            status.setRollbackOnly();
+        });
+        assertEquals(0, outboxEventRepository.count());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderKafkaProducerService.sendOrderCreatedEvent("order-1", "user-1", "ORD-1", BigDecimal.TEN);
+            orderKafkaProducerService.sendPaymentVerificationRequest("order-1", "user-1", BigDecimal.TEN, "CREDIT_CARD");
+        });
+        assertEquals(2, outboxEventRepository.count());
+        verifyNoInteractions(kafkaTemplate, criticalKafkaTemplate);
+
+        assertEquals(2, outboxRelay.publishPending());
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate).send(eq("order-events-test"), eq("order-1"), sent.capture());
+        EncodedEvent encoded = (EncodedEvent) sent.getValue();
+        OrderEvent event = eventCodecs.decode(encoded.getData(), encoded.getFormat(), encoded.getSchemaVersion(), OrderEvent.class);
+        assertEquals(OrderEvent.ORDER_CREATED, event.getEventType());
+        verify(criticalKafkaTemplate).send(eq("payment-verification-test"), eq("order-1"), any());
+        verify(kafkaTemplate, never()).send(eq("payment-verification-test"), anyString(), any());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void testSendingOutsideATransactionIsRejected() {
+        assertThrows(IllegalTransactionStateException.class,
+                () -> orderKafkaProducerService.sendOrderConfirmedEvent("order-1", "user-1"));
+    }
+
+    @Test
+    void testFailedSendOnlyHoldsBackItsKey() {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderKafkaProducerService.sendOrderConfirmedEvent("order-1", "user-1");
+            orderKafkaProducerService.sendOrderShippedEvent("order-2", "user-1", "TRK-1");
+            orderKafkaProducerService.sendOrderDeliveredEvent("order-2", "user-1");
+            orderKafkaProducerService.sendOrderDeliveredEvent("order-3", "user-1");
+        });
+        when(kafkaTemplate.send(anyString(), eq("order-2"), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+
+        // The delivery of order-2 is not sent ahead of its failed shipment
+        assertEquals(2, outboxRelay.publishPending());
+        verify(kafkaTemplate, times(1)).send(anyString(), eq("order-2"), any());
+        List<OutboxEvent> remaining = outboxEventRepository.findAll();
+        assertEquals(List.of("order-2", "order-2"), remaining.stream().map(OutboxEvent::getMessageKey).toList());
+        assertTrue(remaining.stream().allMatch(event -> event.getClaimedUntil() == null));
+
+        when(kafkaTemplate.send(anyString(), eq("order-2"), any()))
+                .thenReturn(CompletableFuture.completedFuture(sendResult));
+        assertEquals(2, outboxRelay.publishPending());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void testSendsRunWithoutATransaction() {
+        transactionTemplate.executeWithoutResult(status ->
+                orderKafkaProducerService.sendOrderConfirmedEvent("order-1", "user-1"));
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            // The row is claimed while it is being sent
+            assertNotNull(outboxEventRepository.findAll().get(0).getClaimedUntil());
+            return CompletableFuture.completedFuture(sendResult);
+        });
+
+        assertEquals(1, outboxRelay.publishPending());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void testKeysClaimedByAnotherRelayAreSkipped() {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderKafkaProducerService.sendOrderConfirmedEvent("order-1", "user-1");
+            orderKafkaProducerService.sendOrderShippedEvent("order-1", "user-1", "TRK-1");
+            orderKafkaProducerService.sendOrderConfirmedEvent("order-2", "user-1");
+        });
+        // Another relay holds the oldest event of order-1
+        OutboxEvent held = outboxEventRepository.findAll().get(0);
+        held.setClaimedBy("other-relay");
+        held.setClaimedUntil(LocalDateTime.now().plusMinutes(1));
+        outboxEventRepository.save(held);
+
+        assertEquals(1, outboxRelay.publishPending());
+        verify(kafkaTemplate, never()).send(anyString(), eq("order-1"), any());
+        assertEquals(2, outboxEventRepository.count());
+
+        // Once the other claim expires, order-1 is sent in order
+        held = outboxEventRepository.findById(held.getId()).orElseThrow();
+        held.setClaimedUntil(LocalDateTime.now().minusSeconds(1));
+        outboxEventRepository.save(held);
+        assertEquals(2, outboxRelay.publishPending());
+        assertEquals(0, outboxEventRepository.count());
+    }
+}
@@ -0,0 +1,116 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.config.BCryptCostCalibrator;
+import com.backend.ecommerce.dto.UserLoginDto;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Outdated password hashes are replaced with the current algorithm and cost on a successful login
+ */
+@SpringBootTest(properties = "security.password.bcrypt.cost=5")
+@ActiveProfiles("test")
+class PasswordRehashTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LastLoginRecorder lastLoginRecorder;
+
+    @MockitoSpyBean
+    private PasswordHashingService passwordHashingService;
+
+    @MockitoBean
+    private KafkaProducerService kafkaProducerService;
+
+    @Test
+    void testLegacyAndLowCostHashesAreUpgradedOnLogin() {
+        String legacy = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        User user = storePassword("sarah.wilson@example.com", legacy);
+
+        assertEquals(true, login(user));
+        String upgraded = userRepository.findById(user.getId()).orElseThrow().getPassword();
+        assertTrue(upgraded.startsWith("{bcrypt}$2a$05$"), upgraded);
+
+        // A current hash is left alone
+        assertEquals(true, login(user));
+        assertEquals(upgraded, userRepository.findById(user.getId()).orElseThrow().getPassword());
+    }
+
+    @Test
+    void testOtherAlgorithmsStillVerifyAndAreUpgraded() {
+        String pbkdf2 = "{pbkdf2}" + Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8().encode(PASSWORD);
+        User user = storePassword("moderator@ecommerce.com", pbkdf2);
+
+        assertEquals(true, login(user));
+        assertTrue(userRepository.findById(user.getId()).orElseThrow().getPassword().startsWith("{bcrypt}$2a$05$"));
+    }
+
+    @Test
+    void testUpgradeKeepsLastLoginFlushedDuringTheLogin() {
+        User user = storePassword("mike.johnson@example.com", new BCryptPasswordEncoder(4).encode(PASSWORD));
+        LocalDateTime loaded = user.getLastLogin();
+        LocalDateTime flushed = LocalDateTime.now().plusDays(1).withNano(0);
+        doAnswer(invocation -> {
+            // A flush of an earlier login lands after the user was loaded for this one
+            lastLoginRecorder.record(user.getId(), flushed);
+            lastLoginRecorder.flush();
+            return invocation.callRealMethod();
+        }).when(passwordHashingService).encode(anyString());
+
+        assertEquals(true, login(user));
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+        assertTrue(stored.getPassword().startsWith("{bcrypt}$2a$05$"), stored.getPassword());
+        // The flushed time, or this login's if the scheduled flush ran since; never the time the login loaded
+        assertNotNull(stored.getLastLogin());
+        assertNotEquals(loaded, stored.getLastLogin());
+    }
+
+    @Test
+    void testFailedLoginKeepsTheOldHash() {
+        String legacy = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        User user = storePassword("jane.smith@example.com", legacy);
+
+        assertEquals(false, userService.loginUser(new UserLoginDto(user.getEmail(), "wrong-password"), "10.1.0.1")
+                .get("success"));
+        assertEquals(legacy, userRepository.findById(user.getId()).orElseThrow().getPassword());
+    }
+
+    @Test
+    void testCalibrationStaysWithinTheCostBounds() {
+        BCryptCostCalibrator calibrator = new BCryptCostCalibrator(1);
+        assertEquals(4, calibrator.calibrate(Duration.ZERO, 4, 6));
+        assertEquals(6, calibrator.calibrate(Duration.ofMinutes(1), 4, 6));
+    }
+
+    private User storePassword(String email, String hash) {
+        User user = userRepository.findByEmail(email).orElseThrow();
+        user.setPassword(hash);
+        return userRepository.save(user);
+    }
+
+    private Object login(User user) {
+        return userService.loginUser(new UserLoginDto(user.getEmail(), PASSWORD), "10.1.0.1").get("success");
+    }
+}
@@ -0,0 +1,284 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Payment;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.event.PaymentEvent;
+import com.backend.ecommerce.event.serialization.EncodedEvent;
+import com.backend.ecommerce.event.serialization.EventCodecs;
+import com.backend.ecommerce.event.serialization.EventPayload;
+import com.backend.ecommerce.repository.PaymentRepository;
+import com.backend.ecommerce.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Payment processing must not hold a database connection while waiting on the gateway,
+ * and payments whose gateway call timed out are settled by reconciliation
+ */
+@SpringBootTest(properties = {"payment.reconciliation.min-age=0s", "kafka.consumer.retry.interval-ms=10"})
+@ActiveProfiles("test")
+class PaymentServiceTest {
+
+    @MockitoBean(name = "asyncStripePaymentGateway")
+    private AsyncPaymentGatewayService asyncPaymentGateway;
+
+    @MockitoBean
+    private PaymentKafkaProducerService paymentKafkaProducerService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Autowired
+    private PaymentKafkaConsumerService paymentKafkaConsumerService;
+
+    @Autowired
+    private EventCodecs eventCodecs;
+
+    @MockitoBean
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    @Test
+    void testGatewayCallRunsWithoutOpenTransaction() throws Exception {
+        String userId = userRepository.findAll().stream().map(User::getId).findFirst().orElseThrow();
+        String orderId = "order-" + System.nanoTime();
+        CompletableFuture<Map<String, Object>> gatewayCall = new CompletableFuture<>();
+        when(asyncPaymentGateway.processPayment(any(), anyString(), any())).thenReturn(gatewayCall);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Map<String, Object>> result = executor.submit(() -> paymentService.processPayment(
+                    orderId, userId, BigDecimal.TEN, "CREDIT_CARD", Map.of()));
+
+            // While the gateway is pending, the PROCESSING record is committed and no connection is in use
+            List<Payment> pending = awaitPayments(orderId);
+            assertEquals(Payment.PaymentStatus.PROCESSING, pending.get(0).getStatus());
+            assertTrue(awaitNoActiveConnections());
+
+            Map<String, Object> gatewayResponse = new HashMap<>();
+            gatewayResponse.put("success", true);
+            gatewayResponse.put("transactionId", "txn-1");
+            gatewayResponse.put("gatewayResponse", "Payment processed successfully");
+            gatewayCall.complete(gatewayResponse);
+
+            assertEquals(true, result.get(10, TimeUnit.SECONDS).get("success"));
+            assertEquals(Payment.PaymentStatus.SUCCESSFUL, paymentRepository.findByOrderId(orderId).get(0).getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSaturatedGatewayIsRetryableAndPublishesNothing() {
+        String userId = userRepository.findAll().stream().map(User::getId).findFirst().orElseThrow();
+        String orderId = "order-" + System.nanoTime();
+        when(asyncPaymentGateway.processPayment(any(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("queue full")));
+
+        assertThrows(RuntimeException.class,
+                () -> paymentService.processPayment(orderId, userId, BigDecimal.TEN, "CREDIT_CARD", Map.of()));
+
+        // No charge was attempted, so nothing is published and the payment is not left for reconciliation
+        Payment payment = paymentRepository.findByOrderId(orderId).get(0);
+        assertEquals(Payment.PaymentStatus.FAILED, payment.getStatus());
+        assertEquals("BUSY", payment.getGatewayErrorCode());
+        verifyNoInteractions(paymentKafkaProducerService);
+    }
+
+    @Test
+    void testTimedOutPaymentIsMarkedUnknownAndReconciled() {
+        String userId = userRepository.findAll().stream().map(User::getId).findFirst().orElseThrow();
+        String orderId = "order-" + System.nanoTime();
+        when(asyncPaymentGateway.processPayment(any(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+
+        Map<String, Object> result = paymentService.processPayment(orderId, userId, BigDecimal.TEN, "CREDIT_CARD", Map.of());
+
+        String paymentId = (String) result.get("paymentId");
+        assertEquals("UNKNOWN", result.get("status"));
+        assertEquals("/api/payments/" + paymentId + "?userId=" + userId, result.get("statusUrl"));
+        assertEquals(Payment.PaymentStatus.UNKNOWN, paymentRepository.findById(paymentId).orElseThrow().getStatus());
+        verify(asyncPaymentGateway).processPayment(any(), eq("CREDIT_CARD"),
+                argThat(data -> paymentId.equals(data.get("reference"))));
+
+        // The gateway did take the charge
+        Map<String, Object> charge = new HashMap<>();
+        charge.put("success", true);
+        charge.put("status", "SUCCESSFUL");
+        charge.put("transactionId", "txn-" + paymentId);
+        charge.put("gatewayResponse", "Payment processed successfully");
+        when(asyncPaymentGateway.lookupPayment(paymentId)).thenReturn(CompletableFuture.completedFuture(charge));
+
+        paymentService.reconcileUnknownPayments();
+
+        Payment reconciled = paymentRepository.findById(paymentId).orElseThrow();
+        assertEquals(Payment.PaymentStatus.SUCCESSFUL, reconciled.getStatus());
+        assertEquals("txn-" + paymentId, reconciled.getTransactionId());
+        verify(paymentKafkaProducerService).sendPaymentSuccessfulEvent(orderId, userId, BigDecimal.TEN.setScale(2),
+                "CREDIT_CARD", "txn-" + paymentId);
+    }
+
+    @Test
+    void testUnknownPaymentTheGatewayNeverReceivedFails() {
+        String userId = userRepository.findAll().stream().map(User::getId).findFirst().orElseThrow();
+        String orderId = "order-" + System.nanoTime();
+        when(asyncPaymentGateway.processPayment(any(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+        String paymentId = (String) paymentService.processPayment(orderId, userId, BigDecimal.TEN, "CREDIT_CARD", Map.of())
+                .get("paymentId");
+
+        // Still unreachable: the payment stays UNKNOWN for the next round
+        when(asyncPaymentGateway.lookupPayment(paymentId))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+        paymentService.reconcileUnknownPayments();
+        assertEquals(Payment.PaymentStatus.UNKNOWN, paymentRepository.findById(paymentId).orElseThrow().getStatus());
+
+        Map<String, Object> notFound = new HashMap<>();
+        notFound.put("success", false);
+        notFound.put("status", "NOT_FOUND");
+        notFound.put("gatewayResponse", "No payment with this reference");
+        notFound.put("failureReason", "Payment never reached the gateway");
+        when(asyncPaymentGateway.lookupPayment(paymentId)).thenReturn(CompletableFuture.completedFuture(notFound));
+        paymentService.reconcileUnknownPayments();
+
+        assertEquals(Payment.PaymentStatus.FAILED, paymentRepository.findById(paymentId).orElseThrow().getStatus());
+        verify(paymentKafkaProducerService).sendPaymentVerificationResponse(orderId, userId, BigDecimal.TEN.setScale(2),
+                null, false);
+    }
+
+    @Test
+    void testRetriedRequestDoesNotChargeAgainWhenRecordingTheChargeFailed() {
+        String userId = userRepository.findAll().stream().map(User::getId).findFirst().orElseThrow();
+        String orderId = "order-" + System.nanoTime();
+        // The charge goes through, but its response does not fit the payment row, so recording it fails
+        Map<String, Object> charge = new HashMap<>();
+        charge.put("success", true);
+        charge.put("transactionId", "txn-" + orderId);
+        charge.put("gatewayResponse", "x".repeat(300));
+        when(asyncPaymentGateway.processPayment(any(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(charge));
+
+        PaymentEvent request = new PaymentEvent("PAYMENT_VERIFICATION_REQUEST", orderId, userId, BigDecimal.TEN);
+        request.setEventId(UUID.randomUUID().toString());
+        request.setPaymentMethod("CREDIT_CARD");
+        EncodedEvent encoded = eventCodecs.encode(request);
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        paymentKafkaConsumerService.consumePaymentVerificationRequest(new ConsumerRecord<>("payment-verification-test", 0, 0,
+                orderId, new EventPayload(eventCodecs, encoded.getData(), encoded.getFormat(), encoded.getSchemaVersion())),
+                acknowledgment);
+
+        // The retry finds the unresolved payment and leaves it to reconciliation
+        verify(acknowledgment, timeout(5000)).acknowledge();
+        verify(asyncPaymentGateway, times(1)).processPayment(any(), anyString(), any());
+        verifyNoInteractions(deadLetterPublishingRecoverer);
+        List<Payment> payments = paymentRepository.findByOrderId(orderId);
+        assertEquals(1, payments.size());
+        assertEquals(Payment.PaymentStatus.PROCESSING, payments.get(0).getStatus());
+    }
+
+    @Test
+    void testStaleProcessingPaymentIsReconciled() {
+        String userId = userRepository.findAll().stream().map(User::getId).findFirst().orElseThrow();
+        String orderId = "order-" + System.nanoTime();
+        // The charge goes through, but recording it fails and leaves the payment PROCESSING
+        Map<String, Object> charge = new HashMap<>();
+        charge.put("success", true);
+        charge.put("transactionId", "txn-" + orderId);
+        charge.put("gatewayResponse", "x".repeat(300));
+        when(asyncPaymentGateway.processPayment(any(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(charge));
+        assertThrows(RuntimeException.class,
+                () -> paymentService.processPayment(orderId, userId, BigDecimal.TEN, "CREDIT_CARD", Map.of()));
+        String paymentId = paymentRepository.findByOrderId(orderId).get(0).getId();
+
+        Map<String, Object> found = new HashMap<>();
+        found.put("success", true);
+        found.put("status", "SUCCESSFUL");
+        found.put("transactionId", "txn-" + orderId);
+        found.put("gatewayResponse", "Payment processed successfully");
+        when(asyncPaymentGateway.lookupPayment(paymentId)).thenReturn(CompletableFuture.completedFuture(found));
+        paymentService.reconcileUnknownPayments();
+
+        assertEquals(Payment.PaymentStatus.SUCCESSFUL, paymentRepository.findById(paymentId).orElseThrow().getStatus());
+        verify(paymentKafkaProducerService).sendPaymentSuccessfulEvent(orderId, userId, BigDecimal.TEN.setScale(2),
+                "CREDIT_CARD", "txn-" + orderId);
+    }
+
+    @Test
+    void testPaymentIsClaimedForReconciliationOnce() {
+        String userId = userRepository.findAll().stream().map(User::getId).findFirst().orElseThrow();
+        when(asyncPaymentGateway.processPayment(any(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+        String paymentId = (String) paymentService.processPayment("order-" + System.nanoTime(), userId, BigDecimal.TEN,
+                "CREDIT_CARD", Map.of()).get("paymentId");
+        Payment payment = paymentRepository.findById(paymentId).orElseThrow();
+
+        // Two instances read the same payment; only the first claim applies
+        assertEquals(1, paymentRepository.claimForReconciliation(paymentId, payment.getStatus(), payment.getUpdatedAt(),
+                LocalDateTime.now()));
+        assertEquals(0, paymentRepository.claimForReconciliation(paymentId, payment.getStatus(), payment.getUpdatedAt(),
+                LocalDateTime.now()));
+    }
+
+    private boolean awaitNoActiveConnections() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (dataSource.getHikariPoolMXBean().getActiveConnections() == 0) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private List<Payment> awaitPayments(String orderId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            List<Payment> payments = paymentRepository.findByOrderId(orderId);
+            if (!payments.isEmpty()) {
+                return payments;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Payment record was not committed");
+    }
+}
@@ -0,0 +1,160 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.config.SqlStatementCounter;
+import com.backend.ecommerce.entity.Order;
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.entity.UserOrderStats;
+import com.backend.ecommerce.event.PaymentEvent;
+import com.backend.ecommerce.repository.OrderRepository;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.backend.ecommerce.repository.UserRepository;
+import com.backend.ecommerce.event.serialization.EncodedEvent;
+import com.backend.ecommerce.event.serialization.EventCodecs;
+import com.backend.ecommerce.event.serialization.EventPayload;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for batched consumption of payment status updates
+ */
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.backend.ecommerce.config.SqlStatementCounter")
+@ActiveProfiles("test")
+class PaymentStatusBatchServiceTest {
+
+    @Autowired
+    private OrderKafkaConsumerService orderKafkaConsumerService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserOrderStatsService userOrderStatsService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EventCodecs eventCodecs;
+
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.findAll().stream().map(User::getId).skip(1).findFirst().orElseThrow();
+        userOrderStatsService.rebuild();
+    }
+
+    @Test
+    void testLastStatusPerOrderIsAppliedInOneBatch() {
+        Order paid = createOrder();
+        Order refunded = createOrder();
+        long ordersBefore = userOrderStatsService.getStats(userId).orElseThrow().getOrderCount();
+
+        List<ConsumerRecord<String, EventPayload>> records = new ArrayList<>();
+        records.add(record(0, paid, PaymentEvent.PaymentStatus.FAILED));
+        records.add(record(1, refunded, PaymentEvent.PaymentStatus.SUCCESSFUL));
+        records.add(record(2, paid, PaymentEvent.PaymentStatus.SUCCESSFUL));
+        records.add(new ConsumerRecord<>("payment-status-updates-test", 0, 3, paid.getId(),
+                new EventPayload(eventCodecs, "not json".getBytes(StandardCharsets.UTF_8), null, null)));
+        records.add(record(4, refunded, PaymentEvent.PaymentStatus.REFUNDED));
+
+        SqlStatementCounter.reset();
+        orderKafkaConsumerService.consumePaymentStatusUpdates(records);
+
+        // Order headers are read with one query whatever the number of events; the writes bypass Hibernate
+        assertEquals(1, SqlStatementCounter.count("select"));
+
+        Order paidAfter = orderRepository.findById(paid.getId()).orElseThrow();
+        assertEquals(Order.PaymentStatus.PAID, paidAfter.getPaymentStatus());
+        assertEquals(Order.OrderStatus.CONFIRMED, paidAfter.getStatus());
+
+        Order refundedAfter = orderRepository.findById(refunded.getId()).orElseThrow();
+        assertEquals(Order.PaymentStatus.REFUNDED, refundedAfter.getPaymentStatus());
+        assertEquals(Order.OrderStatus.REFUNDED, refundedAfter.getStatus());
+
+        UserOrderStats stats = userOrderStatsService.getStats(userId).orElseThrow();
+        assertEquals(ordersBefore - 1, stats.getOrderCount());
+    }
+
+    @Test
+    void testUndeserializableRecordFailsTheBatchAfterTheRecordsBeforeIt() {
+        Order paid = createOrder();
+        Order later = createOrder();
+
+        ConsumerRecord<String, EventPayload> unreadable = new ConsumerRecord<>("payment-status-updates-test", 0, 1,
+                later.getId(), null);
+        SerializationUtils.deserializationException(unreadable.headers(), "bad".getBytes(StandardCharsets.UTF_8),
+                new SerializationException("Invalid schema version header"), false);
+        List<ConsumerRecord<String, EventPayload>> records = List.of(
+                record(0, paid, PaymentEvent.PaymentStatus.SUCCESSFUL),
+                unreadable,
+                record(2, later, PaymentEvent.PaymentStatus.SUCCESSFUL));
+
+        BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class,
+                () -> orderKafkaConsumerService.consumePaymentStatusUpdates(records));
+        assertEquals(1, failure.getIndex());
+        assertInstanceOf(DeserializationException.class, failure.getCause());
+
+        // Records before it are applied; the error handler redelivers the rest after dead-lettering it
+        assertEquals(Order.PaymentStatus.PAID, orderRepository.findById(paid.getId()).orElseThrow().getPaymentStatus());
+        assertEquals(Order.PaymentStatus.PENDING, orderRepository.findById(later.getId()).orElseThrow().getPaymentStatus());
+    }
+
+    @Test
+    void testEventsForAnotherUserAreIgnored() {
+        Order order = createOrder();
+        PaymentEvent event = new PaymentEvent("PAYMENT_STATUS_UPDATE", order.getId(), "someone-else", order.getTotalAmount());
+        event.setStatus(PaymentEvent.PaymentStatus.SUCCESSFUL);
+
+        orderKafkaConsumerService.consumePaymentStatusUpdates(List.of(
+                new ConsumerRecord<>("payment-status-updates-test", 0, 0, order.getId(), payload(event))));
+
+        Order after = orderRepository.findById(order.getId()).orElseThrow();
+        assertEquals(Order.PaymentStatus.PENDING, after.getPaymentStatus());
+        assertEquals(Order.OrderStatus.PENDING, after.getStatus());
+    }
+
+    private Order createOrder() {
+        Product product = productRepository.findAll().get(3);
+        Map<String, Object> response = orderService.createOrder(userId, Map.of(
+                "items", List.of(Map.of("productId", product.getId(), "quantity", 1)),
+                "deliveryAddress", "1 Test Street",
+                "paymentMethod", "CREDIT_CARD"));
+        assertEquals(true, response.get("success"));
+        return orderRepository.findById(((Order) response.get("order")).getId()).orElseThrow();
+    }
+
+    private ConsumerRecord<String, EventPayload> record(long offset, Order order, PaymentEvent.PaymentStatus status) {
+        PaymentEvent event = new PaymentEvent("PAYMENT_STATUS_UPDATE", order.getId(), userId, order.getTotalAmount());
+        event.setStatus(status);
+        return new ConsumerRecord<>("payment-status-updates-test", 0, offset, order.getId(), payload(event));
+    }
+
+    private EventPayload payload(Object event) {
+        EncodedEvent encoded = eventCodecs.encode(event);
+        return new EventPayload(eventCodecs, encoded.getData(), encoded.getFormat(), encoded.getSchemaVersion());
+    }
+}
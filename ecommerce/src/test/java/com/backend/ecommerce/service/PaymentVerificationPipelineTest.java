@@ -0,0 +1,175 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.repository.ProcessedEventRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+/**
+ * Verification requests run concurrently, are acknowledged when done and pause the listener when the
+ * pipeline is full; failed requests are retried and dead-lettered instead of being recorded as processed
+ */
+@SpringBootTest(properties = {"payment.pipeline.max-in-flight=2", "kafka.consumer.retry.interval-ms=10"})
+@ActiveProfiles("test")
+class PaymentVerificationPipelineTest {
+
+    @Autowired
+    private PaymentVerificationPipeline pipeline;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private ProcessedEventRepository processedEventRepository;
+
+    @MockitoBean
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    private long offset;
+
+    @Test
+    void testRecordsAreAcknowledgedOnlyOnceTheirPaymentIsHandled() throws Exception {
+        CountDownLatch gateway = new CountDownLatch(1);
+        AtomicInteger repeatsRun = new AtomicInteger();
+        String firstId = UUID.randomUUID().toString();
+        String repeatId = UUID.randomUUID().toString();
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment repeat = mock(Acknowledgment.class);
+        Acknowledgment other = mock(Acknowledgment.class);
+
+        pipeline.submit(record("order-a"), "order-a", firstId, first, () -> await(gateway));
+        pipeline.submit(record("order-a"), "order-a", repeatId, repeat, repeatsRun::incrementAndGet);
+        pipeline.submit(record("order-b"), "order-b", UUID.randomUUID().toString(), other, () -> { });
+
+        // The other order is not held up by the slow payment
+        verify(other, timeout(5000)).acknowledge();
+        verify(first, never()).acknowledge();
+        verify(repeat, never()).acknowledge();
+
+        gateway.countDown();
+        verify(first, timeout(5000)).acknowledge();
+        verify(repeat, timeout(5000)).acknowledge();
+        assertEquals(0, repeatsRun.get());
+        assertTrue(processedEventRepository.existsById(firstId));
+        assertTrue(processedEventRepository.existsById(repeatId));
+    }
+
+    @Test
+    void testFullPipelineBacklogsRequestsAndPausesTheListenerUntilHalfIsFree() throws Exception {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(PaymentVerificationPipeline.LISTENER_ID);
+        CountDownLatch gateway = new CountDownLatch(1);
+        Acknowledgment third = mock(Acknowledgment.class);
+
+        pipeline.submit(record("order-c"), "order-c", UUID.randomUUID().toString(), mock(Acknowledgment.class),
+                () -> await(gateway));
+        pipeline.submit(record("order-d"), "order-d", UUID.randomUUID().toString(), mock(Acknowledgment.class),
+                () -> await(gateway));
+        assertFalse(container.isPauseRequested());
+
+        // The listener thread is not blocked: the request waits in the backlog while the container is paused
+        CompletableFuture.runAsync(() ->
+                pipeline.submit(record("order-e"), "order-e", UUID.randomUUID().toString(), third, () -> { }))
+                .get(1, TimeUnit.SECONDS);
+        assertTrue(container.isPauseRequested());
+        assertEquals(1, pipeline.getBacklog());
+        verify(third, never()).acknowledge();
+
+        gateway.countDown();
+        verify(third, timeout(5000)).acknowledge();
+        // The backlogged request takes the first freed slot, so the resume can follow the next completion
+        long deadline = System.currentTimeMillis() + 5000;
+        while (container.isPauseRequested() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(container.isPauseRequested());
+        assertEquals(0, pipeline.getBacklog());
+    }
+
+    @Test
+    void testRepeatRunsItselfWhenTheRequestItWaitedForIsDeadLettered() throws Exception {
+        CountDownLatch gateway = new CountDownLatch(1);
+        AtomicInteger repeatsRun = new AtomicInteger();
+        String firstId = UUID.randomUUID().toString();
+        String repeatId = UUID.randomUUID().toString();
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment repeat = mock(Acknowledgment.class);
+
+        pipeline.submit(record("order-h"), "order-h", firstId, first, () -> {
+            await(gateway);
+            throw new IllegalStateException("gateway unavailable");
+        });
+        pipeline.submit(record("order-h"), "order-h", repeatId, repeat, repeatsRun::incrementAndGet);
+
+        gateway.countDown();
+        verify(first, timeout(5000)).acknowledge();
+        verify(repeat, timeout(5000)).acknowledge();
+        assertEquals(1, repeatsRun.get());
+        assertFalse(processedEventRepository.existsById(firstId));
+        assertTrue(processedEventRepository.existsById(repeatId));
+    }
+
+    @Test
+    void testFailedRequestIsRetriedThenDeadLetteredWithoutBeingMarkedProcessed() {
+        AtomicInteger attempts = new AtomicInteger();
+        String eventId = UUID.randomUUID().toString();
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        ConsumerRecord<String, Object> record = record("order-f");
+
+        pipeline.submit(record, "order-f", eventId, acknowledgment, () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("gateway unavailable");
+        });
+
+        verify(acknowledgment, timeout(5000)).acknowledge();
+        verify(deadLetterPublishingRecoverer).accept(same(record), any(IllegalStateException.class));
+        assertEquals(3, attempts.get());
+        assertFalse(processedEventRepository.existsById(eventId));
+    }
+
+    @Test
+    void testRequestSucceedingOnRetryIsMarkedProcessed() {
+        AtomicInteger attempts = new AtomicInteger();
+        String eventId = UUID.randomUUID().toString();
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        pipeline.submit(record("order-g"), "order-g", eventId, acknowledgment, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("gateway unavailable");
+            }
+        });
+
+        verify(acknowledgment, timeout(5000)).acknowledge();
+        verifyNoInteractions(deadLetterPublishingRecoverer);
+        assertTrue(processedEventRepository.existsById(eventId));
+    }
+
+    private ConsumerRecord<String, Object> record(String orderId) {
+        return new ConsumerRecord<>("payment-verification-test", 0, offset++, orderId, null);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
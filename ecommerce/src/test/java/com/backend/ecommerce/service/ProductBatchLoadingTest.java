@@ -0,0 +1,120 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.config.SqlStatementCounter;
+import com.backend.ecommerce.entity.Cart;
+import com.backend.ecommerce.entity.CartItem;
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.repository.CartRepository;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.backend.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Regression test: cart validation and order creation must not issue one query per line
+ */
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.backend.ecommerce.config.SqlStatementCounter")
+@ActiveProfiles("test")
+class ProductBatchLoadingTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void testValidateCartStatementCountIsIndependentOfLineCount() {
+        List<Product> products = productRepository.findAll();
+
+        String smallCartUser = createCart(products.subList(0, 1));
+        String largeCartUser = createCart(products.subList(0, 6));
+
+        int small = statementsFor(() -> assertEquals(true, cartService.validateCart(smallCartUser).get("valid")));
+        int large = statementsFor(() -> assertEquals(true, cartService.validateCart(largeCartUser).get("valid")));
+
+        assertEquals(small, large);
+    }
+
+    @Test
+    void testCreateOrderStatementCountIsIndependentOfLineCount() {
+        List<Product> products = productRepository.findAll();
+        String userId = userRepository.findAll().stream().map(User::getId).findFirst().orElseThrow();
+
+        SqlStatementCounter.reset();
+        assertEquals(true, orderService.createOrder(userId, orderData(products.subList(0, 1))).get("success"));
+        long smallSelects = SqlStatementCounter.count("select");
+        int small = SqlStatementCounter.count();
+
+        SqlStatementCounter.reset();
+        assertEquals(true, orderService.createOrder(userId, orderData(products.subList(0, 5))).get("success"));
+        long largeSelects = SqlStatementCounter.count("select");
+        int large = SqlStatementCounter.count();
+
+        assertEquals(smallSelects, largeSelects);
+        assertEquals(small, large);
+    }
+
+    private int statementsFor(Runnable action) {
+        productCache.clear();
+        SqlStatementCounter.reset();
+        action.run();
+        return SqlStatementCounter.count();
+    }
+
+    private String createCart(List<Product> products) {
+        String userId = "batch-test-" + UUID.randomUUID();
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        cart.setStatus(Cart.CartStatus.ACTIVE);
+        for (Product product : products) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProductId(product.getId());
+            item.setProductName(product.getName());
+            item.setQuantity(1);
+            item.setUnitPrice(product.getPrice());
+            item.setSubtotal(product.getPrice());
+            item.setCreatedAt(LocalDateTime.now());
+            cart.getItems().add(item);
+        }
+        cart.recalculateTotals();
+        cartRepository.save(cart);
+        return userId;
+    }
+
+    private Map<String, Object> orderData(List<Product> products) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Product product : products) {
+            items.add(Map.of("productId", product.getId(), "quantity", 1));
+        }
+        return Map.of(
+                "items", items,
+                "deliveryAddress", "1 Test Street",
+                "paymentMethod", "CREDIT_CARD");
+    }
+}
@@ -0,0 +1,124 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for the product cache and its invalidation from catalog writes
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductCacheTest {
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private ProductDetailCache productDetailCache;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        productCache.clear();
+        product = productRepository.findAll().get(0);
+    }
+
+    @Test
+    void testRepeatedReadsAreServedFromCache() {
+        double hitsBefore = cacheGets("hit");
+
+        assertTrue(productCache.get(product.getId()).isPresent());
+        assertTrue(productCache.get(product.getId()).isPresent());
+
+        assertEquals(hitsBefore + 1, cacheGets("hit"));
+        assertTrue(productCache.get("missing-product").isEmpty());
+    }
+
+    @Test
+    void testUpdateProductInvalidatesCachedEntry() {
+        productCache.get(product.getId());
+
+        catalogService.updateProduct(product.getId(), Map.of("name", "Renamed Product"));
+
+        assertEquals("Renamed Product", productCache.get(product.getId()).orElseThrow().getName());
+        catalogService.updateProduct(product.getId(), Map.of("name", product.getName()));
+    }
+
+    @Test
+    void testStockIsNotServedFromCache() {
+        productDetailCache.get(product.getId());
+
+        // Change stock behind the cache's back; product details must still show the new value
+        Product stored = productRepository.findById(product.getId()).orElseThrow();
+        int original = stored.getStockQuantity();
+        stored.setStockQuantity(original + 5);
+        productRepository.save(stored);
+
+        String details = new String(productDetailCache.get(product.getId()).orElseThrow().body(), StandardCharsets.UTF_8);
+        assertEquals(original + 5, JsonPath.<Integer>read(details, "$.stockQuantity"));
+
+        stored.setStockQuantity(original);
+        productRepository.save(stored);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "products").tag("result", result)
+                .functionCounter().count();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearchIndexFetchesImagesOfWrittenProductsAndReadsStockAtQueryTime() {
+        Product indexed = productRepository.findAllWithImagesByIdIn(List.of(product.getId())).get(0);
+        String name = indexed.getName();
+        indexed.setAdditionalImages(new ArrayList<>(List.of("https://images.example.com/indexed.jpg")));
+        productRepository.save(indexed);
+        int adjusted = 0;
+        try {
+            // The service saves a product whose images were never loaded
+            assertEquals(true, catalogService.updateProduct(product.getId(), Map.of("name", "Indexed Images Product"))
+                    .get("success"));
+            // A stock change that does not go through the index
+            adjusted = productRepository.adjustStockQuantity(product.getId(), -1, LocalDateTime.now());
+
+            List<Product> hits = (List<Product>) catalogService.searchProducts("indexed images", 0, 10).get("products");
+            assertEquals(List.of(product.getId()), hits.stream().map(Product::getId).toList());
+            assertEquals(List.of("https://images.example.com/indexed.jpg"), hits.get(0).getAdditionalImages());
+            assertEquals(productRepository.findStockQuantityById(product.getId()).orElseThrow(),
+                    hits.get(0).getStockQuantity());
+        } finally {
+            if (adjusted == 1) {
+                productRepository.adjustStockQuantity(product.getId(), 1, LocalDateTime.now());
+            }
+            Product restored = productRepository.findAllWithImagesByIdIn(List.of(product.getId())).get(0);
+            restored.setAdditionalImages(new ArrayList<>());
+            productRepository.save(restored);
+            catalogService.updateProduct(product.getId(), Map.of("name", name));
+        }
+    }
+}
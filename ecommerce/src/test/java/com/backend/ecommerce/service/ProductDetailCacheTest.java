@@ -0,0 +1,141 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.config.SqlStatementCounter;
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Product detail reads are served from cached JSON with strong ETags and invalidated by catalog writes
+ */
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.backend.ecommerce.config.SqlStatementCounter")
+@ActiveProfiles("test")
+class ProductDetailCacheTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private ProductDetailCache productDetailCache;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private MockMvc mockMvc;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        productCache.clear();
+        productDetailCache.clear();
+        product = productRepository.findAll().get(0);
+    }
+
+    @Test
+    void testRepeatedReadsReuseTheSerializedResponse() throws Exception {
+        SqlStatementCounter.reset();
+        MockHttpServletResponse first = getDetail(null);
+        assertEquals(1, SqlStatementCounter.countContaining("product_images"));
+        assertEquals(200, first.getStatus());
+        assertNotNull(first.getHeader(HttpHeaders.ETAG));
+        String body = first.getContentAsString();
+        assertEquals(product.getId(), JsonPath.read(body, "$.id"));
+        assertEquals(product.getName(), JsonPath.read(body, "$.name"));
+        assertEquals(productCache.getStockQuantity(product.getId()).orElseThrow(),
+                JsonPath.<Integer>read(body, "$.stockQuantity"));
+
+        // Only the stock and version are read again
+        SqlStatementCounter.reset();
+        MockHttpServletResponse second = getDetail(null);
+        assertEquals(body, second.getContentAsString());
+        assertEquals(first.getHeader(HttpHeaders.ETAG), second.getHeader(HttpHeaders.ETAG));
+        assertEquals(0, SqlStatementCounter.countContaining("product_images"));
+        assertEquals(1, SqlStatementCounter.count("select"));
+    }
+
+    @Test
+    void testChangesMadeByAnotherInstanceAreServedOnTheNextRead() throws Exception {
+        String etag = getDetail(null).getHeader(HttpHeaders.ETAG);
+
+        // Saved without evicting anything, as another instance would
+        Product stored = productRepository.findById(product.getId()).orElseThrow();
+        String name = stored.getName();
+        stored.setName("Renamed Elsewhere");
+        stored.setUpdatedAt(LocalDateTime.now());
+        productRepository.save(stored);
+        try {
+            MockHttpServletResponse response = getDetail(etag);
+            assertEquals(200, response.getStatus());
+            assertEquals("Renamed Elsewhere", JsonPath.read(response.getContentAsString(), "$.name"));
+            assertNotEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        } finally {
+            stored.setName(name);
+            productRepository.save(stored);
+        }
+    }
+
+    @Test
+    void testMatchingIfNoneMatchGetsNotModified() throws Exception {
+        String etag = getDetail(null).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse response = getDetail(etag);
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+
+        assertEquals(200, getDetail("\"some-other-version\"").getStatus());
+        mockMvc.perform(get("/api/catalog/products/missing-product")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testCatalogWritesChangeTheResponseAndETag() throws Exception {
+        String etag = getDetail(null).getHeader(HttpHeaders.ETAG);
+
+        assertEquals(true, catalogService.updateInventory(product.getId(), 3).get("success"));
+        MockHttpServletResponse afterStock = getDetail(etag);
+        assertEquals(200, afterStock.getStatus());
+        assertEquals(productCache.getStockQuantity(product.getId()).orElseThrow(),
+                JsonPath.<Integer>read(afterStock.getContentAsString(), "$.stockQuantity"));
+
+        String stockEtag = afterStock.getHeader(HttpHeaders.ETAG);
+        assertEquals(true, catalogService.updateProduct(product.getId(), Map.of("name", "Renamed Detail")).get("success"));
+        MockHttpServletResponse afterRename = getDetail(stockEtag);
+        assertEquals(200, afterRename.getStatus());
+        assertEquals("Renamed Detail", JsonPath.read(afterRename.getContentAsString(), "$.name"));
+        assertNotEquals(stockEtag, afterRename.getHeader(HttpHeaders.ETAG));
+    }
+
+    private MockHttpServletResponse getDetail(String ifNoneMatch) throws Exception {
+        var request = get("/api/catalog/products/" + product.getId());
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return mockMvc.perform(request).andReturn().getResponse();
+    }
+}
@@ -0,0 +1,94 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Product;
+import org.hibernate.collection.spi.PersistentBag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the in-memory product search index
+ */
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.index(product("p1", "iPhone 15 Pro", "Apple", "Electronics", "Titanium smartphone with A17 chip"));
+        index.index(product("p2", "Galaxy S24", "Samsung", "Electronics", "Android smartphone"));
+        index.index(product("p3", "Phone Case", "Generic", "Accessories", "Protective case for the iPhone 15"));
+    }
+
+    @Test
+    void testRanksNameMatchesAboveDescriptionMatches() {
+        ProductSearchIndex.SearchResult result = index.search("iPhone", 0, 10);
+
+        assertEquals(2, result.getTotalElements());
+        assertEquals("p1", result.getProducts().get(0).getId());
+        assertEquals("p3", result.getProducts().get(1).getId());
+    }
+
+    @Test
+    void testAllTermsMustMatch() {
+        ProductSearchIndex.SearchResult result = index.search("android smartphone", 0, 10);
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals("p2", result.getProducts().get(0).getId());
+    }
+
+    @Test
+    void testPrefixMatchAndPaging() {
+        assertEquals(2, index.search("iph", 0, 10).getTotalElements());
+
+        ProductSearchIndex.SearchResult secondPage = index.search("electronics", 1, 1);
+        assertEquals(2, secondPage.getTotalElements());
+        assertEquals(1, secondPage.getProducts().size());
+    }
+
+    @Test
+    void testIncrementalUpdateAndRemoval() {
+        index.index(product("p2", "Galaxy S24 Ultra", "Samsung", "Electronics", "Flagship"));
+        assertTrue(index.search("android", 0, 10).getProducts().isEmpty());
+        assertEquals(List.of("p2"), index.search("ultra", 0, 10).getProducts().stream().map(Product::getId).toList());
+
+        index.remove("p1");
+        assertEquals(1, index.search("iphone", 0, 10).getTotalElements());
+
+        Product inactive = product("p3", "Phone Case", "Generic", "Accessories", "Case");
+        inactive.setActive(false);
+        index.index(inactive);
+        assertEquals(0, index.search("case", 0, 10).getTotalElements());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testStockIsNotIndexed() {
+        Product hit = index.search("galaxy", 0, 10).getProducts().get(0);
+        assertNull(hit.getStockQuantity());
+
+        // Results are copies
+        hit.setName("Changed");
+        assertEquals("Galaxy S24", index.search("galaxy", 0, 10).getProducts().get(0).getName());
+    }
+
+    @Test
+    void testSnapshotRefusesUnfetchedImages() {
+        Product product = product("p4", "Lazy Product", "Generic", "Misc", "Images not loaded");
+        product.setAdditionalImages(new PersistentBag<>());
+
+        assertThrows(IllegalArgumentException.class, () -> ProductSnapshots.of(product));
+    }
+
+    private Product product(String id, String name, String brand, String category, String description) {
+        Product product = new Product(name, description, new BigDecimal("9.99"), category, 10);
+        product.setId(id);
+        product.setBrand(brand);
+        return product;
+    }
+}
@@ -0,0 +1,107 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.config.SqlStatementCounter;
+import com.backend.ecommerce.dto.UserRegistrationDto;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.event.UserStatusEvent;
+import com.backend.ecommerce.event.serialization.EncodedEvent;
+import com.backend.ecommerce.event.serialization.EventCodecs;
+import com.backend.ecommerce.event.serialization.EventPayload;
+import com.backend.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unregistered emails are answered from the filter, registered ones and registrations by an existence query
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.backend.ecommerce.config.SqlStatementCounter",
+        "users.email-filter.expected-users=1000"})
+@ActiveProfiles("test")
+class RegisteredEmailFilterTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RegisteredEmailFilter registeredEmailFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderKafkaConsumerService orderKafkaConsumerService;
+
+    @Autowired
+    private EventCodecs eventCodecs;
+
+    @MockitoBean
+    private KafkaProducerService kafkaProducerService;
+
+    @Test
+    void testUnregisteredEmailIsAnsweredWithoutAQuery() {
+        SqlStatementCounter.reset();
+        assertFalse(userService.userExistsByEmail("nobody@example.com"));
+        assertEquals(0, SqlStatementCounter.count());
+    }
+
+    @Test
+    void testRegisteredEmailIsConfirmedByTheDatabase() {
+        assertTrue(registeredEmailFilter.mightContain("JOHN.DOE@example.com"));
+
+        SqlStatementCounter.reset();
+        assertTrue(userService.userExistsByEmail("john.doe@example.com"));
+        assertEquals(1, SqlStatementCounter.count("select"));
+    }
+
+    @Test
+    void testRegistrationAndDeletionUpdateTheFilter() {
+        String email = "filter.user@example.com";
+        assertFalse(registeredEmailFilter.mightContain(email));
+
+        Map<String, Object> registered = userService.registerUser(
+                new UserRegistrationDto(email, "password123", "Filter", "User", "+1555000111"));
+        assertEquals(true, registered.get("success"), String.valueOf(registered.get("error")));
+        assertTrue(userService.userExistsByEmail(email));
+
+        // Registering the same email again is still refused
+        assertEquals(false, userService.registerUser(
+                new UserRegistrationDto(email, "password123", "Filter", "User", "+1555000111")).get("success"));
+
+        String userId = userService.getUserByEmail(email).orElseThrow().getId();
+        assertEquals(true, userService.deleteUser(userId).get("success"));
+        assertFalse(registeredEmailFilter.mightContain(email));
+        assertFalse(userService.userExistsByEmail(email));
+    }
+
+    @Test
+    void testRegistrationOnAnotherInstanceIsConfirmedAndPropagated() {
+        // Saved behind this instance's back, as another instance would
+        User user = userRepository.save(new User("elsewhere.user@example.com", "hash", "Else", "Where"));
+        assertFalse(registeredEmailFilter.mightContain(user.getEmail()));
+
+        Map<String, Object> registered = userService.registerUser(
+                new UserRegistrationDto(user.getEmail(), "password123", "Else", "Where", "+1555000222"));
+        assertEquals(false, registered.get("success"));
+        assertEquals("Email already registered", registered.get("error"));
+
+        orderKafkaConsumerService.consumeUserStatusUpdate(payload(new UserStatusEvent(user.getId(), user.getEmail(),
+                UserStatusEvent.UserStatus.REGISTERED, System.currentTimeMillis())), "user-status-updates-test");
+        assertTrue(registeredEmailFilter.mightContain(user.getEmail()));
+        assertTrue(userService.userExistsByEmail(user.getEmail()));
+
+        userRepository.delete(user);
+    }
+
+    private EventPayload payload(Object event) {
+        EncodedEvent encoded = eventCodecs.encode(event);
+        return new EventPayload(eventCodecs, encoded.getData(), encoded.getFormat(), encoded.getSchemaVersion());
+    }
+}
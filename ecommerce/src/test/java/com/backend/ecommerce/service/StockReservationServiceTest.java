@@ -0,0 +1,190 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.repository.OrderRepository;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.backend.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration test for conditional, batched stock reservation
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StockReservationServiceTest {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Product first;
+    private Product second;
+    private int firstStock;
+    private int secondStock;
+
+    @BeforeEach
+    void setUp() {
+        List<Product> products = productRepository.findAll();
+        first = products.get(0);
+        second = products.get(1);
+        firstStock = stock(first);
+        secondStock = stock(second);
+    }
+
+    @AfterEach
+    void tearDown() {
+        setStock(first, firstStock);
+        setStock(second, secondStock);
+    }
+
+    @Test
+    void testReserveDecrementsEveryLine() {
+        transactionTemplate.executeWithoutResult(status ->
+                stockReservationService.reserve(Map.of(first.getId(), 2, second.getId(), 1)));
+
+        assertEquals(firstStock - 2, stock(first));
+        assertEquals(secondStock - 1, stock(second));
+    }
+
+    @Test
+    void testFailedLineIsReportedAndNothingIsReserved() {
+        StockReservationService.InsufficientStockException e = assertThrows(
+                StockReservationService.InsufficientStockException.class,
+                () -> transactionTemplate.executeWithoutResult(status -> stockReservationService.reserve(
+                        Map.of(first.getId(), 1, second.getId(), secondStock + 1, "missing-product", 1))));
+
+        assertEquals(2, e.getFailedProductIds().size());
+        assertTrue(e.getFailedProductIds().containsAll(List.of(second.getId(), "missing-product")));
+        assertEquals(firstStock, stock(first));
+        assertEquals(secondStock, stock(second));
+    }
+
+    @Test
+    void testConcurrentReservationsNeverOversell() throws Exception {
+        setStock(first, 5);
+        AtomicInteger reserved = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        transactionTemplate.executeWithoutResult(status ->
+                                stockReservationService.reserve(Map.of(first.getId(), 1)));
+                        reserved.incrementAndGet();
+                    } catch (StockReservationService.InsufficientStockException ignored) {
+                        // Expected once stock runs out
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(5, reserved.get());
+        assertEquals(0, stock(first));
+    }
+
+    @Test
+    void testOrderShortOfStockIsRejectedWithItsLinesAndNothingIsSaved() throws Exception {
+        User user = userRepository.findByEmail("john.doe@example.com").orElseThrow();
+        long orders = orderRepository.count();
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+
+        mockMvc.perform(post("/api/orders").param("userId", user.getId())
+                        .header("Authorization", "Bearer " + token(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\": [{\"productId\": \"" + first.getId() + "\", \"quantity\": 1}, "
+                                + "{\"productId\": \"" + second.getId() + "\", \"quantity\": " + (secondStock + 1) + "}], "
+                                + "\"deliveryAddress\": \"1 Test Street\", \"paymentMethod\": \"CREDIT_CARD\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.failedItems.length()").value(1))
+                .andExpect(jsonPath("$.failedItems[0].productId").value(second.getId()))
+                .andExpect(jsonPath("$.failedItems[0].requestedQuantity").value(secondStock + 1));
+
+        assertEquals(orders, orderRepository.count());
+        assertEquals(firstStock, stock(first));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUnreportedRowCountsDoNotCountAsReserved() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1, Statement.SUCCESS_NO_INFO}});
+        StockReservationService service = new StockReservationService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+
+        assertThrows(IllegalStateException.class,
+                () -> service.reserve(Map.of(first.getId(), 1, second.getId(), 1)));
+    }
+
+    private String token(User user) {
+        return jwtService.generateToken(Map.of("userId", user.getId(), "role", user.getRole().toString()),
+                org.springframework.security.core.userdetails.User.withUsername(user.getEmail())
+                        .password("unused").roles(user.getRole().toString()).build());
+    }
+
+    private int stock(Product product) {
+        return productRepository.findStockQuantityById(product.getId()).orElseThrow();
+    }
+
+    private void setStock(Product product, int quantity) {
+        productRepository.adjustStockQuantity(product.getId(), quantity - stock(product), LocalDateTime.now());
+    }
+}
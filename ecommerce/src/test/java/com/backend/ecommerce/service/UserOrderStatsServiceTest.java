@@ -0,0 +1,177 @@
+package com.backend.ecommerce.service;
+
+import com.backend.ecommerce.entity.Order;
+import com.backend.ecommerce.entity.Product;
+import com.backend.ecommerce.entity.User;
+import com.backend.ecommerce.entity.UserOrderStats;
+import com.backend.ecommerce.repository.OrderRepository;
+import com.backend.ecommerce.repository.ProductRepository;
+import com.backend.ecommerce.repository.UserOrderStatsRepository;
+import com.backend.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration test for the incrementally maintained per-user order stats
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserOrderStatsServiceTest {
+
+    @Autowired
+    private UserOrderStatsService userOrderStatsService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserOrderStatsRepository userOrderStatsRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.findAll().stream().map(User::getId).skip(2).findFirst().orElseThrow();
+        userOrderStatsService.rebuild();
+    }
+
+    @Test
+    void testRebuildMatchesOrdersTable() {
+        List<Order> orders = orderRepository.findByUserId(userId);
+        long expectedCount = orders.stream().filter(this::isCounted).count();
+        BigDecimal expectedSpent = orders.stream().filter(this::isCounted)
+                .map(Order::getTotalAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        UserOrderStats stats = userOrderStatsService.getStats(userId).orElse(null);
+        if (orders.isEmpty()) {
+            assertNull(stats);
+            return;
+        }
+        assertNotNull(stats);
+        assertEquals(expectedCount, stats.getOrderCount());
+        assertEquals(0, expectedSpent.compareTo(stats.getTotalSpent()));
+    }
+
+    @Test
+    void testCreateAndCancelUpdateStatsInPlace() {
+        Map<String, Object> before = orderService.getUserOrderStats(userId);
+
+        Product product = productRepository.findAll().get(5);
+        Map<String, Object> response = orderService.createOrder(userId, Map.of(
+                "items", List.of(Map.of("productId", product.getId(), "quantity", 1)),
+                "deliveryAddress", "1 Test Street",
+                "paymentMethod", "CREDIT_CARD"));
+        assertEquals(true, response.get("success"));
+        Order order = orderRepository.findById(((Order) response.get("order")).getId()).orElseThrow();
+
+        Map<String, Object> afterCreate = orderService.getUserOrderStats(userId);
+        assertEquals((long) before.get("totalOrders") + 1, afterCreate.get("totalOrders"));
+        assertEquals(0, ((BigDecimal) before.get("totalSpent")).add(order.getTotalAmount())
+                .compareTo((BigDecimal) afterCreate.get("totalSpent")));
+        assertNotNull(afterCreate.get("lastOrderDate"));
+
+        // Incremental and rebuilt stats must agree
+        UserOrderStats incremental = userOrderStatsService.getStats(userId).orElseThrow();
+        userOrderStatsService.rebuild();
+        UserOrderStats rebuilt = userOrderStatsService.getStats(userId).orElseThrow();
+        assertEquals(incremental.getOrderCount(), rebuilt.getOrderCount());
+        assertEquals(0, incremental.getTotalSpent().compareTo(rebuilt.getTotalSpent()));
+
+        orderService.cancelOrder(order.getId(), userId, "Changed my mind");
+
+        Map<String, Object> afterCancel = orderService.getUserOrderStats(userId);
+        assertEquals(before.get("totalOrders"), afterCancel.get("totalOrders"));
+        assertEquals(0, ((BigDecimal) before.get("totalSpent")).compareTo((BigDecimal) afterCancel.get("totalSpent")));
+    }
+
+    @Test
+    void testConcurrentFirstOrdersOfAUserBothSucceed() throws Exception {
+        long countedBefore = orderRepository.findByUserId(userId).stream().filter(this::isCounted).count();
+        // Without a stats row both orders take the first-order path
+        userOrderStatsRepository.deleteById(userId);
+        Product product = productRepository.findAll().get(5);
+
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<Object> placeOrder = () -> {
+            start.await();
+            return orderService.createOrder(userId, Map.of(
+                    "items", List.of(Map.of("productId", product.getId(), "quantity", 1)),
+                    "deliveryAddress", "1 Test Street",
+                    "paymentMethod", "CREDIT_CARD")).get("success");
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(placeOrder));
+            results.add(executor.submit(placeOrder));
+            start.countDown();
+            for (Future<Object> result : results) {
+                assertEquals(true, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2, userOrderStatsService.getStats(userId).orElseThrow().getOrderCount());
+        userOrderStatsService.rebuild();
+        assertEquals(countedBefore + 2, userOrderStatsService.getStats(userId).orElseThrow().getOrderCount());
+    }
+
+    @Test
+    void testRebuildEndpointRequiresTheAdminRole() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+        User customer = userRepository.findByEmail("john.doe@example.com").orElseThrow();
+        User admin = userRepository.findByEmail("admin@ecommerce.com").orElseThrow();
+
+        mockMvc.perform(post("/api/orders/admin/stats/rebuild").header("Authorization", "Bearer " + token(customer)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/orders/admin/stats/rebuild").header("Authorization", "Bearer " + token(admin)))
+                .andExpect(status().isOk());
+    }
+
+    private String token(User user) {
+        return jwtService.generateToken(Map.of("userId", user.getId(), "role", user.getRole().toString()),
+                org.springframework.security.core.userdetails.User.withUsername(user.getEmail())
+                        .password("unused").roles(user.getRole().toString()).build());
+    }
+
+    private boolean isCounted(Order order) {
+        return order.getStatus() != Order.OrderStatus.CANCELLED && order.getStatus() != Order.OrderStatus.REFUNDED;
+    }
+}